@@ -2,6 +2,7 @@ package thybulle.driver;
 
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.*;
 import java.util.logging.*;
 import java.io.*;
 import java.time.LocalDate;
@@ -25,6 +26,17 @@ public class Driver {
 		GameSource source = InputParsing.parseSource(inputFile);
 		Collection<Pair<LocalDate, LocalDate>> dataset = InputParsing.parseDataset(inputFile);
 		Collection<Team> teams = InputParsing.parseTeams(inputFile);
+		ExecutorService executor = Executors.newFixedThreadPool(InputParsing.parseThreads(inputFile), r -> {
+			Thread t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		});
+		String clipCacheLocation = InputParsing.parseClipCache(inputFile);
+		ClipCache clipCache = clipCacheLocation == null ? null : new ClipCache(clipCacheLocation, InputParsing.parseClipCacheSize(inputFile));
+		InternetVideo.setCache(clipCache);
+		int prefetch = InputParsing.parsePrefetch(inputFile);
+		VideoPrefetcher prefetcher = prefetch == 0 ? null : new VideoPrefetcher(source, prefetch);
+		hc.prefetch(prefetcher);
 
 		new Thread(() -> {
 			Scanner keyboard = new Scanner(System.in);
@@ -33,6 +45,9 @@ public class Driver {
 				if(input.toLowerCase().equals("quit") || input.toLowerCase().equals("exit")){
 					logging.info("Cleaning up resources");
 					try{
+						if(prefetcher != null){
+							prefetcher.close();
+						}
 						source.close();
 						System.exit(0);
 					} catch(IOException e){
@@ -43,13 +58,25 @@ public class Driver {
 		}).start();
 
 		logging.info("Getting game information");
+		long start = System.nanoTime();
 		List<GameInfo> information = new ArrayList<GameInfo>();
 		for(Pair<LocalDate, LocalDate> p : dataset) {
-			information.addAll(source.getTeamGameInformationBetweenDates(p.first(), p.second(), teams));
+			information.addAll(source.getTeamGameInformationBetweenDates(p.first(), p.second(), teams, executor));
 		}
+		logging.info("Done getting game information in " + elapsed(start) + ".");
+		int found = information.size();
+		PlayIndex index = source.getPlayIndex(information);
+		if(index != null){
+			logging.info("Found an index of the stored plays of " + index.numberOfGames() + " of " + found + " games.");
+		}
+		hc.index(index);
+		information = GamePlanner.plan(information, constraints, source, index, executor);
+		logging.info("Skipping " + (found - information.size()) + " of " + found + " games, which cannot contain plays satisfying the constraints.");
 		logging.info("Getting play-by-play data");
-		List<Game> games = source.getGames(information);
-		logging.info("Done getting play-by-play data. Found " + games.size() + (games.size() == 1 ? " game." : " games."));
+		start = System.nanoTime();
+		List<Game> games = source.getGames(information, executor);
+		executor.shutdown();
+		logging.info("Done getting play-by-play data. Found " + games.size() + (games.size() == 1 ? " game" : " games") + " in " + elapsed(start) + ".");
 		hc.addGames(games);
 		hc.addConstraints(constraints);
 		logging.info("Finding all plays that satisfy constraints");
@@ -57,16 +84,38 @@ public class Driver {
 		logging.info("Found " + h.size() + (h.size() == 1 ? " play." : " plays."));
 		if(h.size() == 0){
 			logging.error("No plays were found. Exiting.");
+			if(prefetcher != null){
+				prefetcher.close();
+			}
 			source.close();
 			System.exit(0);
 		}
-		h.saveVideo(outputFile, logging);
+		logging.info("Resolving play videos");
+		start = System.nanoTime();
+		if(prefetcher != null){
+			try{
+				h.saveVideo(outputFile, logging, prefetcher);
+			} finally {
+				prefetcher.close();
+			}
+		} else {
+			h.saveVideo(outputFile, logging, source);
+		}
+		logging.info("Done saving video in " + elapsed(start) + ".");
+		if(clipCache != null){
+			logging.info(clipCache.statistics());
+		}
 		logging.info("Cleaning up resources.");
 		source.close();
 		logging.info("Done!");
 		System.exit(0);
 	}
 
+	//Returns a String representing the time elapsed since start, which was returned by System.nanoTime.
+	private static String elapsed(long start){
+		return ((System.nanoTime() - start) / 1000000) + " ms";
+	}
+
 	private static void checkFFMpeg(){
 		try{
 			Runtime.getRuntime().exec("ffmpeg");
@@ -0,0 +1,156 @@
+package thybulle.driver;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import thybulle.highlights.*;
+import thybulle.misc.*;
+
+/**Static class which rules out games that cannot contain any play satisfying a set of constraints, before their play-by-play data is requested.<br>
+Each constraint is evaluated against a game instead of a play. The result is one of three possibilities:
+no play in the game can satisfy the constraint, some plays might, or every play does.<br>
+Team constraints are decided by the teams in the game, and Player constraints by the players in the game, if the source can provide them cheaply.
+Every other constraint is assumed to be satisfiable by some plays.<br>
+And, Or and Not constraints combine the possibilities of their constraints. A game is ruled out only if it is certain that none of its plays can satisfy the constraints,
+so planning never changes the plays which are found.<br>
+If an index of the games' plays is given, the games in the index are instead evaluated play by play, using the index's posting lists,
+so a game is ruled out unless one of its plays may satisfy every constraint, not merely one of them. The players of those games are not requested.
+@author Owen Kulik
+*/
+
+public class GamePlanner {
+	private GamePlanner(){}
+
+	//Whether some, all or none of a game's plays can satisfy a constraint.
+	private enum Possibility {
+		NEVER, SOMETIMES, ALWAYS;
+
+		private Possibility not(){
+			return this == NEVER ? ALWAYS : this == ALWAYS ? NEVER : SOMETIMES;
+		}
+	}
+
+	/**Returns the games which may contain plays satisfying all of the given constraints, in the same order as the given games.<br>
+	If any constraint involves a player, the source is asked for the players of each game which has not already been ruled out, using the given Executor.
+	@param games The games to consider.
+	@param constraints The constraints. Plays must satisfy all of them.
+	@param source The source the games will be requested from.
+	@param executor The Executor to ask the source for players on.
+	@throws NullPointerException if any parameter is null.
+	@throws IOException if an IO error occurs.
+	@return the games which may contain plays satisfying all of the given constraints.
+	*/
+	public static List<GameInfo> plan(List<GameInfo> games, Collection<? extends Constraint> constraints, GameSource source, Executor executor) throws IOException {
+		return plan(games, constraints, source, null, executor);
+	}
+
+	/**Returns the games which may contain plays satisfying all of the given constraints, in the same order as the given games.<br>
+	Games in the given index are ruled out if the index finds that none of their plays can satisfy the constraints.
+	If any constraint involves a player, the source is asked for the players of each other game which has not already been ruled out, using the given Executor.
+	@param games The games to consider.
+	@param constraints The constraints. Plays must satisfy all of them.
+	@param source The source the games will be requested from.
+	@param index An index of the plays of some of the games, or null if there is none.
+	@param executor The Executor to ask the source for players on.
+	@throws NullPointerException if any parameter other than index is null.
+	@throws IOException if an IO error occurs.
+	@return the games which may contain plays satisfying all of the given constraints.
+	*/
+	public static List<GameInfo> plan(List<GameInfo> games, Collection<? extends Constraint> constraints, GameSource source, PlayIndex index, Executor executor) throws IOException {
+		if(games == null || source == null || executor == null){
+			throw new NullPointerException();
+		}
+		if(constraints.isEmpty()){
+			return new ArrayList<GameInfo>(games);
+		}
+		Constraint constraint = new AndConstraint(constraints);
+		List<GameInfo> answer = new ArrayList<GameInfo>();
+		//Games which are not in the index, and may contain plays by the players in the constraints.
+		List<GameInfo> unindexed = new ArrayList<GameInfo>();
+		for(GameInfo gi : games){
+			if(index != null && index.covers(gi)){
+				if(!index.candidates(constraint, gi).isEmpty()){
+					answer.add(gi);
+				}
+			} else if(evaluate(constraint, gi, null) != Possibility.NEVER){
+				answer.add(gi);
+				unindexed.add(gi);
+			}
+		}
+		if(!involvesPlayer(constraint) || unindexed.isEmpty()){
+			return answer;
+		}
+		List<Set<Player>> players = Concurrency.map(unindexed, source::getPlayers, executor);
+		Set<GameInfo> ruledOut = new HashSet<GameInfo>();
+		for(int i = 0; i < unindexed.size(); i++){
+			if(evaluate(constraint, unindexed.get(i), players.get(i)) == Possibility.NEVER){
+				ruledOut.add(unindexed.get(i));
+			}
+		}
+		List<GameInfo> narrowed = new ArrayList<GameInfo>(answer.size());
+		for(GameInfo gi : answer){
+			if(!ruledOut.contains(gi)){
+				narrowed.add(gi);
+			}
+		}
+		return narrowed;
+	}
+
+	//Returns whether some, all or none of the plays in the given game can satisfy the constraint. players is null if the game's players are unknown.
+	private static Possibility evaluate(Constraint c, GameInfo gi, Set<Player> players){
+		if(c instanceof AndConstraint){
+			Possibility answer = Possibility.ALWAYS;
+			for(Constraint inner : ((AndConstraint)c).getConstraints()){
+				Possibility p = evaluate(inner, gi, players);
+				if(p == Possibility.NEVER){
+					return Possibility.NEVER;
+				} else if(p == Possibility.SOMETIMES){
+					answer = Possibility.SOMETIMES;
+				}
+			}
+			return answer;
+		} else if(c instanceof OrConstraint){
+			Possibility answer = Possibility.NEVER;
+			for(Constraint inner : ((OrConstraint)c).getConstraints()){
+				Possibility p = evaluate(inner, gi, players);
+				if(p == Possibility.ALWAYS){
+					return Possibility.ALWAYS;
+				} else if(p == Possibility.SOMETIMES){
+					answer = Possibility.SOMETIMES;
+				}
+			}
+			return answer;
+		} else if(c instanceof NotConstraint){
+			return evaluate(((NotConstraint)c).getConstraint(), gi, players).not();
+		} else if(c instanceof Team){
+			return gi.hasTeam((Team)c) ? Possibility.SOMETIMES : Possibility.NEVER;
+		} else if(c instanceof Player){
+			return players != null && !players.contains(c) ? Possibility.NEVER : Possibility.SOMETIMES;
+		} else {
+			return Possibility.SOMETIMES;
+		}
+	}
+
+	//Returns true if the constraint is or contains a Player constraint.
+	private static boolean involvesPlayer(Constraint c){
+		if(c instanceof AndConstraint){
+			for(Constraint inner : ((AndConstraint)c).getConstraints()){
+				if(involvesPlayer(inner)){
+					return true;
+				}
+			}
+			return false;
+		} else if(c instanceof OrConstraint){
+			for(Constraint inner : ((OrConstraint)c).getConstraints()){
+				if(involvesPlayer(inner)){
+					return true;
+				}
+			}
+			return false;
+		} else if(c instanceof NotConstraint){
+			return involvesPlayer(((NotConstraint)c).getConstraint());
+		} else {
+			return c instanceof Player;
+		}
+	}
+}
@@ -43,14 +43,80 @@ public class Highlights {
 		if(path == null){
 			throw new NullPointerException();
 		}
-		Set<Video> v = new LinkedHashSet<Video>();
 		output.info("Resolving " + plays.size() + (plays.size() == 1 ? " play video." : " play videos."));
+		List<Video> v = new ArrayList<Video>(plays.size());
 		for(Play p : plays){
 			v.add(p.getVideo());
 		}
 		output.info("Finished resolving play videos.");
-		//@SuppressWarnings("unchecked")
-		video = FileVideo.combineVideos(path, output, new ArrayList<Video>(v));
+		return combine(path, output, v);
+	}
+
+	/**This method is exactly equivalent to {@link #saveVideo(File, Logging) saveVideo} except the play videos are resolved together by the given source,
+	which may be much faster than resolving them one at a time.
+	@param path The location to save the video.
+	@param output Logging object to output relevant information.
+	@param source The source the plays were returned by.
+	@throws NullPointerException if any parameters are null.
+	@return a video for this Highlights object.
+	*/
+	public FileVideo saveVideo(File path, Logging output, GameSource source) throws IOException {
+		if(video != null){
+			return video;
+		}
+		if(path == null || source == null){
+			throw new NullPointerException();
+		}
+		output.info("Resolving " + plays.size() + (plays.size() == 1 ? " play video." : " play videos."));
+		List<Video> v = source.getVideos(plays);
+		output.info("Finished resolving play videos.");
+		return combine(path, output, v);
+	}
+
+	/**This method is exactly equivalent to {@link #saveVideo(File, Logging) saveVideo} except the play videos are taken from the given prefetcher,
+	which has already resolved and downloaded some or all of them.
+	@param path The location to save the video.
+	@param output Logging object to output relevant information.
+	@param prefetcher The prefetcher the plays of this Highlights object were given to.
+	@throws NullPointerException if any parameters are null.
+	@return a video for this Highlights object.
+	*/
+	FileVideo saveVideo(File path, Logging output, VideoPrefetcher prefetcher) throws IOException {
+		if(video != null){
+			return video;
+		}
+		if(path == null || prefetcher == null){
+			throw new NullPointerException();
+		}
+		output.info("Waiting for " + plays.size() + (plays.size() == 1 ? " prefetched play video." : " prefetched play videos."));
+		Set<Video> resolved = new LinkedHashSet<Video>();
+		for(Play p : plays){
+			resolved.add(prefetcher.getVideo(p));
+		}
+		List<Video> v = new ArrayList<Video>(resolved.size());
+		for(Video r : resolved){
+			v.add(r == null ? null : prefetcher.getDownloaded(r));
+		}
+		output.info("Finished resolving play videos.");
+		return combine(path, output, v);
+	}
+
+	//Combines the given videos into one video at path, skipping duplicates. Videos which will be downloaded are pinned in the clip cache until they have been combined.
+	private FileVideo combine(File path, Logging output, List<Video> videos) throws IOException {
+		Set<Video> v = new LinkedHashSet<Video>(videos);
+		List<InternetVideo> downloaded = new ArrayList<InternetVideo>();
+		for(Video x : v){
+			if(x instanceof InternetVideo){
+				downloaded.add((InternetVideo)x);
+			}
+		}
+		Closeable pin = InternetVideo.pin(downloaded);
+		try{
+			//@SuppressWarnings("unchecked")
+			video = FileVideo.combineVideos(path, output, new ArrayList<Video>(v));
+		} finally {
+			pin.close();
+		}
 		return video;
 	}
 
@@ -16,6 +16,10 @@ public class HighlightsCompiler {
 	//Represents all games to get highlights from. Must have size > 0 in order to compile.
 	private final List<Game> sourceGames;
 	private final Collection<Constraint> constraintSet;
+	//Prefetches the videos of plays as they are found. Null if prefetching is disabled.
+	private VideoPrefetcher prefetcher;
+	//An index of the plays of some of the source games. Null if there is none.
+	private PlayIndex index;
 
 	/**Constructs a HighlightsCompiler without any constraints or source games.
 	 */
@@ -46,6 +50,24 @@ public class HighlightsCompiler {
 		return this;
 	}
 
+	/**Makes this HighlightsCompiler give the plays of each game to the given prefetcher as soon as they are found, so that their videos are fetched while later games are compiled.
+	@param p The prefetcher, or null to disable prefetching.
+	@return this, for method call chaining.
+	*/
+	HighlightsCompiler prefetch(VideoPrefetcher p){
+		prefetcher = p;
+		return this;
+	}
+
+	/**Makes this HighlightsCompiler use the given index of the plays of its games, so that only the plays of each indexed game which may satisfy the constraints are tested.
+	@param i The index, or null to test every play.
+	@return this, for method call chaining.
+	*/
+	public HighlightsCompiler index(PlayIndex i){
+		index = i;
+		return this;
+	}
+
 	/**Compiles and returns a Highlights object.<br>
 	This highlights object contains all plays in this HighlightCompiler's games that satisfy the provided constraints.
 	@return a Highlights object containing all plays in this HighlightCompiler's games that satisfy the provided constraints.
@@ -59,7 +81,11 @@ public class HighlightsCompiler {
 		}
 		List<Play> plays = new ArrayList<Play>();
 		for(Game g : sourceGames){
-			plays.addAll(g.getAllPlaysThatSatisfy(constraintSet));
+			List<Play> found = index == null ? g.getAllPlaysThatSatisfy(constraintSet) : g.getAllPlaysThatSatisfy(constraintSet, index);
+			if(prefetcher != null){
+				prefetcher.prefetch(found);
+			}
+			plays.addAll(found);
 		}
 		return new Highlights(plays);
 	}
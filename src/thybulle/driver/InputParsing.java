@@ -118,11 +118,80 @@ public class InputParsing {
 	public static GameSource parseSource(int src) throws IOException {
 		if(src == 0){
 			return AdvancedStats.open(new JSONObject(FileUtils.fileToString(AdvancedStats.DEFAULT_CONFIG_PATH)));
+		} else if(src == 1){
+			return StatsApi.open(new JSONObject(FileUtils.fileToString(StatsApi.DEFAULT_CONFIG_PATH)));
 		} else {
 			throw new JSONException("Unrecognized play-by-play source: " + src);
 		}
 	}
 
+	/**Parses the given file and returns the number of threads specified by the optional threads key.<br>
+	 * If the key is not present, returns the number of processors available to the JVM.
+	 * @param inputFile Path to the input file.
+	 * @throws IOException If an IO error occurs.
+	 * @throws NullPointerException if inputFile is null.
+	 * @throws JSONException if the input file is not a JSON file, or if the threads key is not a positive integer.
+	 * @return the number of threads to use when getting data from the source.
+	 */
+	public static int parseThreads(String inputFile) throws IOException {
+		JSONObject input = new JSONObject(FileUtils.fileToString(inputFile));
+		int threads = input.optInt("threads", Runtime.getRuntime().availableProcessors());
+		if(threads < 1){
+			throw new JSONException("Number of threads must be positive: " + threads);
+		}
+		return threads;
+	}
+
+	/**Parses the given file and returns the prefetch window specified by the optional prefetch key.<br>
+	 * If the key is not present, returns 0, indicating that videos should not be prefetched.
+	 * @param inputFile Path to the input file.
+	 * @throws IOException If an IO error occurs.
+	 * @throws NullPointerException if inputFile is null.
+	 * @throws JSONException if the input file is not a JSON file, or if the prefetch key is negative.
+	 * @return the maximum number of videos to prefetch at once, or 0 if videos should not be prefetched.
+	 */
+	public static int parsePrefetch(String inputFile) throws IOException {
+		JSONObject input = new JSONObject(FileUtils.fileToString(inputFile));
+		int prefetch = input.optInt("prefetch", 0);
+		if(prefetch < 0){
+			throw new JSONException("Prefetch window must not be negative: " + prefetch);
+		}
+		return prefetch;
+	}
+
+	/**Parses the given file and returns the clip cache directory specified by the optional clipCache key.<br>
+	 * If the key is not present, returns null, indicating that videos should be downloaded every time they are used.
+	 * @param inputFile Path to the input file.
+	 * @throws IOException If an IO error occurs.
+	 * @throws NullPointerException if inputFile is null.
+	 * @throws JSONException if the input file is not a JSON file, or if the clipCache key is not a string.
+	 * @return the path to the clip cache directory, or null if videos should not be cached.
+	 */
+	public static String parseClipCache(String inputFile) throws IOException {
+		JSONObject input = new JSONObject(FileUtils.fileToString(inputFile));
+		return input.isNull("clipCache") ? null : input.getString("clipCache");
+	}
+
+	/**Parses the given file and returns the maximum size of the clip cache, in bytes, specified by the optional clipCacheSize key in megabytes.<br>
+	 * If the key is not present, returns Long.MAX_VALUE, indicating that the cache's size is not limited.
+	 * @param inputFile Path to the input file.
+	 * @throws IOException If an IO error occurs.
+	 * @throws NullPointerException if inputFile is null.
+	 * @throws JSONException if the input file is not a JSON file, or if the clipCacheSize key is not a positive integer.
+	 * @return the maximum size of the clip cache in bytes.
+	 */
+	public static long parseClipCacheSize(String inputFile) throws IOException {
+		JSONObject input = new JSONObject(FileUtils.fileToString(inputFile));
+		if(input.isNull("clipCacheSize")){
+			return Long.MAX_VALUE;
+		}
+		long megabytes = input.getLong("clipCacheSize");
+		if(megabytes < 1){
+			throw new JSONException("Clip cache size must be positive: " + megabytes);
+		}
+		return megabytes * 1024 * 1024;
+	}
+
 	/**Parses the given file and returns a collection of pairs of dates.<br>
 	 * Each pair indicates that games between these dates, inclusive, should be included.
 	@param inputFile Path to the input file.
@@ -0,0 +1,211 @@
+package thybulle.driver;
+
+import java.util.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.time.*;
+import java.util.stream.Stream;
+import java.time.format.DateTimeParseException;
+import thybulle.highlights.*;
+import thybulle.misc.*;
+
+import org.json.*;
+
+/**Command line tool for managing Advanced Stats data stores.<br>
+Usage:
+<ul>
+	<li>StoreTool migrate DATA_FILE STORE_DIRECTORY - Converts a data file written by an older version of this program, such as advancedstatsdata.json, into a data store.
+	The data file is not modified. Video locations whose plays are not in the data file cannot be assigned to a game, and are skipped.</li>
+	<li>StoreTool list STORE_DIRECTORY BEGINNING END - Lists the days and games between the given dates, inclusive, which have stored data. Only the store's index is read.</li>
+	<li>StoreTool compress STORE_DIRECTORY [SAMPLE_SIZE] - Trains a dictionary from at most SAMPLE_SIZE bytes of the store's data, which defaults to DEFAULT_SAMPLE_SIZE,
+	then compresses every file in the store with it. Files written to the store afterwards are also compressed.</li>
+	<li>StoreTool compact STORE_DIRECTORY - Rewrites the store in the current format, removes video locations which cannot be reached, duplicate games in days,
+	missing partitions and stray files, and reports the size of the store before and after. See DataStore.compact().</li>
+	<li>StoreTool decompress STORE_DIRECTORY - Decompresses every file in the store. Files written to the store afterwards are not compressed.</li>
+	<li>StoreTool bench STORE_DIRECTORY BEGINNING END - Reports the size of the store, then reads every day and game between the given dates, inclusive, from a newly opened store BENCH_RUNS times,
+	and reports the time taken and read throughput of each run. The operating system may cache the store's files, so only the first run includes reading them from disk.</li>
+</ul>
+@author Owen Kulik
+*/
+
+public class StoreTool {
+	static final Logging logging = new Logging(System.out);
+	public static final int DEFAULT_SAMPLE_SIZE = 1024 * 1024;
+	public static final int BENCH_RUNS = 3;
+
+	private StoreTool(){}
+
+	public static void main(String[] args) throws IOException {
+		if(args.length == 3 && args[0].equals("migrate")){
+			migrate(args[1], args[2]);
+		} else if(args.length == 4 && args[0].equals("list")){
+			list(args[1], LocalDate.parse(args[2]), LocalDate.parse(args[3]));
+		} else if((args.length == 2 || args.length == 3) && args[0].equals("compress")){
+			try(DataStore store = DataStore.open(args[1])){
+				store.compress(args.length == 3 ? Integer.parseInt(args[2]) : DEFAULT_SAMPLE_SIZE);
+			}
+		} else if(args.length == 2 && args[0].equals("compact")){
+			compact(args[1]);
+		} else if(args.length == 2 && args[0].equals("decompress")){
+			try(DataStore store = DataStore.open(args[1])){
+				store.decompress();
+			}
+		} else if(args.length == 4 && args[0].equals("bench")){
+			bench(args[1], LocalDate.parse(args[2]), LocalDate.parse(args[3]));
+		} else {
+			System.err.println("Usage:\n\tStoreTool migrate DATA_FILE STORE_DIRECTORY\n\tStoreTool list STORE_DIRECTORY BEGINNING END"
+				+ "\n\tStoreTool compress STORE_DIRECTORY [SAMPLE_SIZE]\n\tStoreTool compact STORE_DIRECTORY\n\tStoreTool decompress STORE_DIRECTORY\n\tStoreTool bench STORE_DIRECTORY BEGINNING END");
+			System.exit(1);
+		}
+	}
+
+	//Converts the data file at the given path into a data store in the given directory.
+	private static void migrate(String dataFile, String storeDirectory) throws IOException {
+		logging.info("Reading " + dataFile);
+		JSONObject data = new JSONObject(FileUtils.fileToString(dataFile));
+		int days = 0;
+		int games = 0;
+		int videos = 0;
+		int skipped = 0;
+		try(DataStore store = DataStore.open(storeDirectory)){
+			//Video locations are keyed by play link, so the game of each play link must be found first.
+			Map<String, GameInfo> gamesByLink = new HashMap<String, GameInfo>();
+			List<String> videoKeys = new ArrayList<String>();
+			for(String key : data.keySet()){
+				if(key.equals("teamAbbreviations")){
+					JSONObject abbreviations = data.getJSONObject(key);
+					for(String abbreviation : abbreviations.keySet()){
+						store.putTeamAbbreviation(abbreviation, abbreviations.getString(abbreviation));
+					}
+					continue;
+				}
+				LocalDate date = parseDate(key);
+				if(date != null){
+					store.putDay(date, data.getJSONArray(key));
+					days++;
+					continue;
+				}
+				GameInfo gi = parseGameInfo(key);
+				if(gi != null){
+					JSONArray plays = data.getJSONArray(key);
+					store.putPlays(gi, plays);
+					for(int i = 0; i < plays.length(); i++){
+						JSONObject play = plays.getJSONObject(i);
+						if(!play.isNull("playlink")){
+							gamesByLink.put(play.getString("playlink"), gi);
+						}
+					}
+					games++;
+					continue;
+				}
+				videoKeys.add(key);
+			}
+			Map<GameInfo, Map<String, String>> videosByGame = new HashMap<GameInfo, Map<String, String>>();
+			for(String link : videoKeys){
+				GameInfo gi = gamesByLink.get(link);
+				if(gi == null || data.isNull(link)){
+					skipped++;
+					continue;
+				}
+				videosByGame.computeIfAbsent(gi, k -> new HashMap<String, String>()).put(link, data.getString(link));
+				videos++;
+			}
+			for(Map.Entry<GameInfo, Map<String, String>> e : videosByGame.entrySet()){
+				store.putVideos(e.getKey(), e.getValue());
+			}
+			logging.info("Writing " + storeDirectory);
+		}
+		logging.info("Migrated " + days + " days, " + games + " games and " + videos + " video locations.");
+		if(skipped > 0){
+			logging.warning("Skipped " + skipped + " video locations whose plays were not in the data file.");
+		}
+	}
+
+	//Lists the days and games between the given dates which have stored data.
+	private static void list(String storeDirectory, LocalDate beginning, LocalDate end) throws IOException {
+		try(DataStore store = DataStore.open(storeDirectory)){
+			SortedSet<LocalDate> days = store.daysBetween(beginning, end);
+			SortedSet<GameInfo> games = store.gamesBetween(beginning, end);
+			for(LocalDate ld : days){
+				System.out.println(ld);
+			}
+			for(GameInfo gi : games){
+				System.out.println(gi);
+			}
+			logging.info(days.size() + (days.size() == 1 ? " day and " : " days and ") + games.size() + (games.size() == 1 ? " game." : " games."));
+		}
+	}
+
+	//Compacts the given store, and reports its size before and after.
+	private static void compact(String storeDirectory) throws IOException {
+		long before = size(storeDirectory);
+		long start = System.nanoTime();
+		try(DataStore store = DataStore.open(storeDirectory)){
+			store.compact();
+		}
+		long after = size(storeDirectory);
+		logging.info("Compacted in " + ((System.nanoTime() - start) / 1000000) + " ms. Store size: " + before + " bytes before, " + after + " bytes after ("
+			+ (before == 0 ? 100 : after * 100 / before) + "%).");
+	}
+
+	//Returns the total size of the files in the given directory.
+	private static long size(String directory) throws IOException {
+		long answer = 0;
+		try(Stream<Path> files = Files.walk(Path.of(directory))){
+			for(Path p : (Iterable<Path>)files::iterator){
+				if(Files.isRegularFile(p)){
+					answer += Files.size(p);
+				}
+			}
+		}
+		return answer;
+	}
+
+	//Reads every day and game between the given dates from a newly opened store BENCH_RUNS times, and reports the read throughput.
+	private static void bench(String storeDirectory, LocalDate beginning, LocalDate end) throws IOException {
+		logging.info("Store size: " + size(storeDirectory) + " bytes.");
+		for(int i = 1; i <= BENCH_RUNS; i++){
+			long start = System.nanoTime();
+			long bytes = 0;
+			int days = 0;
+			int games = 0;
+			try(DataStore store = DataStore.open(storeDirectory)){
+				for(LocalDate ld : store.daysBetween(beginning, end)){
+					store.getDay(ld);
+					days++;
+				}
+				for(GameInfo gi : store.gamesBetween(beginning, end)){
+					//Reads the game's video locations.
+					store.getVideo(gi, "");
+					ByteBuffer plays = store.getEncodedPlays(gi);
+					if(plays != null){
+						bytes += plays.remaining();
+					}
+					games++;
+				}
+			}
+			long nanos = Math.max(System.nanoTime() - start, 1);
+			logging.info("Run " + i + ": read " + days + " days and " + games + " games in " + (nanos / 1000000) + " ms ("
+				+ (games * 1000000000L / nanos) + " games per second, " + (bytes * 1000000000L / nanos / 1024) + " KB of plays per second).");
+		}
+	}
+
+	//Returns the date represented by the given key, or null if it does not represent a date.
+	private static LocalDate parseDate(String key){
+		try{
+			return LocalDate.parse(key);
+		} catch(DateTimeParseException e){
+			return null;
+		}
+	}
+
+	//Returns the game represented by the given key, or null if it does not represent a game.
+	private static GameInfo parseGameInfo(String key){
+		try{
+			return GameInfo.parse(key);
+		} catch(IllegalArgumentException | DateTimeParseException e){
+			return null;
+		}
+	}
+}
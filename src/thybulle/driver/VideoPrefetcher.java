@@ -0,0 +1,232 @@
+package thybulle.driver;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import thybulle.highlights.*;
+import thybulle.misc.*;
+
+/**Class which resolves and downloads the videos of plays in the background, as soon as the plays are found.<br>
+The plays of each game are given to the prefetcher as the game is compiled. Their videos are resolved together by the source,
+and each distinct video is then downloaded to a temporary file.
+This lets the videos of earlier games be fetched while later games are still being compiled, instead of only after every game has been compiled.<br>
+At most window videos are being resolved or downloaded at once, and the prefetcher runs at most window downloads ahead of the videos which have been used:
+a video is only downloaded once there are fewer than window downloads which are in progress or finished but not yet used. The rest wait in a queue, in the order they were found,
+so the temporary files of a long dataset do not all exist at once before the first is used.<br>
+Prefetching is speculative. If it fails for a play, the play's video is resolved and downloaded as usual when the highlights video is saved.<br>
+Closing the prefetcher cancels any prefetching still in progress and deletes the downloaded files.
+It should be closed once the highlights video has been saved, or if the run is aborted.<br>
+This class is thread safe.
+@author Owen Kulik
+*/
+
+class VideoPrefetcher implements Closeable {
+	private final GameSource source;
+	private final ExecutorService executor;
+	private final Map<Play, CompletableFuture<Video>> videos = new ConcurrentHashMap<Play, CompletableFuture<Video>>();
+	private final Map<Video, CompletableFuture<FileVideo>> downloads = new ConcurrentHashMap<Video, CompletableFuture<FileVideo>>();
+	//A permit for each download which may be started. Taken when a download starts, and returned when it is used or fails.
+	private final Semaphore window;
+	//Resolved videos which are waiting for a permit, in the order they were found. Guarded by this.
+	private final Set<Video> queued = new LinkedHashSet<Video>();
+	//Videos whose downloads hold a permit.
+	private final Set<Video> held = ConcurrentHashMap.newKeySet();
+	private volatile boolean closed = false;
+
+	//RI: source, executor, videos, downloads, window, queued and held are non-null. No video is in both queued and downloads. Every video in held is in downloads.
+	//AF: Represents the prefetching of the videos of the plays in videos. downloads holds the download of each distinct video which has been started,
+	//and queued holds the resolved videos which will be downloaded once a permit is free.
+
+	/**Constructs a VideoPrefetcher which resolves videos using the given source, with at most window videos being resolved or downloaded at once, and at most window downloads which have not been used yet.
+	@param source The source the plays were returned by.
+	@param window The maximum number of videos being resolved or downloaded at once, and of downloads which have not been used yet.
+	@throws NullPointerException if source is null.
+	@throws IllegalArgumentException if window is less than 1.
+	*/
+	VideoPrefetcher(GameSource source, int window){
+		if(source == null){
+			throw new NullPointerException();
+		}
+		if(window < 1){
+			throw new IllegalArgumentException("Prefetch window was less than 1.");
+		}
+		this.source = source;
+		this.window = new Semaphore(window);
+		this.executor = Executors.newFixedThreadPool(window, r -> {
+			Thread t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**Starts resolving the videos of the given plays, which should all be from the same game, and queues them to be downloaded. Returns immediately.<br>
+	Plays whose videos are already being prefetched are ignored. Does nothing if this prefetcher has been closed.
+	@param plays The plays.
+	@throws NullPointerException if plays is null or contains null.
+	*/
+	void prefetch(List<? extends Play> plays){
+		List<Play> added = new ArrayList<Play>(plays.size());
+		for(Play p : plays){
+			if(!videos.containsKey(p)){
+				added.add(p);
+			}
+		}
+		if(closed || added.isEmpty()){
+			return;
+		}
+		CompletableFuture<List<Video>> resolved;
+		try{
+			resolved = CompletableFuture.supplyAsync(() -> {
+				try{
+					return source.getVideos(added);
+				} catch(IOException e){
+					throw new UncheckedIOException(e);
+				}
+			}, executor);
+		} catch(RejectedExecutionException e){
+			//Closed concurrently.
+			return;
+		}
+		for(int i = 0; i < added.size(); i++){
+			int index = i;
+			videos.putIfAbsent(added.get(i), resolved.thenApply(l -> l.get(index)));
+		}
+		resolved.thenAccept(l -> {
+			for(Video v : l){
+				if(v != null){
+					download(v);
+				}
+			}
+		});
+	}
+
+	//Queues the given video to be downloaded, unless it is already queued or being downloaded.
+	private synchronized void download(Video v){
+		if(closed || downloads.containsKey(v)){
+			return;
+		}
+		queued.add(v);
+		startDownloads();
+	}
+
+	//Starts downloading queued videos, in order, while there are free permits.
+	private synchronized void startDownloads(){
+		while(!closed && !queued.isEmpty() && window.tryAcquire()){
+			Iterator<Video> it = queued.iterator();
+			Video v = it.next();
+			it.remove();
+			held.add(v);
+			CompletableFuture<FileVideo> future;
+			try{
+				future = CompletableFuture.supplyAsync(() -> {
+					try{
+						File f = File.createTempFile("prefetch", ".mp4");
+						f.deleteOnExit();
+						return v.save(f);
+					} catch(IOException e){
+						throw new UncheckedIOException(e);
+					}
+				}, executor);
+			} catch(RejectedExecutionException e){
+				//Closed concurrently.
+				held.remove(v);
+				window.release();
+				return;
+			}
+			downloads.put(v, future);
+			future.whenComplete((f, e) -> {
+				if(e != null || f == null){
+					release(v);
+				}
+			});
+		}
+	}
+
+	//Returns the permit held by the download of the given video, if it holds one, and starts the next queued download.
+	private void release(Video v){
+		if(held.remove(v)){
+			window.release();
+			startDownloads();
+		}
+	}
+
+	/**Returns a Video depicting the given play, waiting for it to be resolved if it is being prefetched.<br>
+	If the play was not prefetched, or prefetching it failed, its video is resolved on the calling thread.
+	@param p The play.
+	@throws NullPointerException if p is null.
+	@throws IOException if an IO error occurs.
+	@return a Video depicting the given play, or null if it could not be resolved.
+	*/
+	Video getVideo(Play p) throws IOException {
+		CompletableFuture<Video> future = videos.get(p);
+		if(future != null){
+			try{
+				return future.get();
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a prefetched video.");
+			} catch(ExecutionException | CancellationException e){
+				Driver.logging.warning("Prefetching the video of " + p + " failed. Resolving it again.");
+			}
+		}
+		return p.getVideo();
+	}
+
+	/**Returns a downloaded copy of the given video, waiting for it to be downloaded if it is being prefetched.<br>
+	If the video was not prefetched, or downloading it failed, the given video is returned, and will be downloaded when it is saved.
+	If its download has not started yet, it is removed from the queue rather than waited for.<br>
+	Once this method returns, the video's download no longer counts towards the prefetch window.
+	@param v The video.
+	@throws NullPointerException if v is null.
+	@throws IOException if an IO error occurs.
+	@return a downloaded copy of the given video, or the video itself.
+	*/
+	Video getDownloaded(Video v) throws IOException {
+		CompletableFuture<FileVideo> future;
+		synchronized(this){
+			if(queued.remove(v)){
+				return v;
+			}
+			future = downloads.get(v);
+		}
+		if(future != null){
+			try{
+				FileVideo answer = future.get();
+				if(answer != null){
+					return answer;
+				}
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a prefetched video.");
+			} catch(ExecutionException | CancellationException e){
+				Driver.logging.warning("Prefetching " + v + " failed. Downloading it again.");
+			} finally {
+				release(v);
+			}
+		}
+		return v;
+	}
+
+	/**Cancels any prefetching still in progress, and deletes the downloaded files.<br>
+	Once this method is called, no other methods of this prefetcher should be called.
+	*/
+	@Override
+	public void close(){
+		synchronized(this){
+			closed = true;
+			queued.clear();
+		}
+		executor.shutdownNow();
+		for(CompletableFuture<Video> f : videos.values()){
+			f.cancel(true);
+		}
+		for(CompletableFuture<FileVideo> f : downloads.values()){
+			if(!f.cancel(true) && !f.isCompletedExceptionally()){
+				FileVideo downloaded = f.getNow(null);
+				if(downloaded != null){
+					downloaded.delete();
+				}
+			}
+		}
+	}
+}
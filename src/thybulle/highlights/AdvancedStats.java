@@ -2,13 +2,22 @@ package thybulle.highlights;
 
 import static thybulle.highlights.HighlightsLogger.*;
 
+import thybulle.highlights.PlayByPlayParser.UnparsedPlay;
 import thybulle.misc.*;
 import java.util.*;
-import java.util.regex.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.time.*;
 import java.io.*;
 import java.net.URL;
 import java.time.Duration;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.net.MalformedURLException;
 
@@ -28,91 +37,79 @@ stats.nba.com is an excellent source for play-by-play data.<br>
 It includes pre-edited videos of almost all plays, with the notable exception of most dead-ball turnovers.<br>
 Its only major weakness is that it is impossible to tell the difference between players on the same team with the same last name.<br>
 Any plays committed by either player are attributed to the one which shows up first in the box score.<br>
-This source has the ability to save its data locally on the user's machine.<br>
+This source has the ability to save its data locally on the user's machine, in a DataStore.<br>
 Doing so may reduce the overall runtime of the program from up to several hours down to a few minutes.<br>
-The options to read and write data can be specified in the JSON file "./advancedstatsconfig.json".
+The options to read and write data can be specified in the JSON file "./advancedstatsconfig.json".<br>
+Every page this source renders can also be recorded into a PageArchive.<br>
+A source which replays such an archive serves the recorded pages after a configurable simulated latency instead of using a browser,
+which allows its performance to be measured repeatably without a network connection.
 */
 
 public class AdvancedStats implements GameSource {
-	private WebDriver driver;
+	private BrowserPool pool;
 	private final boolean read;
 	private final boolean write;
-	private JSONObject data;
-	private final String writeLocation;
-
-	private static final Browser browser;
-
-	public static final String DEFAULT_DATA_LOCATION = "./advancedstatsdata.json";
+	//Null if read mode is inactive.
+	private final DataStore readStore;
+	//Null if write mode is inactive. The same instance as readStore if both are in the same location.
+	private final DataStore writeStore;
+	private final PageArchive recording;
+	private final PageArchive replaying;
+	private final long replayLatency;
+	private final Map<StatsPage, PageTimings> timings = new EnumMap<StatsPage, PageTimings>(StatsPage.class);
+
+	//Read the first time a browser is needed, so that replaying does not require a browser config.
+	private static Browser browser;
+
+	public static final String DEFAULT_DATA_LOCATION = "./advancedstatsdata";
 	public static final String DEFAULT_CONFIG_PATH = "../config/advancedstatsconfig.json";
 
-	private static final long DEFAULT_TIMEOUT = 10000;
-	private static final long VIDEO_TIMEOUT = 60000;
-	private static final long MINIMUM_TIMEOUT = 1000;
+	//Maximum time to wait for a page's content to stop changing once the page has loaded.
+	private static final long SETTLE_TIMEOUT = 5000;
+	private static final long SETTLE_POLL_INTERVAL = 250;
+	//Pages used to always wait this long after loading. Used to report the time saved by waiting for content instead.
+	private static final long FIXED_WAIT = 1000;
 	private static final int MAX_RETRIES = 3;
+	private static final Pattern GAME_ID = Pattern.compile("[?&]GameID=([^&#]+)");
+	private static final Pattern EVENT_ID = Pattern.compile("[?&]GameEventID=([^&#]+)");
+	//Requests the video location of each of the given events of the given game from the page's own endpoint.
+	//At most the given number of requests are in flight at once: each worker requests the next event which has not been requested yet until none are left.
+	//Returns a JSON object mapping each event id to its video location, or null if the location could not be found.
+	private static final String VIDEOS_SCRIPT = "var done = arguments[arguments.length - 1];"
+		+ "var gameId = arguments[0];"
+		+ "var events = arguments[1];"
+		+ "var workers = Math.max(1, Math.min(arguments[2], events.length));"
+		+ "var answer = {};"
+		+ "var next = 0;"
+		+ "var request = function(id){"
+		+ "  return fetch('/stats/videoeventsasset?GameEventID=' + encodeURIComponent(id) + '&GameID=' + encodeURIComponent(gameId),"
+		+ "      {headers: {'x-nba-stats-origin': 'stats', 'x-nba-stats-token': 'true'}})"
+		+ "    .then(function(r){ return r.ok ? r.json() : null; })"
+		+ "    .then(function(j){ var u = j && j.resultSets && j.resultSets.Meta && j.resultSets.Meta.videoUrls; return u && u.length && u[0].murl ? u[0].murl : null; })"
+		+ "    .catch(function(){ return null; });"
+		+ "};"
+		+ "var work = function(){"
+		+ "  if(next >= events.length){ return Promise.resolve(); }"
+		+ "  var id = events[next++];"
+		+ "  return request(id).then(function(url){ answer[id] = url; return work(); });"
+		+ "};"
+		+ "var running = [];"
+		+ "for(var i = 0; i < workers; i++){ running.push(work()); }"
+		+ "Promise.all(running).then(function(){ done(JSON.stringify(answer)); });";
+	//Maximum number of video location requests VIDEOS_SCRIPT makes at once. The same endpoint as NBA Stats API uses, so the same limit applies.
+	private static final int MAX_VIDEO_REQUESTS = StatsApi.DEFAULT_MAX_REQUESTS;
 	
-	private static final Map<GameInfo, Game> interning = new HashMap<GameInfo, Game>();
-	private static final Map<GameInfo, String> links = new HashMap<GameInfo, String>();
-	private static final Map<Pair<String, String>, PlayType> playTypeParsing = new LinkedHashMap<Pair<String, String>, PlayType>();
-	private static final Map<String, Team> teamAbbreviations = new HashMap<String, Team>();
-	
-	private static final String playerRegexNoGroup = "(?!MISS).+?";
-	private static final String playerRegex = "(" + playerRegexNoGroup + ")";
-	private static final String distanceRegex = "(?:\\d{1,2}' )?";
-	private static final String shotModifiers = "(?:Jump|Alley Oop|Reverse|Finger Roll|Running|Layup|Tip|Putback|Turnaround|Bank|Hook|Step Back|Floating|Pullup|Pull-Up|Cutting|Fadeaway|Driving|Tip|Jumper|Shot| )*";
-	private static final String turnoverModifiers = "(?:Lost Ball|Bad Pass|Offensive Foul|Basket Interference|5 Second Violation|Lane Violation|Step Out of Bounds|Out of Bounds Lost Ball|Traveling|Out of Bounds \\- Bad Pass Turnover|3 Second Violation|Palming|Backcourt|Double Dribble|Discontinue Dribble|Kicked Ball Violation|Inbound|No| )*";
-	
-	private static final String dunkMadeRegex = playerRegex + " " + distanceRegex + shotModifiers + "Dunk (?:Shot )?\\(\\d+ PTS\\).*";
-	private static final String missedDunkRegex = "MISS " + playerRegex + " " + distanceRegex + shotModifiers + "Dunk(?: Shot)?";
-	private static final String threePointerMadeRegex = playerRegex + " " + distanceRegex + "3PT" + shotModifiers + " \\(\\d+ PTS\\).*";
-	private static final String missedThreePointerRegex = "MISS " + playerRegex + " " + distanceRegex + "3PT" + shotModifiers;
-	private static final String fieldGoalMadeRegex = playerRegex + " " + distanceRegex + shotModifiers + " \\(\\d+ PTS\\).*";
-	private static final String missedFieldGoalRegex = "MISS " + playerRegex + " " + distanceRegex + shotModifiers;
-
-	private static final String missedFreeThrowRegex = "MISS " + playerRegex + " Free Throw.*";
-	private static final String madeFreeThrowRegex = playerRegex + " Free Throw.*";
-
-	private static final String teamReboundRegex = ".* Rebound";
-	private static final String reboundRegex = playerRegex + " REBOUND.*";
-
-	private static final String assistRegex = ".*\\(" + playerRegex + " \\d+ AST\\)";
-
-	private static final String stealRegex = playerRegex + " STEAL \\(\\d+ STL\\)";
-
-	private static final String blockRegex = playerRegex + " BLOCK \\(\\d+ BLK\\)";
-
-	private static final String alleyOopRegex = playerRegex + " " + distanceRegex + shotModifiers + "Alley Oop .* \\(\\d+ PTS\\) \\(" + playerRegex + " \\d+ AST\\)";
-
-	private static final String teamTechnicalRegex = ".* T\\.Foul \\(Def. 3 Sec .*\\).*";
-	private static final String flagrantFoul1Regex = playerRegex + " FLAGRANT\\.FOUL\\.TYPE1.*";
-	private static final String flagrantFoul2Regex = playerRegex + " FLAGRANT\\.FOUL\\.TYPE2.*";
-	private static final String shootingFoulRegex = playerRegex + " S\\.FOUL.*";
-	private static final String defensiveFoulRegex = playerRegex + " P\\.FOUL.*";
-	private static final String looseBallFoulRegex = playerRegex + " L\\.B\\.FOUL.*";
-	private static final String technicalFoulRegex = playerRegex + " T\\.FOUL.*";
-	private static final String offensiveFoulRegex = playerRegex + " OFF\\.Foul.*";
-	private static final String chargeRegex = playerRegex + " Offensive Charge Foul.*";
-	private static final String intentionalFoulRegex = playerRegex + " Personal Take Foul.*";
-	private static final String clearPathFoulRegex = playerRegex + " C\\.P\\.FOUL.*";
-	private static final String awayFromThePlayFoulRegex = playerRegex + " AWAY\\.FROM\\.PLAY\\.FOUL.*";
-	
-	private static final String shootingFoulRegexNoGroup = playerRegexNoGroup + " S\\.FOUL.*";
-	
-	private static final String eightSecondViolationRegex = ".* Turnover: 8 Second Violation \\(T#\\d+\\)";
-	private static final String shotClockViolationRegex = ".* Turnover: Shot Clock \\(T#\\d+\\)";
-	private static final String teamTurnoverRegex = ".* Turnover: .* \\(T#\\d+\\)";
-	private static final String travelingRegex = playerRegex + " Traveling Turnover \\(P\\d+\\.T\\d+\\)";
-	private static final String basketInterferenceRegex = playerRegex + " Offensive Goaltending Turnover \\(P\\d+\\.T\\d+\\)";
-	
-	private static final String jumpBallRegex = "Jump Ball(?:\\(CC\\)| )*" + playerRegex + " vs\\. " + playerRegex + ":.*";
-	
-	private static final String turnoverRegex = playerRegex + turnoverModifiers + " Turnover \\(P\\d+\\.T\\d+\\)";
-
-	private static final String goaltendingRegex = playerRegex + " Violation:Defensive Goaltending.*";
-	private static final String violationRegex = ".* Violation:.*";
-
-	private static final String subRegex = "SUB: " + playerRegex + " FOR " + playerRegex;
-
-	private static final String timeoutRegex = ".* Timeout: .*";
+	private static final Map<GameInfo, Game> interning = new ConcurrentHashMap<GameInfo, Game>();
+	//Values can be null, so a ConcurrentHashMap cannot be used.
+	private static final Map<GameInfo, String> links = Collections.synchronizedMap(new HashMap<GameInfo, String>());
+	//Players of each game whose box score has been rendered.
+	private static final Map<GameInfo, Set<Player>> rosters = new ConcurrentHashMap<GameInfo, Set<Player>>();
+	//Days whose games have all been found. A game on one of these days which is not in links does not exist.
+	private static final Set<LocalDate> knownDays = ConcurrentHashMap.newKeySet();
+	private static final Map<String, Team> teamAbbreviations = new ConcurrentHashMap<String, Team>();
+	//Parsing play-by-play data does not use the browser, so it is done on this pool while the browser moves on to the next page.
+	//All static state used while parsing is either immutable or thread safe.
+	private static final ForkJoinPool parsingPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 	
 	static {
 		teamAbbreviations.put("ATL", Team.getNBATeam("Atlanta Hawks"));
@@ -147,115 +144,81 @@ public class AdvancedStats implements GameSource {
 		teamAbbreviations.put("WAS", Team.getNBATeam("Washington Wizards"));
 	}
 
-	static {
-		playTypeParsing.put(p(missedDunkRegex, null), PlayType.DUNK_MISSED);
-		playTypeParsing.put(p(missedThreePointerRegex, null), PlayType.THREE_POINTER_MISSED);
-		playTypeParsing.put(p(missedFieldGoalRegex, null), PlayType.FIELD_GOAL_MISSED);
-		
-		playTypeParsing.put(p(dunkMadeRegex, shootingFoulRegexNoGroup), PlayType.AND_ONE_DUNK);
-		playTypeParsing.put(p(dunkMadeRegex, null), PlayType.DUNK_MADE);
-		playTypeParsing.put(p(threePointerMadeRegex, shootingFoulRegexNoGroup), PlayType.AND_ONE_THREE_POINTER);
-		playTypeParsing.put(p(threePointerMadeRegex, null), PlayType.THREE_POINTER_MADE);
-		playTypeParsing.put(p(fieldGoalMadeRegex, shootingFoulRegexNoGroup), PlayType.AND_ONE);
-		playTypeParsing.put(p(fieldGoalMadeRegex, null), PlayType.FIELD_GOAL_MADE);
-
-		playTypeParsing.put(p(missedFreeThrowRegex, null), PlayType.FREE_THROW_MISSED);
-		playTypeParsing.put(p(madeFreeThrowRegex, null), PlayType.FREE_THROW_MADE);
-		
-		playTypeParsing.put(p(teamReboundRegex, null), PlayType.TEAM_REBOUND);
-		playTypeParsing.put(p(reboundRegex, null), PlayType.REBOUND);
-
-		playTypeParsing.put(p(assistRegex, null), PlayType.ASSIST);
-
-		playTypeParsing.put(p(stealRegex, null), PlayType.STEAL);
-
-		playTypeParsing.put(p(blockRegex, null), PlayType.BLOCK);
-
-		playTypeParsing.put(p(alleyOopRegex, null), PlayType.ALLEY_OOP);
-
-		playTypeParsing.put(p(teamTechnicalRegex, null), PlayType.TEAM_TECHNICAL_FOUL);
-		playTypeParsing.put(p(flagrantFoul1Regex, null), PlayType.FLAGRANT_FOUL_1);
-		playTypeParsing.put(p(flagrantFoul2Regex, null), PlayType.FLAGRANT_FOUL_2);
-		playTypeParsing.put(p(shootingFoulRegex, null), PlayType.SHOOTING_FOUL);
-		playTypeParsing.put(p(defensiveFoulRegex, null), PlayType.DEFENSIVE_FOUL);
-		playTypeParsing.put(p(looseBallFoulRegex, null), PlayType.LOOSE_BALL_FOUL);
-		playTypeParsing.put(p(technicalFoulRegex, null), PlayType.TECHNICAL_FOUL);
-		playTypeParsing.put(p(offensiveFoulRegex, null), PlayType.OFFENSIVE_FOUL);
-		playTypeParsing.put(p(chargeRegex, null), PlayType.OFFENSIVE_FOUL);
-		playTypeParsing.put(p(intentionalFoulRegex, null), PlayType.DEFENSIVE_FOUL);
-		playTypeParsing.put(p(clearPathFoulRegex, null), PlayType.DEFENSIVE_FOUL);
-		playTypeParsing.put(p(awayFromThePlayFoulRegex, null), PlayType.DEFENSIVE_FOUL);
-
-		playTypeParsing.put(p(eightSecondViolationRegex, null), PlayType.EIGHT_SECOND_VIOLATION);
-		playTypeParsing.put(p(shotClockViolationRegex, null), PlayType.SHOT_CLOCK_VIOLATION);
-		playTypeParsing.put(p(teamTurnoverRegex, null), PlayType.TEAM_TURNOVER);
-		playTypeParsing.put(p(travelingRegex, null), PlayType.TRAVELING);
-		playTypeParsing.put(p(basketInterferenceRegex, null), PlayType.BASKET_INTERFERENCE);
-		playTypeParsing.put(p(turnoverRegex, null), PlayType.TURNOVER);
-		
-		playTypeParsing.put(p(jumpBallRegex, null), PlayType.JUMP_BALL);
-		
-		playTypeParsing.put(p(goaltendingRegex, null), PlayType.GOALTENDING);
-		playTypeParsing.put(p(violationRegex, null), PlayType.VIOLATION);
-		
-		playTypeParsing.put(p(subRegex, null), PlayType.SUBSTITUTION);
-
-		playTypeParsing.put(p(timeoutRegex, null), PlayType.TIMEOUT);
-	}
-
-	static {
-		try{
-			browser = Browser.fromJSONObject(new JSONObject(FileUtils.fileToString(Browser.DEFAULT_CONFIG_PATH)));
-		} catch(IOException e){
-			throw new java.io.UncheckedIOException(e);
+	private AdvancedStats(boolean read, boolean write, String readPath, String writePath, String recordPath, String replayPath, long replayLatency) throws IOException {
+		if(replayLatency < 0){
+			throw new IllegalArgumentException("Replay latency was negative.");
 		}
-	}
-
-	private static <F, S> Pair<F, S> p(F first, S second){
-		return new Pair<F, S>(first, second);
-	}
-
-	private AdvancedStats(boolean read, boolean write, String readPath, String writePath) throws IOException {
 		this.read = read;
 		this.write = write;
-		this.writeLocation = writePath;
-		File f = new File(readPath);
+		this.recording = recordPath == null ? null : new PageArchive(recordPath);
+		this.replaying = replayPath == null ? null : new PageArchive(replayPath);
+		this.replayLatency = replayLatency;
+		for(StatsPage page : StatsPage.values()){
+			timings.put(page, new PageTimings());
+		}
 		if(this.read){
-			if(!f.exists()){
-				logging.warning("No data file exists at " + readPath + ". Running without pre-read data.");
-				this.data = new JSONObject();
-			} else {
-				try{
-					this.data =  new JSONObject(Files.readString(Path.of(readPath)));
-				} catch(JSONException e){
-					throw new IOException(e);
-				}
+			if(!new File(readPath).exists()){
+				logging.warning("No data store exists at " + readPath + ". Running without pre-read data.");
+			}
+			this.readStore = DataStore.open(readPath);
+			for(Map.Entry<String, String> e : this.readStore.getTeamAbbreviations().entrySet()){
+				teamAbbreviations.putIfAbsent(e.getKey(), Team.get(e.getValue()));
 			}
 		} else {
-			this.data = new JSONObject();
+			this.readStore = null;
+		}
+		if(!this.write){
+			this.writeStore = null;
+		} else if(this.read && Path.of(readPath).toAbsolutePath().normalize().equals(Path.of(writePath).toAbsolutePath().normalize())){
+			this.writeStore = this.readStore;
+		} else {
+			this.writeStore = DataStore.open(writePath);
+			if(this.read){
+				for(Map.Entry<String, String> e : this.readStore.getTeamAbbreviations().entrySet()){
+					this.writeStore.putTeamAbbreviation(e.getKey(), e.getValue());
+				}
+			}
 		}
 	}
 
-	/**Returns an AdvancedStats instance using the specified booleans to determine whether to read or write local data, and using "./advancedstatsdata.json" at the data location.
+	/**Returns an AdvancedStats instance using the specified booleans to determine whether to read or write local data, and using "./advancedstatsdata" as the data store location.
 	@param read Whether to read local data.
 	@param write Whether to write local data.
 	@throws IOException if an IO error occurs.
 	@return an AdvancedStats instance.
 	*/
 	public static AdvancedStats open(boolean read, boolean write) throws IOException {
-		return new AdvancedStats(read, write, DEFAULT_DATA_LOCATION, DEFAULT_DATA_LOCATION);
+		return new AdvancedStats(read, write, DEFAULT_DATA_LOCATION, DEFAULT_DATA_LOCATION, null, null, 0);
 	}
 
-	/**Returns an AdvancedStats instance using the specified booleans to determine whether to read or write local data, and using the given path as the data file location.
+	/**Returns an AdvancedStats instance using the specified booleans to determine whether to read or write local data, and using the given paths as the data store locations.<br>
+	If the locations are different, the learned team abbreviations and each day and game read from the read location are copied to the write location when they are first used.
 	@param read Whether to read local data.
 	@param write Whether to write local data.
-	@param readLocation Path to the Advanced Stats data file. Can be null if read == false.
-	@param writeLocation Path to save any collected data to. Can be null if write == false.
+	@param readLocation Path to the Advanced Stats data store directory. Can be null if read == false.
+	@param writeLocation Path to the data store directory to save any collected data to. Can be null if write == false.
 	@throws IOException if an IO error occurs.
 	@return an AdvancedStats instance.
 	*/
 	public static AdvancedStats open(boolean read, boolean write, String readLocation, String writeLocation) throws IOException {
-		return new AdvancedStats(read, write, readLocation, writeLocation);
+		return new AdvancedStats(read, write, readLocation, writeLocation, null, null, 0);
+	}
+
+	/**Returns an AdvancedStats instance which serves pages from the archive at the given location instead of using a browser.<br>
+	Each page is served after waiting for the given latency, to simulate the time taken to render it. Pages which are not in the archive cannot be obtained.<br>
+	The instance neither reads nor writes local data.
+	@param archiveLocation Path to a directory of pages recorded by an AdvancedStats instance.
+	@param latency The time to wait before serving each page, in milliseconds.
+	@throws NullPointerException if archiveLocation is null.
+	@throws IllegalArgumentException if latency is negative.
+	@throws IOException if an IO error occurs.
+	@return an AdvancedStats instance.
+	*/
+	public static AdvancedStats replay(String archiveLocation, long latency) throws IOException {
+		if(archiveLocation == null){
+			throw new NullPointerException();
+		}
+		return new AdvancedStats(false, false, DEFAULT_DATA_LOCATION, DEFAULT_DATA_LOCATION, null, archiveLocation, latency);
 	}
 
 	/**Returns an AdvancedStats instance using the given JSON object as a config file in accordance with the specification in the config README.
@@ -264,7 +227,8 @@ public class AdvancedStats implements GameSource {
 	@return an AdvancedStats instance.
 	*/
 	public static AdvancedStats open(JSONObject obj) throws IOException {
-		return new AdvancedStats(obj.getBoolean("read"), obj.getBoolean("write"), obj.optString("readLocation", DEFAULT_DATA_LOCATION), obj.optString("writeLocation", DEFAULT_DATA_LOCATION));
+		return new AdvancedStats(obj.getBoolean("read"), obj.getBoolean("write"), obj.optString("readLocation", DEFAULT_DATA_LOCATION), obj.optString("writeLocation", DEFAULT_DATA_LOCATION),
+			obj.optString("record", null), obj.optString("replay", null), obj.optLong("replayLatency", 0));
 	}
 
 	/**Returns a Game object with play-by-play data for the given GameInfo, 
@@ -275,25 +239,262 @@ public class AdvancedStats implements GameSource {
 	@return a Game object with play-by-play data for the given GameInfo
 	*/
 	public Game getGame(GameInfo gi) throws IOException {
+		return joinGame(gi, startGame(gi));
+	}
+
+	/**Returns the players who may appear in the plays of the given game, if its box score has been rendered or its plays are cached or stored, or null otherwise.<br>
+	For stored plays, only the table of players at the start of the stored data is read, not the plays themselves.<br>
+	This method never uses the browser.
+	@param gi The Game Information.
+	@throws NullPointerException if gi is null.
+	@throws IOException if an IO error occurs.
+	@return the players who may appear in the plays of the given game, or null if they are not known.
+	*/
+	@Override
+	public Set<Player> getPlayers(GameInfo gi) throws IOException {
+		Set<Player> roster = rosters.get(gi);
+		if(roster != null){
+			return roster;
+		}
+		Game g = interning.get(gi);
+		if(g != null){
+			Set<Player> answer = new HashSet<Player>();
+			for(Play p : g.getAllPlays()){
+				answer.addAll(p.getPlayers());
+			}
+			return Collections.unmodifiableSet(answer);
+		}
+		ByteBuffer stored = this.read ? readStore.getEncodedPlays(gi) : null;
+		if(stored == null){
+			return null;
+		}
+		try{
+			return Collections.unmodifiableSet(PlayCodec.players(stored));
+		} catch(IllegalArgumentException e){
+			logging.warning("Stored plays of " + gi.toString() + " are malformed: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**Returns an index of the stored plays of the given games, or null if stored data is not being read.<br>
+	Only the index is read, not the plays. Games whose plays are not stored are not in the index.
+	@param gis The games.
+	@throws NullPointerException if gis is null or contains null.
+	@throws IOException if an IO error occurs.
+	@return an index of the stored plays of the given games, or null if stored data is not being read.
+	*/
+	@Override
+	public PlayIndex getPlayIndex(Collection<GameInfo> gis) throws IOException {
+		if(gis == null){
+			throw new NullPointerException();
+		}
+		return this.read ? readStore.getPlayIndex(gis) : null;
+	}
+
+	/**Returns a Video depicting each of the given plays, in the same order as the given plays. Videos which could not be resolved are null.<br>
+	Unresolved plays are grouped by game. For each game, the video page of one of its plays is loaded,
+	and the video locations of all of the game's unresolved plays are requested at once from within that page, instead of loading each play's page in turn.
+	The locations found are stored together.<br>
+	Plays whose locations could not be found this way, plays not returned by this source, and all plays when replaying, are resolved one at a time.
+	@param plays The plays.
+	@throws NullPointerException if plays is null or contains null.
+	@throws IOException if an IO error occurs.
+	@return a Video depicting each of the given plays.
+	*/
+	@Override
+	public List<Video> getVideos(List<? extends Play> plays) throws IOException {
+		Map<String, List<AdvancedStatsPlay>> unresolved = new LinkedHashMap<String, List<AdvancedStatsPlay>>();
+		for(Play p : plays){
+			if(replaying != null || !(p instanceof AdvancedStatsPlay)){
+				continue;
+			}
+			AdvancedStatsPlay asp = (AdvancedStatsPlay)p;
+			if(asp.source != this || asp.playLink == null || asp.hasVideo() || getStoredVideo(asp) != null){
+				continue;
+			}
+			Matcher gameId = GAME_ID.matcher(asp.playLink);
+			if(gameId.find() && EVENT_ID.matcher(asp.playLink).find()){
+				unresolved.computeIfAbsent(gameId.group(1), k -> new ArrayList<AdvancedStatsPlay>()).add(asp);
+			}
+		}
+		Map<String, String> resolved = new HashMap<String, String>();
+		for(Map.Entry<String, List<AdvancedStatsPlay>> e : unresolved.entrySet()){
+			try{
+				resolved.putAll(resolveVideos(e.getKey(), e.getValue()));
+			} catch(AdvancedStatsControlFlowException ex){
+				logging.warning("Could not resolve videos of game " + e.getKey() + " together. Resolving them one at a time.");
+			}
+		}
+		Map<AdvancedStatsPlay, String> found = new HashMap<AdvancedStatsPlay, String>();
+		for(List<AdvancedStatsPlay> l : unresolved.values()){
+			for(AdvancedStatsPlay asp : l){
+				String videoLink = resolved.get(asp.playLink);
+				if(videoLink != null){
+					asp.setVideo(videoLink);
+					found.put(asp, videoLink);
+				}
+			}
+		}
+		putStoredVideos(found);
+		if(!unresolved.isEmpty()){
+			int count = 0;
+			for(List<AdvancedStatsPlay> l : unresolved.values()){
+				count += l.size();
+			}
+			logging.info("Resolved " + resolved.size() + " of " + count + " unresolved videos together. Resolving the rest one at a time.");
+		}
+		List<Video> answer = new ArrayList<Video>(plays.size());
+		for(Play p : plays){
+			answer.add(p.getVideo());
+		}
+		return answer;
+	}
+
+	//Loads the video page of the first of the given plays, which are all from the game with the given id,
+	//and requests the video locations of all of the plays from within it. Returns a map from the link of each play whose location was found to its location.
+	private Map<String, String> resolveVideos(String gameId, List<AdvancedStatsPlay> plays) throws IOException {
+		logging.info("Using browser to resolve " + plays.size() + (plays.size() == 1 ? " video" : " videos") + " of game " + gameId + ".");
+		Map<String, String> links = new LinkedHashMap<String, String>();
+		for(AdvancedStatsPlay asp : plays){
+			Matcher eventId = EVENT_ID.matcher(asp.playLink);
+			eventId.find();
+			links.put(eventId.group(1), asp.playLink);
+		}
+		BrowserPool browsers = setup();
+		WebDriver driver = browsers.acquire();
+		Object result;
+		try{
+			driver.manage().timeouts().pageLoadTimeout(StatsPage.VIDEO.timeout(), java.util.concurrent.TimeUnit.MILLISECONDS);
+			driver.manage().timeouts().setScriptTimeout(StatsPage.VIDEO.timeout(), java.util.concurrent.TimeUnit.MILLISECONDS);
+			driver.get(plays.get(0).playLink);
+			new WebDriverWait(driver, StatsPage.VIDEO.timeout()/1000).until(ExpectedConditions.visibilityOfElementLocated(StatsPage.VIDEO.loaded()));
+			result = ((JavascriptExecutor)driver).executeAsyncScript(VIDEOS_SCRIPT, gameId, new ArrayList<String>(links.keySet()), MAX_VIDEO_REQUESTS);
+		} catch(WebDriverException e){
+			browsers.discard(driver);
+			throw new AdvancedStatsControlFlowException("Could not request videos.", e);
+		} catch(RuntimeException e){
+			browsers.discard(driver);
+			throw e;
+		}
+		browsers.release(driver);
+		if(!(result instanceof String)){
+			throw new AdvancedStatsControlFlowException("Could not request videos.");
+		}
+		Map<String, String> answer = new HashMap<String, String>();
+		int failed = 0;
+		try{
+			JSONObject locations = new JSONObject((String)result);
+			for(Map.Entry<String, String> e : links.entrySet()){
+				if(locations.isNull(e.getKey())){
+					failed++;
+					continue;
+				}
+				String location = locations.getString(e.getKey());
+				try{
+					new URL(location);
+				} catch(MalformedURLException ex){
+					continue;
+				}
+				answer.put(e.getValue(), location);
+				if(recording != null){
+					recording.put(e.getValue(), new JSONArray().put(location).toString());
+				}
+			}
+		} catch(JSONException e){
+			throw new AdvancedStatsControlFlowException("Could not parse videos.", e);
+		}
+		if(failed > 0){
+			logging.warning(failed + " of " + links.size() + " video requests of game " + gameId + " returned no location.");
+		}
+		return answer;
+	}
+
+	/**Returns a list of games corresponding to the provided GameInfos.<br>
+	The order of the list corresponds to the iteration order of the provided Collection.<br>
+	Pages are rendered on the calling thread, while the play-by-play data of games which have already been rendered is parsed in the background.
+	@throws NullPointerException if any paramter is null.
+	@throws IOException if an IO error occurs.
+	@param gi The GameInfos.
+	@return a list of games corresponding to the provided GameInfos.
+	*/
+	@Override
+	public List<Game> getGames(Collection<GameInfo> gis) throws IOException {
+		List<GameInfo> infos = new ArrayList<GameInfo>(gis);
+		List<CompletableFuture<Game>> futures = new ArrayList<CompletableFuture<Game>>(infos.size());
+		for(GameInfo gi : infos){
+			futures.add(startGame(gi));
+		}
+		return joinGames(infos, futures);
+	}
+
+	/**Returns a list of games corresponding to the provided GameInfos, rendering pages concurrently using the given Executor.<br>
+	The order of the list corresponds to the iteration order of the provided Collection.<br>
+	Play-by-play data is parsed in the background, so the Executor's threads can move on to the next game as soon as its pages are rendered.
+	@throws NullPointerException if any paramter is null.
+	@throws IOException if an IO error occurs.
+	@param gi The GameInfos.
+	@param executor The Executor to render pages on.
+	@return a list of games corresponding to the provided GameInfos.
+	*/
+	@Override
+	public List<Game> getGames(Collection<GameInfo> gis, Executor executor) throws IOException {
+		List<GameInfo> infos = new ArrayList<GameInfo>(gis);
+		return joinGames(infos, Concurrency.map(infos, this::startGame, executor));
+	}
+
+	//Waits for each game to be parsed, and returns the games in order.
+	private static List<Game> joinGames(List<GameInfo> infos, List<CompletableFuture<Game>> futures){
+		List<Game> answer = new ArrayList<Game>(futures.size());
+		for(int i = 0; i < futures.size(); i++){
+			answer.add(joinGame(infos.get(i), futures.get(i)));
+		}
+		return answer;
+	}
+
+	//Waits for the game to be parsed, and returns it, or null if it could not be parsed.
+	private static Game joinGame(GameInfo gi, CompletableFuture<Game> future){
+		try{
+			return future.join();
+		} catch(CompletionException e){
+			if(e.getCause() instanceof AdvancedStatsControlFlowException){
+				logging.error("Could not get play-by-play data for " + gi.toString());
+				return null;
+			} else if(e.getCause() instanceof RuntimeException){
+				throw (RuntimeException)e.getCause();
+			} else if(e.getCause() instanceof Error){
+				throw (Error)e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	//Renders any pages needed to get the game on the calling thread, and returns a future which completes once the game's plays have been parsed.
+	//The future completes with null if the game could not be obtained.
+	private CompletableFuture<Game> startGame(GameInfo gi) throws IOException {
 		try{
 			return getGameInternal(gi);
 		} catch(AdvancedStatsControlFlowException e){
 			logging.error("Could not get play-by-play data for " + gi.toString());
-			return null;
+			return CompletableFuture.completedFuture(null);
 		}
 	}
 
-	private Game getGameInternal(GameInfo gi) throws IOException {
+	private CompletableFuture<Game> getGameInternal(GameInfo gi) throws IOException {
 		logging.info("====================================================================================");
 		logging.info("Getting play-by-play data for " + gi.toString());
 		if(interning.containsKey(gi)){
 			logging.info("Found cached play-by-play data.");
-			return interning.get(gi);
-		} else if(this.read && this.data.has(gi.toString())){
+			return CompletableFuture.completedFuture(interning.get(gi));
+		}
+		ByteBuffer stored = this.read ? readStore.getEncodedPlays(gi) : null;
+		if(stored != null){
 			logging.info("Found stored play-by-play data.");
-			Game g = new Game(gi, JSONArrayToPlays(this.data.getJSONArray(gi.toString())));
-			interning.put(gi, g);
-			return g;
+			copyForward(gi, stored);
+			return CompletableFuture.supplyAsync(() -> {
+				Game g = new Game(gi, decodePlays(gi, stored));
+				interning.put(gi, g);
+				return g;
+			}, parsingPool);
 		}
 		logging.info("Using browser to get play-by-play data.");
 		String url = getLink(gi);
@@ -301,62 +502,75 @@ public class AdvancedStats implements GameSource {
 			throw new AdvancedStatsControlFlowException("Could not find a game corresponding to the given GameInformation");
 		}
 		logging.info("Parsing players");
-		Element boxScoreBody = renderPage(url, DEFAULT_TIMEOUT, MINIMUM_TIMEOUT, ExpectedConditions.visibilityOfElementLocated(By.className("nba-stat-table"))).body();
-		Elements players = boxScoreBody.getElementsByClass("nba-stat-table__overlay");
-		if(players.isEmpty()) {
+		JSONArray players = renderPage(url, StatsPage.BOX_SCORE);
+		if(players == null || players.length() < 2) {
 			throw new AdvancedStatsControlFlowException("Could not parse players");
 		}
-		LinkedHashSet<Player> awayPlayers = getPlayers(players.get(0).getElementsByClass("player"));
-		LinkedHashSet<Player> homePlayers = getPlayers(players.get(1).getElementsByClass("player"));
+		LinkedHashSet<Player> awayPlayers = getPlayers(players.getJSONArray(0));
+		LinkedHashSet<Player> homePlayers = getPlayers(players.getJSONArray(1));
+		Set<Player> roster = new HashSet<Player>(awayPlayers);
+		roster.addAll(homePlayers);
+		rosters.put(gi, Collections.unmodifiableSet(roster));
 
 		logging.info("Getting play-by-play data");
 		String playByPlayLink = url + "/playbyplay";
-		Element playByPlayBody = renderPage(playByPlayLink, DEFAULT_TIMEOUT, MINIMUM_TIMEOUT, ExpectedConditions.visibilityOfElementLocated(By.className("boxscore-pbp__inner"))).body();
-		Element table = getTable(playByPlayBody);
+		JSONArray table = renderPage(playByPlayLink, StatsPage.PLAY_BY_PLAY);
+		if(table == null) {
+			throw new AdvancedStatsControlFlowException("Could not get play-by-play");
+		}
 		//Yes, this is disgusting. Yes, it is necessary.
 		//Each pair represents all plays committed by each team at a certain time.
 		//The first value is the away team's plays, the second value is the home team's plays.
 		//This is used to classify plays which involve both teams - for example, an and one is a field goal by one team combined with a shooting foul by the other.
 		SortedMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>> rawPlays = getRawPlays(table);
 		
-		logging.info("Parsing play-by-play data");
-		List<AdvancedStatsPlay> plays = parseAllPlays(rawPlays, awayPlayers, homePlayers, gi.awayTeam(), gi.homeTeam());
+		return CompletableFuture.supplyAsync(() -> parseGame(gi, rawPlays, awayPlayers, homePlayers), parsingPool);
+	}
+
+	//Parses the raw plays of the given game, and interns and stores the resulting Game. Does not use the browser, so can be run on any thread.
+	private Game parseGame(GameInfo gi, SortedMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>> rawPlays,
+		Collection<? extends Player> awayPlayers, Collection<? extends Player> homePlayers){
+		logging.info("Parsing play-by-play data for " + gi.toString());
+		long parseStart = System.nanoTime();
+		List<AdvancedStatsPlay> plays = PlayByPlayParser.parseAllPlays(rawPlays, awayPlayers, homePlayers, gi.awayTeam(), gi.homeTeam(),
+			(link, type, time, team, score, players) -> new AdvancedStatsPlay(this, gi, link, type, time, team, score, players));
+		long parseNanos = Math.max(System.nanoTime() - parseStart, 1);
 		
-		logging.info("Finished. Found " + plays.size() + (plays.size() == 1 ? "play." : " plays."));
+		logging.info("Finished parsing " + gi.toString() + ". Found " + plays.size() + (plays.size() == 1 ? " play." : " plays.") 
+			+ " Classified " + PlayByPlayParser.countPlays(rawPlays) + " plays in " + (parseNanos / 1000000) + " ms (" + (PlayByPlayParser.countPlays(rawPlays) * 1000000000L / parseNanos) + " plays per second).");
 		Game result = new Game(gi, plays);
 		interning.put(gi, result);
 		if(this.write){
-			this.data.put(gi.toString(), playsToJSONArray(plays));
+			try{
+				writeStore.putEncodedPlays(gi, encodePlays(plays));
+			} catch(IOException e){
+				logging.error("Could not store play-by-play data for " + gi.toString() + ": " + e.getMessage());
+			}
 		}
 		return result;
 	}
 
-	private Element getTable(Element playByPlayBody){
-		Elements test = playByPlayBody.getElementsByClass("boxscore-pbp__inner");
-		if(test.isEmpty()) {
-			throw new AdvancedStatsControlFlowException("Could not get play-by-play");
-		}
-		Elements test2 = test.get(0).getElementsByAttributeValue("ng-if", "!boxscore.isLive");
-		if(test2.isEmpty()) {
-			throw new AdvancedStatsControlFlowException("Could not get play-by-play");
-		}
-		return test2.get(0);
-	}
-
-	private SortedMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>> getRawPlays(Element table){
+	private SortedMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>> getRawPlays(JSONArray table){
 		SortedMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>> rawPlays = new TreeMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>>();
 		int currentQuarter = 0;
-		for(Element e = table.child(0); e != null; e = e.nextElementSibling()){
-			if(e.text().startsWith("Start of")){
+		for(int i = 0; i < table.length(); i++){
+			JSONObject e = table.getJSONObject(i);
+			if(e.optBoolean("start")){
 				currentQuarter++;
 				continue;
 			}
-			if(e.getElementsByClass("play team htm").get(0).text().startsWith("Go to")) {
+			if(e.isNull("home")) {
+				throw new AdvancedStatsControlFlowException("Could not get play-by-play");
+			}
+			String homePlay = e.getString("home");
+			if(homePlay.startsWith("Go to")) {
 				continue;
 			}
-			String awayPlay = e.getElementsByClass("play team vtm").get(0).text();
-			String time = e.getElementsByClass("time").get(0).text();
-			String homePlay = e.getElementsByClass("play team htm").get(0).text();
+			if(e.isNull("away") || e.isNull("time")) {
+				throw new AdvancedStatsControlFlowException("Could not get play-by-play");
+			}
+			String awayPlay = e.getString("away");
+			String time = e.getString("time");
 			String[] timeSplit = time.split(":");
 			String minutesString = timeSplit[0];
 			String secondsString = timeSplit[1];
@@ -366,53 +580,32 @@ public class AdvancedStats implements GameSource {
 			Pair<List<UnparsedPlay>, List<UnparsedPlay>> playsAtTime = rawPlays.getOrDefault(timestamp, 
 					new Pair<List<UnparsedPlay>, List<UnparsedPlay>>(new ArrayList<UnparsedPlay>(), new ArrayList<UnparsedPlay>()));
 			if(!awayPlay.equals("")){
-				playsAtTime.first().add(new UnparsedPlay(awayPlay, getPlayLink(e.getElementsByClass("play team vtm").get(0))));
+				playsAtTime.first().add(new UnparsedPlay(awayPlay, getPlayLink(e, "awayLink")));
 			}
 			if(!homePlay.equals("")){
-				playsAtTime.second().add(new UnparsedPlay(homePlay, getPlayLink(e.getElementsByClass("play team htm").get(0))));
+				playsAtTime.second().add(new UnparsedPlay(homePlay, getPlayLink(e, "homeLink")));
 			}
 			rawPlays.put(timestamp, playsAtTime);
 		}
 		return rawPlays;
 	}
 
-	private Score addToScore(PlayType pt, Score score){
-		if(pt.hasSupertype(PlayType.THREE_POINTER_MADE)){
-			return score.addToThisTeamsPoints(3);
-		} else if(pt.hasSupertype(PlayType.FIELD_GOAL_MADE)){
-			return score.addToThisTeamsPoints(2);
-		} else if(pt.hasSupertype(PlayType.FREE_THROW_MADE)){
-			return score.addToThisTeamsPoints(1);
-		} else {
-			return score;
-		}
-	}
-
-	private List<AdvancedStatsPlay> JSONArrayToPlays(JSONArray input){
-		List<AdvancedStatsPlay> plays = new ArrayList<AdvancedStatsPlay>();
-		for(Object o : input){
-			if(!(o instanceof JSONObject)){
-				throw new JSONException("Invalid data json object.");
-			}
-			JSONObject jo = (JSONObject)o;
-			plays.add(AdvancedStatsPlay.fromJSON(this, jo));
-		}
-		return plays;
+	private List<AdvancedStatsPlay> decodePlays(GameInfo gi, ByteBuffer input){
+		return PlayCodec.decode(input, (link, type, time, team, score, players) -> new AdvancedStatsPlay(this, gi, link, type, time, team, score, players));
 	}
 
-	private JSONArray playsToJSONArray(List<AdvancedStatsPlay> input){
-		JSONArray answer = new JSONArray();
+	private byte[] encodePlays(List<AdvancedStatsPlay> input){
+		PlayCodec.Encoder answer = new PlayCodec.Encoder();
 		for(AdvancedStatsPlay asp : input){
-			answer.put(asp.toJSON());
+			answer.add(asp.playLink, asp.getType(), asp.getTimestamp(), asp.getTeam(), asp.getScore(), asp.getPlayers());
 		}
-		return answer;
+		return answer.toBytes();
 	}
 
-	private LinkedHashSet<Player> getPlayers(Elements players){
+	private LinkedHashSet<Player> getPlayers(JSONArray players){
 		LinkedHashSet<Player> answer = new LinkedHashSet<Player>();
-		for(int i = 0; i < players.size(); i++){
-			Element e = players.get(i);
-			String text = e.text();
+		for(int i = 0; i < players.length(); i++){
+			String text = players.getString(i);
 			if(text.equals("Player") || text.equals("Totals:")) {
 				continue;
 			}
@@ -428,128 +621,8 @@ public class AdvancedStats implements GameSource {
 		return answer;
 	}
 
-	private String getPlayLink(Element play){
-		String playLink;
-		try {
-			playLink = "https://stats.nba.com" + play.getElementsByAttribute("href").get(0).attr("href");
-		} catch(IndexOutOfBoundsException e){
-			playLink = null;
-		}
-		return playLink;
-	}
-
-	private List<AdvancedStatsPlay> parseAllPlays(SortedMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>> rawPlays,
-		Collection<? extends Player> awayPlayers, Collection<? extends Player> homePlayers, Team awayTeam, Team homeTeam){
-		List<AdvancedStatsPlay> plays = new ArrayList<AdvancedStatsPlay>();
-		Score score = new Score(0, 0);
-		for(Timestamp t : rawPlays.keySet()){
-			Pair<List<UnparsedPlay>, List<UnparsedPlay>> unparsedPlayGroup = rawPlays.get(t);
-			
-			Collection<AdvancedStatsPlay> pls = parsePlays(unparsedPlayGroup, awayPlayers, homePlayers, awayTeam, t, score);
-			Collection<AdvancedStatsPlay> plsr = parsePlays(unparsedPlayGroup.reversePair(), homePlayers, awayPlayers, homeTeam, t, score.reverseScore());
-			/*if(pls.size() + plsr.size() < unparsedPlayGroup.first().size() + unparsedPlayGroup.second().size()){
-				logging.warning("Match not found for a play in: " + unparsedPlayGroup);
-			}*/
-
-			for(AdvancedStatsPlay p : pls){
-				score = addToScore(p.getType(), score);
-			}
-			for(AdvancedStatsPlay p : plsr){
-				score = addToScore(p.getType(), score.reverseScore()).reverseScore();
-			}
-			
-			plays.addAll(pls);
-			plays.addAll(plsr);
-		}
-		return plays;
-	}
-
-	//Parses all plays contained in unparsedPlayGroup
-	private Collection<AdvancedStatsPlay> parsePlays(Pair<List<UnparsedPlay>, List<UnparsedPlay>> unparsedPlayGroup, 
-				Collection<? extends Player> firstPlayers, Collection<? extends Player> secondPlayers, Team team, Timestamp timestamp, Score score){
-		
-		Collection<AdvancedStatsPlay> newPlays = new ArrayList<AdvancedStatsPlay>();
-		for(int i = 0; i < unparsedPlayGroup.first().size(); i++){
-			
-			Collection<AdvancedStatsPlay> newPlaysForThisUnparsedPlay = new ArrayList<AdvancedStatsPlay>();
-			eachPlayType: for(Pair<String, String> parsingPair : playTypeParsing.keySet()){
-				PlayType playType = playTypeParsing.get(parsingPair);
-				for(Play p : newPlaysForThisUnparsedPlay){
-					if(p.getType().hasSupertype(playType)){
-						continue eachPlayType;
-					}
-				}
-
-				if(i + 1 > unparsedPlayGroup.second().size() && parsingPair.second() != null){
-					continue;
-				}
-				List<String> playerLastNames = new ArrayList<String>();
-				Matcher matcher = Pattern.compile(parsingPair.first()).matcher(unparsedPlayGroup.first().get(i).rawPlay);
-				if(!matcher.matches()){
-					continue;
-				}
-				playerLastNames.addAll(getAllGroups(matcher));
-				if(parsingPair.second() != null){
-					Matcher matcher2 = Pattern.compile(parsingPair.second()).matcher(unparsedPlayGroup.second().get(i).rawPlay);
-					if(!matcher2.matches()){
-						continue;
-					}
-					playerLastNames.addAll(getAllGroups(matcher2));
-				}
-				List<Player> players = new ArrayList<Player>(playerLastNames.size());
-				//logging.info(unparsedPlayGroup.first().get(i).rawPlay);
-				//logging.info(playType.toString());
-				//logging.info(playerLastNames.toString());
-				for(int j = 0; j < playerLastNames.size(); j++){
-					players.add(guessPlayer(playerLastNames.get(j), firstPlayers, secondPlayers));
-				}
-				
-				AdvancedStatsPlay asp = new AdvancedStatsPlay(this, unparsedPlayGroup.first().get(i).playLink, playType, timestamp, team, score, players);
-				newPlays.add(asp);
-				newPlaysForThisUnparsedPlay.add(asp);
-			}
-			if(newPlaysForThisUnparsedPlay.size() == 0){
-				logging.warning("No match found for " + unparsedPlayGroup.first().get(i));
-			}
-		}
-		return newPlays;
-	}
-
-	private Collection<String> getAllGroups(Matcher m){
-		Collection<String> answer = new ArrayList<String>();
-		for(int i = 1; i <= m.groupCount(); i++){
-			answer.add(m.group(i));
-		}
-		return answer;
-	}
-
-	//Preliminary method for guessing a player based on their last name. A more robust method of accomplishing this should be devised, as this has problems.
-	private Player guessPlayer(String lastName, Collection<? extends Player> firstPlayers, Collection<? extends Player> secondPlayers){
-		lastName = lastName.toLowerCase();
-		//System.out.println(lastName);
-		for(Player p : firstPlayers){
-			if(p.lastName().equals(lastName) || p.initialedName().equals(lastName)){
-				return p;
-			}
-		}
-		for(Player p : secondPlayers){
-			if(p.lastName().equals(lastName) || p.initialedName().equals(lastName)){
-				return p;
-			}
-		}
-		for(Player p : firstPlayers){
-			if(p.lastName().contains(lastName) || lastName.contains(p.lastName())){
-				return p;
-			}
-		}
-		for(Player p : secondPlayers){
-			if(p.lastName().contains(lastName) || lastName.contains(p.lastName())){
-				return p;
-			}
-		}
-		logging.warning("Player not found: " + lastName);
-		return Player.get("", "");
-		//throw new AssertionError();
+	private String getPlayLink(JSONObject row, String key){
+		return row.isNull(key) ? null : "https://stats.nba.com" + row.getString(key);
 	}
 
 	/**Returns information for all games played on the given day, or null if an error occurs.
@@ -570,39 +643,50 @@ public class AdvancedStats implements GameSource {
 	private List<GameInfo> getGameInformationOnDayInternal(LocalDate ld) throws IOException {
 		logging.info("====================================================================================");
 		logging.info("Getting game information for " + ld.toString());
-		if(this.read && this.data.has(ld.toString())){
+		JSONArray stored = this.read ? readStore.getDay(ld) : null;
+		if(stored != null){
 			logging.info("Found stored game information.");
-			return JSONArrayToGameInfos(this.data.getJSONArray(ld.toString()));
+			copyForward(ld, stored);
+			List<GameInfo> answer = JSONArrayToGameInfos(stored);
+			knownDays.add(ld);
+			return answer;
 		}
 		logging.info("Using browser to get game information.");
 		String url = "https://stats.nba.com/help/videostatus/#!/" + String.format("%02d", ld.getMonthValue()) + "/" + String.format("%02d", ld.getDayOfMonth()) + "/" + ld.getYear();
-		Document dayPage = renderPage(url, DEFAULT_TIMEOUT, MINIMUM_TIMEOUT, ExpectedConditions.visibilityOfElementLocated(By.className("stats-video-status-page")));
-		Element dayPageBody = dayPage.body();
-		Elements games = dayPageBody.getElementsByAttribute("data-ng-repeat");
+		JSONArray games = renderPage(url, StatsPage.DAY);
+		if(games == null) {
+			throw new AdvancedStatsControlFlowException("Could not get games");
+		}
 		List<GameInfo> answer = new ArrayList<GameInfo>();
-		for(Element e : games){
-			Elements check = e.getElementsByClass("has-video");
-			if(check.size() == 0) {
-				continue;
+		//False if any game on this day could not be resolved. An incomplete day is not stored, so that it is fetched again.
+		boolean complete = true;
+		//Abbreviations learned from this day's games. Only stored if the day is complete.
+		Map<String, Team> learned = new LinkedHashMap<String, Team>();
+		for(int i = 0; i < games.length(); i++){
+			JSONObject e = games.getJSONObject(i);
+			if(e.isNull("text") || e.isNull("link")) {
+				throw new AdvancedStatsControlFlowException("Could not parse game");
 			}
-			String[] teamAbbrs = e.getElementsByClass("text").get(0).text().split(" @ ");
+			String[] teamAbbrs = e.getString("text").split(" @ ");
 			Team homeTeam;
 			Team awayTeam;
 			
-			boolean hasVideo = check.get(0).text().equals("Video Available");
-			String link = "https://stats.nba.com" + e.getElementsByClass("has-boxscore").get(0).getElementsByAttribute("ng-href").get(0).attr("href");
+			boolean hasVideo = e.getString("video").equals("Video Available");
+			String link = "https://stats.nba.com" + e.getString("link");
 			if(teamAbbreviations.containsKey(teamAbbrs[0]) && teamAbbreviations.containsKey(teamAbbrs[1])) {
 				awayTeam = teamAbbreviations.get(teamAbbrs[0]);
 				homeTeam = teamAbbreviations.get(teamAbbrs[1]);
 			} else {
-				Element gamePageBody = renderPage(link, DEFAULT_TIMEOUT, MINIMUM_TIMEOUT, ExpectedConditions.visibilityOfElementLocated(By.className("game-summary-team__name"))).body();
-				Elements teams = gamePageBody.getElementsByClass("game-summary-team__name");
-				if(teams == null) {
+				JSONArray teams = renderPage(link, StatsPage.GAME_SUMMARY);
+				if(teams == null || teams.length() < 2) {
 					logging.error("Could not get game information for a game on " + ld.toString());
+					complete = false;
 					continue;
 				}
-				awayTeam = Team.get(teams.get(0).text());
-				homeTeam = Team.get(teams.get(1).text());
+				awayTeam = Team.get(teams.getString(0));
+				homeTeam = Team.get(teams.getString(1));
+				learnAbbreviation(teamAbbrs[0], awayTeam, learned);
+				learnAbbreviation(teamAbbrs[1], homeTeam, learned);
 			}
 			
 			GameInfo gi = new GameInfo(ld, awayTeam, homeTeam);
@@ -614,13 +698,39 @@ public class AdvancedStats implements GameSource {
 				storeLink(gi, null);
 			}
 		}
+		if(!complete){
+			logging.warning("Some games on " + ld.toString() + " could not be found. The day will not be stored.");
+			return answer;
+		}
+		for(Map.Entry<String, Team> e : learned.entrySet()){
+			storeAbbreviation(e.getKey(), e.getValue());
+		}
 		if(this.write){
-			data.put(ld.toString(), gameInfosToJSONArray(answer));
+			writeStore.putDay(ld, gameInfosToJSONArray(answer));
 		}
+		knownDays.add(ld);
 		logging.info("Got game information for " + ld.toString() + ". Found " + answer.size() + (answer.size() == 1 ? " game." : " games."));
 		return answer;
 	}
 
+	//Copies the given day, read from readStore, into writeStore if they are different stores and writeStore does not have it yet.
+	private void copyForward(LocalDate ld, JSONArray stored) throws IOException {
+		if(this.write && writeStore != readStore && writeStore.getDay(ld) == null){
+			writeStore.putDay(ld, stored);
+		}
+	}
+
+	//Copies the given plays of the given game, read from readStore, and the game's video locations into writeStore if they are different stores and writeStore does not have them yet.
+	private void copyForward(GameInfo gi, ByteBuffer stored) throws IOException {
+		if(!this.write || writeStore == readStore || writeStore.getEncodedPlays(gi) != null){
+			return;
+		}
+		byte[] plays = new byte[stored.remaining()];
+		stored.duplicate().get(plays);
+		writeStore.putEncodedPlays(gi, plays);
+		writeStore.putVideos(gi, readStore.getVideos(gi));
+	}
+
 	private List<GameInfo> JSONArrayToGameInfos(JSONArray input){
 		List<GameInfo> answer = new ArrayList<GameInfo>();
 		for(Object o : input){
@@ -630,16 +740,17 @@ public class AdvancedStats implements GameSource {
 			JSONObject jo = (JSONObject)o;
 			GameInfo gi = GameInfo.fromJSON(jo);
 			answer.add(gi);
-			storeLink(gi, jo.getString("gamelink"));
+			storeLink(gi, jo.isNull("gamelink") ? null : jo.getString("gamelink"));
 		}
 		return answer;
 	}
 
-	private JSONArray gameInfosToJSONArray(List<GameInfo> input) throws IOException {
+	private JSONArray gameInfosToJSONArray(List<GameInfo> input){
 		JSONArray answer = new JSONArray();
 		for(GameInfo gi : input){
 			JSONObject jo = gi.toJSON();
-			jo.put("gamelink", getLink(gi));
+			String link = links.get(gi);
+			jo.put("gamelink", link == null ? JSONObject.NULL : link);
 			answer.put(jo);
 		}
 		return answer;
@@ -649,94 +760,275 @@ public class AdvancedStats implements GameSource {
 		links.put(gi, link);
 	}
 
+	//Remembers that the given abbreviation refers to the given team, so that game pages do not need to be rendered to find it again.
+	//If it was not already known, also adds it to learned, so that it can be stored once its day is complete.
+	private static void learnAbbreviation(String abbreviation, Team team, Map<String, Team> learned){
+		if(teamAbbreviations.putIfAbsent(abbreviation, team) == null){
+			learned.put(abbreviation, team);
+		}
+	}
+
+	//Stores the given abbreviation in writeStore, if write mode is active.
+	private void storeAbbreviation(String abbreviation, Team team){
+		if(!this.write){
+			return;
+		}
+		try{
+			writeStore.putTeamAbbreviation(abbreviation, team.name());
+		} catch(IOException e){
+			logging.error("Could not store the team abbreviation " + abbreviation + ": " + e.getMessage());
+		}
+	}
+
 	//Get a link to the game page from a GameInfo object.
 	private String getLink(GameInfo gi) throws IOException {
 		if(links.containsKey(gi)){
 			return links.get(gi);
 		}
-		this.getGameInformationOnDay(gi.date());
-		if(links.containsKey(gi)){
-			return links.get(gi);
+		if(!knownDays.contains(gi.date())){
+			this.getGameInformationOnDay(gi.date());
+			if(links.containsKey(gi)){
+				return links.get(gi);
+			}
 		}
 		logging.warning("No game found for " + gi.toString());
 		return null;
 	}
 
-	private synchronized void setup(){
-		if(driver == null){
-			driver = browser.getDriver();
+	//Returns the pool of browsers, constructing it if necessary.
+	private synchronized BrowserPool setup() throws IOException {
+		if(pool == null){
+			Browser b = browser();
+			pool = new BrowserPool(b, b.poolSize());
 		}
+		return pool;
 	}
 
-	private synchronized void reset() throws IOException {
-		this.close();
-		this.setup();
+	//Returns the browser specified by the browser config file, reading the file if it has not been read.
+	private static synchronized Browser browser() throws IOException {
+		if(browser == null){
+			browser = Browser.fromJSONObject(new JSONObject(FileUtils.fileToString(Browser.DEFAULT_CONFIG_PATH)));
+		}
+		return browser;
 	}
 
-	//If in write mode, flushes the current JSON data
-	private void flush() throws IOException {
-		if(this.write){
-			FileUtils.write(this.writeLocation, this.data.toString());
+	//Returns the stored video location of the given play, or null if none is stored or read mode is inactive.
+	private String getStoredVideo(AdvancedStatsPlay asp) throws IOException {
+		return this.read ? readStore.getVideo(asp.game, asp.playLink) : null;
+	}
+
+	//If in write mode, stores the video location of each of the given plays, grouped by game.
+	private void putStoredVideos(Map<AdvancedStatsPlay, String> videos) throws IOException {
+		if(!this.write){
+			return;
+		}
+		Map<GameInfo, Map<String, String>> byGame = new HashMap<GameInfo, Map<String, String>>();
+		for(Map.Entry<AdvancedStatsPlay, String> e : videos.entrySet()){
+			byGame.computeIfAbsent(e.getKey().game, k -> new HashMap<String, String>()).put(e.getKey().playLink, e.getValue());
+		}
+		for(Map.Entry<GameInfo, Map<String, String>> e : byGame.entrySet()){
+			writeStore.putVideos(e.getKey(), e.getValue());
 		}
 	}
-	
+
 	/**Closes the resources associated with AdvancedStats, and flushes cached data to the local machine if write mode is active.
 	 * Once this method is called, no other AdvancedStats methods can be called.
 	 @throws IOException if an IO error occurs.
 	 */
 	public synchronized void close() throws IOException {
-		this.flush();
-		if(this.driver != null){
-			try{
-				this.driver.quit();
-			} catch(UnreachableBrowserException e){
-				logging.error("Failed to exit browser. You may have to manually kill the browser processes after the program has finished.");
-			}
-			this.driver = null;
+		logging.info(pageTimings());
+		if(this.writeStore != null){
+			this.writeStore.close();
+		}
+		if(this.readStore != null && this.readStore != this.writeStore){
+			this.readStore.close();
+		}
+		if(this.pool != null){
+			this.pool.close();
+			this.pool = null;
+		}
+	}
+
+	/**Returns a summary of the time spent rendering each type of page, including the time spent waiting for pages to settle.
+	@return a summary of the time spent rendering each type of page.
+	*/
+	public String pageTimings(){
+		StringBuilder answer = new StringBuilder("Page timings:");
+		for(StatsPage page : StatsPage.values()){
+			answer.append("\n\t").append(page).append(": ").append(timings.get(page));
 		}
+		return answer.toString();
 	}
 
-    private Document renderPage(String filePath, long timeout, long minTimeout, com.google.common.base.Function<WebDriver, ?> func) throws IOException {
-        return renderPage(filePath, timeout, minTimeout, func, 0);
+    //Returns the fields extracted from the page at the given URL, or null if the page does not contain them. See StatsPage for their format.
+    //If replaying, the page is read from the archive. If recording, the extracted fields are added to the archive.
+    private JSONArray renderPage(String filePath, StatsPage page) throws IOException {
+        if(replaying != null){
+            return parsePage(replayPage(filePath), page);
+        }
+        String extracted = renderPage(filePath, page, 0);
+        if(recording != null){
+            recording.put(filePath, extracted);
+        }
+        return parsePage(extracted, page);
+    }
+
+    //Parses extracted fields. Archives recorded before fields were extracted in the browser contain whole pages, which are extracted here instead.
+    private static JSONArray parsePage(String contents, StatsPage page){
+        if(contents.equals("null")){
+            return null;
+        }
+        if(contents.startsWith("[")){
+            return new JSONArray(contents);
+        }
+        return page.extract(Jsoup.parse(contents));
+    }
+
+    //Returns the archived page for the given URL after waiting for the simulated latency. Never uses the browser.
+    private String replayPage(String filePath) throws IOException {
+		if(replayLatency > 0){
+			try{
+				Thread.sleep(replayLatency);
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+		}
+		String page = replaying.get(filePath);
+		if(page == null){
+			logging.warning("No archived page for " + filePath);
+			throw new AdvancedStatsControlFlowException("No archived page for " + filePath);
+		}
+		return page;
     }
 
-    private synchronized Document renderPage(String filePath, long timeout, long minTimeout, com.google.common.base.Function<WebDriver, ?> func, int retry) throws IOException {
+    //Renders the page using a browser from the pool, and returns the fields extracted from it as a JSON string. Several threads may render pages at once, up to the size of the pool.
+    private String renderPage(String filePath, StatsPage page, int retry) throws IOException {
 		if(retry >= MAX_RETRIES){
 			throw new AdvancedStatsControlFlowException();
 		}
-		setup();
-		driver.manage().timeouts().pageLoadTimeout(timeout, java.util.concurrent.TimeUnit.MILLISECONDS);
+		BrowserPool browsers = setup();
+		WebDriver driver = browsers.acquire();
+		String extracted;
 		try{
+			long start = System.nanoTime();
+			driver.manage().timeouts().pageLoadTimeout(page.timeout(), java.util.concurrent.TimeUnit.MILLISECONDS);
 			driver.get(filePath);
-			new WebDriverWait(driver, timeout/1000/*Duration.ofMillis(timeout)*/).until(func);
+			new WebDriverWait(driver, page.timeout()/1000/*Duration.ofMillis(timeout)*/).until(ExpectedConditions.visibilityOfElementLocated(page.loaded()));
+			long loaded = System.nanoTime();
+			if(!settle(driver, page) && page.mustSettle()){
+				throw new TimeoutException("Page did not settle within " + SETTLE_TIMEOUT + " ms.");
+			}
+			long settled = System.nanoTime();
+			extracted = extract(driver, page);
+			timings.get(page).add(loaded - start, settled - loaded);
 		} catch(UnreachableBrowserException e){
 			logging.info("Restarting browser.");
-			this.reset();
-			return renderPage(filePath, timeout, minTimeout, func, retry);
+			browsers.discard(driver);
+			return renderPage(filePath, page, retry);
 		} catch(TimeoutException e){
 			logging.info("Timeout exceeded. Restarting browser.");
-        	this.reset();
-        	return renderPage(filePath, timeout, minTimeout, func, retry + 1);
-        }
-        try {
-        	Thread.sleep(minTimeout);
-        } catch(InterruptedException e) {
-        	Thread.currentThread().interrupt();
-        }
-        return Jsoup.parse(driver.getPageSource());
+			browsers.discard(driver);
+			return renderPage(filePath, page, retry + 1);
+		} catch(RuntimeException e){
+			browsers.discard(driver);
+			throw e;
+		}
+		browsers.release(driver);
+		return extracted;
+	}
+
+	//Runs the page's extraction script in the browser. Only the extracted fields are sent back, instead of the whole page.
+	//If the script fails, the whole page is sent back and the fields are extracted from it instead.
+	private static String extract(WebDriver driver, StatsPage page){
+		try{
+			Object extracted = ((JavascriptExecutor)driver).executeScript(page.script());
+			if(extracted instanceof String){
+				return (String)extracted;
+			}
+		} catch(JavascriptException e){
+			logging.warning("Could not extract " + page + " page in the browser: " + e.getMessage());
+		}
+		JSONArray answer = page.extract(Jsoup.parse(driver.getPageSource()));
+		return answer == null ? "null" : answer.toString();
+	}
+
+	//Waits until the page's content stops changing, or until SETTLE_TIMEOUT is exceeded. Returns whether the page settled.
+	//The page has settled once its settle function has returned the same non-null value for page.stablePolls() consecutive polls after the first.
+	private static boolean settle(WebDriver driver, StatsPage page){
+		if(page.settle() == null){
+			return true;
+		}
+		long deadline = System.nanoTime() + (SETTLE_TIMEOUT * 1000000);
+		Object previous = null;
+		int stable = 0;
+		while(true){
+			Object current;
+			try{
+				current = page.settle().apply(driver);
+			} catch(StaleElementReferenceException e){
+				current = null;
+			}
+			if(current != null && (page.stablePolls() == 0 || current.equals(previous))){
+				stable++;
+			} else {
+				stable = 0;
+			}
+			if(current != null && stable >= page.stablePolls()){
+				return true;
+			}
+			if(System.nanoTime() >= deadline){
+				logging.info("Page did not settle within " + SETTLE_TIMEOUT + " ms." + (page.mustSettle() ? "" : " Continuing."));
+				return false;
+			}
+			previous = current;
+			try{
+				Thread.sleep(SETTLE_POLL_INTERVAL);
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+	}
+
+	//Class which accumulates the time spent rendering pages of one type. This class is thread safe.
+	private static class PageTimings {
+		private final LongAdder pages = new LongAdder();
+		private final LongAdder loadNanos = new LongAdder();
+		private final LongAdder settleNanos = new LongAdder();
+
+		//Records a page which took loadNanos to load, and settleNanos to settle once loaded.
+		private void add(long loadNanos, long settleNanos){
+			this.pages.increment();
+			this.loadNanos.add(loadNanos);
+			this.settleNanos.add(settleNanos);
+		}
+
+		@Override
+		public String toString(){
+			long n = pages.sum();
+			if(n == 0){
+				return "none rendered";
+			}
+			long settleMillis = settleNanos.sum() / 1000000;
+			return n + (n == 1 ? " page" : " pages") + ", average load " + (loadNanos.sum() / 1000000 / n) + " ms, average settle " + (settleMillis / n) + " ms, "
+				+ ((FIXED_WAIT * n) - settleMillis) + " ms saved compared to a fixed " + FIXED_WAIT + " ms wait";
+		}
 	}
 
 	private static class AdvancedStatsPlay extends Play {
 		private final String playLink;
 		private final AdvancedStats source;
+		//The game this play is from. Video locations are stored with the game.
+		private final GameInfo game;
+		//v and videoLink are guarded by this, since plays are resolved in batches by getVideos on one thread and one at a time by getVideo on others.
 		private Video v;
 		private String videoLink;
 
-		private AdvancedStatsPlay(AdvancedStats stats, String link, PlayType playType, Timestamp timestamp, Team team, Score score, List<? extends Player> player){
+		private AdvancedStatsPlay(AdvancedStats stats, GameInfo game, String link, PlayType playType, Timestamp timestamp, Team team, Score score, List<? extends Player> player){
 			super(playType, timestamp, team, score, player);
 			this.source = stats;
+			this.game = game;
 			this.playLink = link;
-			this.videoLink = videoLink;
 		}
 
 		//RI: true
@@ -755,7 +1047,18 @@ public class AdvancedStats implements GameSource {
 			}
 		}
 
-		private Video getVideoInternal() throws IOException {
+		//Returns true if this play's video has been resolved.
+		private synchronized boolean hasVideo(){
+			return v != null;
+		}
+
+		//Sets this play's video to the video at the given location.
+		private synchronized void setVideo(String videoLink){
+			this.videoLink = videoLink;
+			this.v = new InternetVideo(videoLink);
+		}
+
+		private synchronized Video getVideoInternal() throws IOException {
 			logging.info("====================================================================================");
 			logging.info("Resolving video for " + this.toString());
 			if(playLink == null){
@@ -766,69 +1069,22 @@ public class AdvancedStats implements GameSource {
 				logging.info("Found cached video.");
 				return v;
 			}
-			if(this.source.read && this.source.data.has(this.playLink)){
+			String stored = this.source.getStoredVideo(this);
+			if(stored != null){
 				logging.info("Found stored video location.");
-				v = new InternetVideo(this.source.data.getString(this.playLink));
+				v = new InternetVideo(stored);
 				return v;
 			}
 			logging.info("Using browser to resolve video.");
-			Element playBody = source.renderPage(this.playLink, VIDEO_TIMEOUT, MINIMUM_TIMEOUT, ExpectedConditions.visibilityOfElementLocated(By.id("stats-videojs-player_html5_api"))).body();
-			try {
-				this.videoLink = playBody.getElementById("stats-videojs-player_html5_api").attr("src");
-				v = new InternetVideo(this.videoLink);
-				if(this.source.write){
-					this.source.data.put(this.playLink, this.videoLink);
-				}
-				logging.info("Finished resolving this video.");
-				return v;
-			} catch(NullPointerException e) {
+			JSONArray video = source.renderPage(this.playLink, StatsPage.VIDEO);
+			if(video == null || video.isNull(0)) {
 				throw new AdvancedStatsControlFlowException();
 			}
-		}
-
-		private JSONObject toJSON(){
-			JSONObject answer = new JSONObject();
-			answer.put("playlink", this.playLink == null ? JSONObject.NULL : this.playLink);
-			answer.put("type", this.getType().toString());
-			answer.put("time", this.getTimestamp().toString());
-			answer.put("team", this.getTeam().toString());
-			answer.put("score", this.getScore().toString());
-			JSONArray players = new JSONArray();
-			for(Player p : this.getPlayers()){
-				players.put(p.toString());
-			}
-			answer.put("players", players);
-			return answer;
-		}
-
-		private static AdvancedStatsPlay fromJSON(AdvancedStats stats, JSONObject input){
-			String playLink = input.get("playlink") == JSONObject.NULL ? null : input.getString("playlink");
-			PlayType type = PlayType.parse(input.getString("type"));
-			Timestamp timestamp = Timestamp.parse(input.getString("time"));
-			Team team = Team.get(input.getString("team"));
-			Score score = Score.parse(input.getString("score"));
-			JSONArray arr = input.getJSONArray("players");
-			List<Player> players = new ArrayList<Player>(arr.length());
-			for(int i = 0; i < arr.length(); i++){
-				players.add(Player.parse(arr.getString(i)));
-			}
-			return new AdvancedStatsPlay(stats, playLink, type, timestamp, team, score, players);
-		}
-	}
-
-	//Class used to hold a String representing an unparsed play, as well as a video link to the play.
-	private static class UnparsedPlay {
-		private final String rawPlay;
-		private final String playLink;
-
-		private UnparsedPlay(String s, String v){
-			rawPlay = s;
-			playLink = v;
-		}
-		
-		@Override
-		public String toString() {
-			return rawPlay;
+			this.videoLink = video.getString(0);
+			v = new InternetVideo(this.videoLink);
+			this.source.putStoredVideos(Map.of(this, this.videoLink));
+			logging.info("Finished resolving this video.");
+			return v;
 		}
 	}
 
@@ -19,12 +19,13 @@ Current options include which browser to use, whether to suppress output, whethe
 This program currently supports three browsers: Mozilla Firefox, Google Chrome, and Microsoft Edge.<br>
 Note that Edge supports neither headless mode nor output suppression.<br>
 Browser settings can be saved in a JSON config file.<br>
-This JSON file can have up to four keys, two of which are mandatory.<br>
+This JSON file can have up to five keys, two of which are mandatory.<br>
 <ul>
 	<li>name - Mandatory key. Name of the browser to use. Must be either "firefox", "chrome", or "edge", case insensitive.</li>
 	<li>headless - Boolean indicating whether the browser should be run in headless mode. Defaults to true.</li>
 	<li>suppressOutput - Boolean indicating whether to suppress driver output. Defaults to true.</li>
 	<li>executable - Mandatory key. Absolute path to driver executable, including the filename.</li>
+	<li>poolSize - Integer indicating the maximum number of browser instances that may be run at once. Defaults to 1.</li>
 </ul>
 */
 public class Browser {
@@ -34,22 +35,35 @@ public class Browser {
 	private final boolean headless;
 	private final boolean suppressOutput;
 	private final String executablePath;
+	private final int poolSize;
 
-	/**Constructs a Broswer with the given options.
+	/**Constructs a Broswer with the given options and a pool size of 1.
 	@throws NullPointerException if any parameter is null.
 	@throws IllegalArgumentException if the browser name is unsupported.
 	*/
 	public Browser(String browserName, boolean headless, boolean suppressOutput, String executablePath){
+		this(browserName, headless, suppressOutput, executablePath, 1);
+	}
+
+	/**Constructs a Broswer with the given options.
+	@throws NullPointerException if any parameter is null.
+	@throws IllegalArgumentException if the browser name is unsupported, or if poolSize is less than 1.
+	*/
+	public Browser(String browserName, boolean headless, boolean suppressOutput, String executablePath, int poolSize){
 		if(browserName == null || executablePath == null){
 			throw new NullPointerException();
 		}
 		if(!(browserName.toLowerCase().equals("firefox") || browserName.toLowerCase().equals("chrome") || browserName.toLowerCase().equals("edge"))){
 			throw new IllegalArgumentException("Unrecognized or unsupported browser: " + browserName);
 		}
+		if(poolSize < 1){
+			throw new IllegalArgumentException("Pool size was less than 1: " + poolSize);
+		}
 		this.browserName = browserName.toLowerCase();
 		this.headless = browserName.toLowerCase().equals("edge") ? false : headless;
 		this.suppressOutput = browserName.toLowerCase().equals("edge") ? false : suppressOutput;
 		this.executablePath = executablePath;
+		this.poolSize = poolSize;
 	}
 
 	/**Returns a newly constructed WebDriver object adhering to the options this Browser was constructed with.
@@ -115,10 +129,18 @@ public class Browser {
 	public String executablePath() {
 		return this.executablePath;
 	}
+	
+	/**Returns the maximum number of browser instances that may be run at once.
+	 * @return the maximum number of browser instances that may be run at once.
+	 */
+	public int poolSize() {
+		return this.poolSize;
+	}
 
 	/**Returns a Browser object constructed from the given JSON object according to the specification above.
 	@throws NullPointerException if any parameter is null.
 	@throws JSONException if any required keys are missing.
+	@throws IllegalArgumentException if the browser name is unsupported, or if poolSize is less than 1.
 	@return a Browser object constructed from the given JSON object according to the specification above.
 	*/
 	public static Browser fromJSONObject(JSONObject input){
@@ -126,14 +148,15 @@ public class Browser {
 		boolean headless = input.optBoolean("headless", true);
 		boolean suppressOutput = input.optBoolean("suppressOutput", true);
 		String executablePath = input.getString("executable");
-		return new Browser(browserName, headless, suppressOutput, executablePath);
+		int poolSize = input.optInt("poolSize", 1);
+		return new Browser(browserName, headless, suppressOutput, executablePath, poolSize);
 	}
 	
 	/**Returns a hash code for this Browser.
 	 * @return a hash code for this Browser.
 	 */
 	public int hashCode() {
-		return this.browserName.hashCode() + (this.headless ? 1 : 0) + (this.suppressOutput ? 1 : 0) + this.executablePath.hashCode();
+		return this.browserName.hashCode() + (this.headless ? 1 : 0) + (this.suppressOutput ? 1 : 0) + this.executablePath.hashCode() + this.poolSize;
 	}
 	
 	/**Returns a boolean indicating whether this Browser is equal to the provided object.<br>
@@ -152,7 +175,7 @@ public class Browser {
 			return false;
 		}
 		Browser b = (Browser)o;
-		return this.browserName.equals(b.browserName()) && this.headless == b.headless && this.suppressOutput == b.suppressOutput && this.executablePath.equals(b.executablePath);
+		return this.browserName.equals(b.browserName()) && this.headless == b.headless && this.suppressOutput == b.suppressOutput && this.executablePath.equals(b.executablePath) && this.poolSize == b.poolSize;
 	}
 	
 	/**Returns a String representation of this Browser.
@@ -0,0 +1,145 @@
+package thybulle.highlights;
+
+import static thybulle.highlights.HighlightsLogger.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openqa.selenium.*;
+import org.openqa.selenium.remote.*;
+
+/**Class representing a bounded pool of WebDrivers constructed from a Browser.<br>
+At most size WebDrivers exist at any time. WebDrivers are constructed lazily, the first time they are needed.<br>
+A thread which wants to use a WebDriver must acquire one, and must then either release it back into the pool when it is done,
+or discard it if the WebDriver is no longer usable.<br>
+Closing the pool quits the WebDrivers which are not in use. WebDrivers which are in use when the pool is closed are quit when they are released or discarded.<br>
+This class is thread safe.
+@author Owen Kulik
+*/
+
+class BrowserPool implements Closeable {
+	private final Browser browser;
+	private final int size;
+	private final Semaphore permits;
+	private final BlockingQueue<WebDriver> idle = new LinkedBlockingQueue<WebDriver>();
+	private final Set<WebDriver> all = ConcurrentHashMap.newKeySet();
+	//Guarded by this.
+	private boolean closed = false;
+
+	//RI: all.size() <= size, idle is a subset of all, permits has at most size permits. If closed, idle is empty.
+	//AF: Each permit represents a WebDriver which may be handed out. idle holds WebDrivers which are constructed but not in use.
+	//	The WebDrivers in all but not idle are in use.
+
+	/**Constructs a BrowserPool with at most size WebDrivers, constructed from the given Browser.
+	@param browser The Browser used to construct WebDrivers.
+	@param size The maximum number of WebDrivers.
+	@throws NullPointerException if browser is null.
+	@throws IllegalArgumentException if size is less than 1.
+	*/
+	BrowserPool(Browser browser, int size){
+		if(browser == null){
+			throw new NullPointerException();
+		}
+		if(size < 1){
+			throw new IllegalArgumentException("Pool size was less than 1.");
+		}
+		this.browser = browser;
+		this.size = size;
+		this.permits = new Semaphore(size, true);
+	}
+
+	/**Returns a WebDriver for the exclusive use of the calling thread, blocking until one is available.
+	@throws InterruptedIOException if the thread is interrupted while waiting.
+	@throws IllegalStateException if this pool has been closed.
+	@return a WebDriver for the exclusive use of the calling thread.
+	*/
+	WebDriver acquire() throws InterruptedIOException {
+		try{
+			permits.acquire();
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a browser.");
+		}
+		synchronized(this){
+			if(closed){
+				permits.release();
+				throw new IllegalStateException("Browser pool was closed.");
+			}
+			WebDriver driver = idle.poll();
+			if(driver != null){
+				return driver;
+			}
+		}
+		WebDriver driver;
+		try{
+			driver = browser.getDriver();
+		} catch(RuntimeException e){
+			permits.release();
+			throw e;
+		}
+		synchronized(this){
+			if(!closed){
+				all.add(driver);
+				return driver;
+			}
+		}
+		quit(driver);
+		permits.release();
+		throw new IllegalStateException("Browser pool was closed.");
+	}
+
+	/**Returns the given WebDriver to the pool so that other threads may use it. If the pool has been closed, the WebDriver is quit instead.
+	@param driver A WebDriver previously returned by acquire.
+	*/
+	void release(WebDriver driver){
+		synchronized(this){
+			if(!closed){
+				idle.add(driver);
+				permits.release();
+				return;
+			}
+		}
+		discard(driver);
+	}
+
+	/**Quits the given WebDriver and removes it from the pool. A new WebDriver will be constructed in its place when one is needed.
+	@param driver A WebDriver previously returned by acquire.
+	*/
+	void discard(WebDriver driver){
+		all.remove(driver);
+		quit(driver);
+		permits.release();
+	}
+
+	/**Returns the maximum number of WebDrivers in this pool.
+	@return the maximum number of WebDrivers in this pool.
+	*/
+	int size(){
+		return size;
+	}
+
+	/**Closes this pool, and quits the WebDrivers in it which are not in use.
+	The WebDrivers which are in use are quit when they are released or discarded, so threads using them are not interrupted.
+	*/
+	public void close(){
+		List<WebDriver> unused = new ArrayList<WebDriver>();
+		synchronized(this){
+			closed = true;
+			idle.drainTo(unused);
+			all.removeAll(unused);
+		}
+		for(WebDriver driver : unused){
+			quit(driver);
+		}
+	}
+
+	//Quits the given WebDriver, logging an error if it could not be reached.
+	private static void quit(WebDriver driver){
+		try{
+			driver.quit();
+		} catch(UnreachableBrowserException e){
+			logging.error("Failed to exit browser. You may have to manually kill the browser processes after the program has finished.");
+		}
+	}
+}
@@ -0,0 +1,1396 @@
+package thybulle.highlights;
+
+import static thybulle.highlights.HighlightsLogger.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.json.*;
+
+/**Class representing a directory of locally stored play-by-play data, partitioned by season and date.<br>
+The directory contains a small index, index.json, listing every season which has stored data, along with the team abbreviations learned from game pages.
+The data itself is stored in a directory for each day, inside a directory for each season, for example "2019-20/2019-10-22".
+Each season's directory contains season.json, which lists every day and game in the season which has stored data,
+and postings.bin, a PlayIndex of the plays of the season's games, which is updated whenever plays are stored and can be read without reading any plays.<br>
+Each day's directory contains day.json, which holds the information of the games played on that day,
+and for each game with stored data, a JSON file holding the video locations of its plays and a file holding its plays, encoded by PlayCodec.<br>
+Only the index is read when a store is opened, so opening a store takes the same time no matter how much data is stored.
+A season's index is read the first time a date in the season is used, and a partition is read the first time data in it is requested,
+so a query over a few days only reads the files of those days. Files of plays are memory-mapped rather than read.
+At most CACHE_SIZE partitions of each kind are held in memory. When there are more, the least recently used partitions which have not been changed are discarded,
+so the memory used is proportional to the number of partitions being used, not the number which have been used.
+Stores written by older versions of this program hold plays as JSON in each game's JSON file. These are encoded when they are first read, and rewritten in the new format when the store is flushed.
+Every change is appended to a journal, journal.log, as soon as it is made, so that data is not lost if the program crashes or is killed before the store is flushed.
+To avoid waiting for the disk after every change, the journal is synced to disk in batches: after SYNC_BATCH changes, or SYNC_INTERVAL milliseconds after a change, whichever comes first.
+A crash may therefore lose the last few changes, but never corrupts the store.<br>
+Changed partitions are kept in memory until the store is flushed, when only those partitions and the index are rewritten, and the journal is emptied.
+This is also done automatically once the journal exceeds COMPACT_THRESHOLD bytes, so the time taken to flush is proportional to the data changed since the last flush.
+When a store is opened, any changes in its journal are replayed and then flushed.<br>
+Stores may be compressed, in which case every file other than the index and the journal is compressed by StoreCompression,
+using a dictionary trained from the store's data which is kept in the store's directory. Compression is turned on or off by the compress and decompress methods.<br>
+Each file is written to a temporary file, synced and then moved into place, so a file is always either entirely old or entirely new.
+Each journal record has a checksum, so a record which was only partially written before a crash is detected and ignored.<br>
+Several processes may have the same store open at once. They share the journal, and take a lock on the file store.lock while using the store:
+a shared lock to read from the store, and an exclusive lock to append to the journal or write the store's files.
+Before each use of the store, a process applies the records other processes have appended to the journal since it last read it,
+so data stored by one process can be read by the others as soon as it is stored.
+The journal begins with a line giving its generation, which changes whenever the journal is emptied.
+When a process finds that another process has emptied the journal, every change it knows of has been written to the store's files, so it discards what it has read and reads the index again.<br>
+This class is thread safe. Within one process, only one DataStore should be open on a directory at once.
+@author Owen Kulik
+*/
+
+public class DataStore implements Closeable {
+	private final Path directory;
+
+	//The index. Every season with stored data, and the learned team abbreviations.
+	private final SortedSet<String> seasons = new TreeSet<String>();
+	private final SortedMap<String, String> abbreviations = new TreeMap<String, String>();
+	//The dictionary new files are compressed with, or null if the store is not compressed.
+	private byte[] dictionary = null;
+	private boolean indexChanged = false;
+	//Dictionaries which have been read, by id. Files may have been compressed with a dictionary other than the current one.
+	private final Map<Integer, byte[]> dictionaries = new HashMap<Integer, byte[]>();
+
+	//The season indices which have been read. Every day and game in those seasons with a partition file.
+	private final Set<String> loadedSeasons = new HashSet<String>();
+	private final Set<String> changedSeasons = new HashSet<String>();
+	private final SortedSet<LocalDate> days = new TreeSet<LocalDate>();
+	private final SortedMap<LocalDate, Set<GameInfo>> games = new TreeMap<LocalDate, Set<GameInfo>>();
+
+	//Partitions which have been read or written recently, or changed since the store was last flushed.
+	private final Set<LocalDate> changedDays = new HashSet<LocalDate>();
+	private final Set<GameInfo> changedGames = new HashSet<GameInfo>();
+	private final Set<GameInfo> changedPlays = new HashSet<GameInfo>();
+	private final Map<LocalDate, JSONArray> loadedDays = cache(changedDays);
+	private final Map<GameInfo, JSONObject> loadedGames = cache(changedGames);
+	//Encoded plays of each game, in the format of PlayCodec. Stored separately from the game's partition so they can be memory-mapped.
+	private final Map<GameInfo, ByteBuffer> loadedPlays = cache(changedPlays);
+
+	private final FileChannel journal;
+	//The generation of the journal this store last read, or NO_GENERATION if the journal had no generation.
+	private long generation = NO_GENERATION;
+	//The position up to which this store has applied the records in the journal.
+	private long journalPosition = -1;
+	//Number of records appended to the journal since it was last synced.
+	private int unsynced = 0;
+	private final FileChannel lockFile;
+	//The lock held on lockFile, or null if none is held. Locks are reentrant, so lockDepth counts the number of times the lock has been taken.
+	private FileLock lock = null;
+	private int lockDepth = 0;
+	//Syncs the journal SYNC_INTERVAL milliseconds after a change.
+	private final ScheduledExecutorService syncer;
+	private boolean closed = false;
+
+	public static final String INDEX_FILE = "index.json";
+	public static final String SEASON_FILE = "season.json";
+	public static final String DAY_FILE = "day.json";
+	public static final String PLAYS_EXTENSION = ".plays";
+	public static final String POSTINGS_FILE = "postings.bin";
+	public static final String JOURNAL_FILE = "journal.log";
+	public static final String LOCK_FILE = "store.lock";
+	public static final String DICTIONARY_PREFIX = "dictionary-";
+	public static final String DICTIONARY_EXTENSION = ".bin";
+	public static final int SYNC_BATCH = 64;
+	public static final long SYNC_INTERVAL = 1000;
+	public static final long COMPACT_THRESHOLD = 16 * 1024 * 1024;
+	public static final int CACHE_SIZE = 512;
+	//Maximum number of bytes of a file used as a sample when training a dictionary.
+	private static final int MAX_SAMPLE = 4096;
+	private static final int VERSION = 3;
+	private static final String GENERATION_PREFIX = "generation ";
+	//Length of the journal's first line: the prefix, a 16 digit hexadecimal generation, and a newline.
+	private static final int GENERATION_LENGTH = GENERATION_PREFIX.length() + 17;
+	private static final long NO_GENERATION = -1;
+
+	//RI: directory, journal, lockFile, syncer and all collections are non-null. loadedSeasons and changedSeasons are subsets of seasons.
+	//Every element of days and key of games is in a season in loadedSeasons, and changedSeasons is a subset of loadedSeasons.
+	//Every key of loadedDays is in days, and every key of loadedGames is in games.
+	//changedDays is a subset of the keys of loadedDays, changedGames is a subset of the keys of loadedGames, and changedPlays is a subset of the keys of loadedPlays.
+	//Every key of loadedPlays is in games. Every value of loadedPlays is read only and has a position of 0.
+	//Every change in changedDays, changedGames, changedPlays and the index since the last flush has a record in the journal,
+	//except for partitions written by older versions of this program which have been converted to the current format.
+	//journalPosition is -1 until the journal is first read, and is then the position just after a newline or the generation line, or 0.
+	//lock is non-null if and only if lockDepth is positive.
+	//AF: Represents the data in directory, with the changes in changedSeasons, changedDays, changedGames, changedPlays and indexChanged not yet written to their files.
+
+	private DataStore(Path directory) throws IOException {
+		this.directory = directory;
+		this.journal = FileChannel.open(directory.resolve(JOURNAL_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.lockFile = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "DataStore journal sync");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**Opens the store in the given directory, creating the directory if it does not exist. Only the index is read.<br>
+	If the journal contains any changes, they are applied and written to the store's files.
+	@param location Path to the directory.
+	@throws NullPointerException if location is null.
+	@throws IOException if an IO error occurs, if the index is malformed, or if location is a file, such as a data file written by an older version of this program.
+	@return the store in the given directory.
+	*/
+	public static DataStore open(String location) throws IOException {
+		Path directory = Path.of(location);
+		if(Files.isRegularFile(directory)){
+			throw new IOException(location + " is a file, not a data store. If it is a data file from an older version of this program, convert it with: StoreTool migrate "
+				+ location + " <store directory>");
+		}
+		Files.createDirectories(directory);
+		DataStore answer = new DataStore(directory);
+		try{
+			answer.lock(false);
+			try{
+				answer.catchUp();
+				if(answer.generation == NO_GENERATION || answer.journalPosition > GENERATION_LENGTH){
+					answer.flush();
+				}
+			} finally {
+				answer.unlock();
+			}
+		} catch(IOException | RuntimeException e){
+			answer.journal.close();
+			answer.lockFile.close();
+			answer.syncer.shutdownNow();
+			throw e;
+		}
+		return answer;
+	}
+
+	//Takes the store's lock, shared or exclusive, unless this store already holds it.
+	private void lock(boolean shared) throws IOException {
+		if(closed){
+			throw new IllegalStateException("The data store was closed.");
+		}
+		if(lockDepth == 0){
+			lock = lockFile.lock(0, Long.MAX_VALUE, shared);
+		} else if(!shared && lock.isShared()){
+			//Every method which writes takes an exclusive lock before doing anything else, so this should never happen.
+			throw new AssertionError("A shared lock cannot be made exclusive.");
+		}
+		lockDepth++;
+	}
+
+	private void unlock() throws IOException {
+		lockDepth--;
+		if(lockDepth == 0){
+			lock.release();
+			lock = null;
+		}
+	}
+
+	//Returns the generation of the journal, or NO_GENERATION if it does not begin with a generation line. The lock must be held.
+	private long readGeneration() throws IOException {
+		ByteBuffer line = ByteBuffer.allocate(GENERATION_LENGTH);
+		while(line.hasRemaining() && journal.read(line, line.position()) > 0);
+		String s = new String(line.array(), 0, line.position(), StandardCharsets.UTF_8);
+		if(line.hasRemaining() || !s.startsWith(GENERATION_PREFIX) || !s.endsWith("\n")){
+			return NO_GENERATION;
+		}
+		try{
+			return Long.parseUnsignedLong(s.substring(GENERATION_PREFIX.length(), s.length() - 1), 16);
+		} catch(NumberFormatException e){
+			return NO_GENERATION;
+		}
+	}
+
+	//Applies the records appended to the journal since this store last read it. The lock must be held.
+	//If the journal has been emptied by another process since this store last read it, everything read from the store is discarded and the index is read again first.
+	private void catchUp() throws IOException {
+		long current = readGeneration();
+		if(current != generation || journalPosition == -1){
+			reset();
+			generation = current;
+			journalPosition = current == NO_GENERATION ? 0 : GENERATION_LENGTH;
+		}
+		long size = journal.size();
+		if(size <= journalPosition){
+			return;
+		}
+		ByteBuffer contents = ByteBuffer.allocate((int)Math.min(size - journalPosition, Integer.MAX_VALUE));
+		while(contents.hasRemaining() && journal.read(contents, journalPosition + contents.position()) > 0);
+		byte[] bytes = contents.array();
+		int records = 0;
+		int start = 0;
+		for(int end = 0; end < contents.position(); end++){
+			if(bytes[end] != '\n'){
+				continue;
+			}
+			if(replayRecord(new String(bytes, start, end - start, StandardCharsets.UTF_8))){
+				records++;
+			} else {
+				//A process was killed while appending this record.
+				logging.warning("Ignoring " + (end - start) + " bytes of incomplete records in " + directory.resolve(JOURNAL_FILE));
+			}
+			start = end + 1;
+		}
+		//The rest of the journal, if any, is an incomplete record.
+		journalPosition += start;
+		if(records > 0){
+			logging.info("Applied " + records + (records == 1 ? " change" : " changes") + " from " + directory.resolve(JOURNAL_FILE));
+		}
+	}
+
+	//Discards everything read from the store, and reads the index again.
+	private void reset() throws IOException {
+		seasons.clear();
+		abbreviations.clear();
+		dictionary = null;
+		dictionaries.clear();
+		indexChanged = false;
+		loadedSeasons.clear();
+		changedSeasons.clear();
+		days.clear();
+		games.clear();
+		changedDays.clear();
+		changedGames.clear();
+		changedPlays.clear();
+		loadedDays.clear();
+		loadedGames.clear();
+		loadedPlays.clear();
+		Path index = directory.resolve(INDEX_FILE);
+		if(Files.exists(index)){
+			try{
+				readIndex(new JSONObject(Files.readString(index, StandardCharsets.UTF_8)));
+			} catch(JSONException | IllegalArgumentException | DateTimeException e){
+				throw new IOException("Malformed data store index: " + index, e);
+			}
+		}
+	}
+
+	//Applies the given journal record. Returns false if the record is incomplete or corrupt.
+	private boolean replayRecord(String line) throws IOException {
+		int space = line.indexOf(' ');
+		if(space == -1){
+			return false;
+		}
+		String json = line.substring(space + 1);
+		try{
+			if(Long.parseLong(line.substring(0, space), 16) != checksum(json.getBytes(StandardCharsets.UTF_8))){
+				return false;
+			}
+			JSONObject record = new JSONObject(json);
+			switch(record.getString("op")){
+				case "day":
+					applyDay(LocalDate.parse(record.getString("date")), record.getJSONArray("value"));
+					return true;
+				case "plays":
+					Object plays = record.get("value");
+					//Journals written by older versions of this program hold plays as JSON.
+					byte[] encoded = plays instanceof JSONArray ? PlayCodec.fromJSON((JSONArray)plays) : Base64.getDecoder().decode(record.getString("value"));
+					applyPlays(GameInfo.fromJSON(record.getJSONObject("game")), encoded);
+					return true;
+				case "videos":
+					JSONObject value = record.getJSONObject("value");
+					Map<String, String> videos = new HashMap<String, String>();
+					for(String key : value.keySet()){
+						videos.put(key, value.getString(key));
+					}
+					applyVideos(GameInfo.fromJSON(record.getJSONObject("game")), videos);
+					return true;
+				case "abbreviation":
+					applyTeamAbbreviation(record.getString("key"), record.getString("value"));
+					return true;
+				default:
+					return false;
+			}
+		} catch(JSONException | IllegalArgumentException | DateTimeException e){
+			return false;
+		}
+	}
+
+	//Appends the given record to the journal, syncing it if SYNC_BATCH records have not been synced, and flushing the store if the journal has grown too large.
+	//The exclusive lock must be held, and the store must have caught up with the journal.
+	private void append(JSONObject record) throws IOException {
+		String json = record.toString();
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		long position = journal.size();
+		//If the journal ends with an incomplete record, it is ended so it is not mistaken for part of this record.
+		String prefix = position > journalPosition ? "\n" : "";
+		ByteBuffer line = ByteBuffer.wrap((prefix + Long.toHexString(checksum(bytes)) + " " + json + "\n").getBytes(StandardCharsets.UTF_8));
+		while(line.hasRemaining()){
+			position += journal.write(line, position);
+		}
+		journalPosition = position;
+		unsynced++;
+		if(unsynced >= SYNC_BATCH){
+			sync();
+		} else if(unsynced == 1){
+			syncer.schedule(this::syncQuietly, SYNC_INTERVAL, TimeUnit.MILLISECONDS);
+		}
+		if(position > COMPACT_THRESHOLD){
+			flush();
+		}
+	}
+
+	//Syncs the journal to disk if any records have not been synced.
+	private synchronized void sync() throws IOException {
+		if(unsynced > 0 && !closed){
+			journal.force(false);
+			unsynced = 0;
+		}
+	}
+
+	//Run by the syncer. Failures are logged, and the records are synced by the next append or flush instead.
+	private void syncQuietly(){
+		try{
+			sync();
+		} catch(IOException e){
+			logging.warning("Could not sync " + directory.resolve(JOURNAL_FILE) + ": " + e.getMessage());
+		}
+	}
+
+	private static long checksum(byte[] bytes){
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return crc.getValue();
+	}
+
+	private void readIndex(JSONObject index) throws IOException {
+		int version = index.optInt("version", 1);
+		if(version > VERSION){
+			throw new IllegalArgumentException("The data store was written by a newer version of this program.");
+		}
+		indexChanged = version < VERSION;
+		if(index.has("seasons")){
+			JSONArray s = index.getJSONArray("seasons");
+			for(int i = 0; i < s.length(); i++){
+				seasons.add(s.getString(i));
+			}
+		} else {
+			//Older versions of this program listed every day and game in the index.
+			readSeasonIndex(index);
+			for(LocalDate ld : days){
+				seasonChanged(ld);
+			}
+			for(LocalDate ld : games.keySet()){
+				seasonChanged(ld);
+			}
+			loadedSeasons.addAll(seasons);
+		}
+		JSONObject a = index.getJSONObject("teamAbbreviations");
+		for(String abbreviation : a.keySet()){
+			abbreviations.put(abbreviation, a.getString(abbreviation));
+		}
+		if(!index.isNull("dictionary")){
+			dictionary = dictionary(Integer.parseUnsignedInt(index.getString("dictionary"), 16));
+		}
+	}
+
+	private JSONObject indexToJSON(){
+		JSONObject answer = new JSONObject();
+		answer.put("version", VERSION);
+		answer.put("seasons", new JSONArray(seasons));
+		answer.put("teamAbbreviations", new JSONObject(abbreviations));
+		if(dictionary != null){
+			answer.put("dictionary", Integer.toHexString(StoreCompression.id(dictionary)));
+		}
+		return answer;
+	}
+
+	private void readSeasonIndex(JSONObject index){
+		JSONArray d = index.getJSONArray("days");
+		for(int i = 0; i < d.length(); i++){
+			days.add(LocalDate.parse(d.getString(i)));
+		}
+		JSONArray g = index.getJSONArray("games");
+		for(int i = 0; i < g.length(); i++){
+			GameInfo gi = GameInfo.fromJSON(g.getJSONObject(i));
+			games.computeIfAbsent(gi.date(), k -> new HashSet<GameInfo>()).add(gi);
+		}
+	}
+
+	private JSONObject seasonIndexToJSON(String season){
+		LocalDate beginning = seasonBeginning(season);
+		LocalDate end = beginning.plusYears(1);
+		JSONObject answer = new JSONObject();
+		JSONArray d = new JSONArray();
+		for(LocalDate ld : days.subSet(beginning, end)){
+			d.put(ld.toString());
+		}
+		answer.put("days", d);
+		JSONArray g = new JSONArray();
+		for(Set<GameInfo> s : games.subMap(beginning, end).values()){
+			for(GameInfo gi : new TreeSet<GameInfo>(s)){
+				g.put(gi.toJSON());
+			}
+		}
+		answer.put("games", g);
+		return answer;
+	}
+
+	//Reads the index of the given season, if it has one and it has not already been read.
+	private void loadSeason(String season) throws IOException {
+		if(loadedSeasons.contains(season)){
+			return;
+		}
+		if(seasons.contains(season)){
+			Path file = seasonFile(season);
+			try{
+				readSeasonIndex(new JSONObject(read(file)));
+			} catch(JSONException | DateTimeException e){
+				throw new IOException("Malformed season index: " + file, e);
+			}
+		}
+		loadedSeasons.add(season);
+	}
+
+	//Reads the index of every season with stored data between the given dates, inclusive.
+	private void loadSeasons(LocalDate beginning, LocalDate end) throws IOException {
+		for(String season : new ArrayList<String>(seasons.subSet(season(beginning), season(end) + "\0"))){
+			loadSeason(season);
+		}
+	}
+
+	//Records that the index of the given date's season has changed. The season must have been loaded.
+	private void seasonChanged(LocalDate date){
+		String season = season(date);
+		indexChanged |= seasons.add(season);
+		changedSeasons.add(season);
+	}
+
+	//Returns a map which holds at most CACHE_SIZE entries, discarding the least recently used entries which are not in changed.
+	//Entries in changed, and the entry just added, are never discarded, so the map may hold more entries if more than CACHE_SIZE have changed.
+	private static <K, V> Map<K, V> cache(Set<K> changed){
+		return new LinkedHashMap<K, V>(16, 0.75f, true){
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest){
+				if(size() > CACHE_SIZE){
+					for(Iterator<K> it = keySet().iterator(); it.hasNext();){
+						K key = it.next();
+						if(it.hasNext() && !changed.contains(key)){
+							it.remove();
+							break;
+						}
+					}
+				}
+				return false;
+			}
+		};
+	}
+
+	/**Returns the stored information of the games played on the given day, or null if none is stored.<br>
+	Each element is an object in the format of GameInfo.toJSON(), which may have additional keys.
+	@param date The day.
+	@throws NullPointerException if date is null.
+	@throws IOException if an IO error occurs or the partition is malformed.
+	@return the stored information of the games played on the given day.
+	*/
+	public synchronized JSONArray getDay(LocalDate date) throws IOException {
+		lock(true);
+		try{
+			catchUp();
+			return loadDay(date);
+		} finally {
+			unlock();
+		}
+	}
+
+	/**Stores the information of the games played on the given day, replacing any already stored.
+	@param date The day.
+	@param gameInfos The information of each game, in the format of GameInfo.toJSON(). May have additional keys.
+	@throws NullPointerException if any parameter is null.
+	@throws IOException if an IO error occurs.
+	*/
+	public synchronized void putDay(LocalDate date, JSONArray gameInfos) throws IOException {
+		if(gameInfos == null){
+			throw new NullPointerException();
+		}
+		lock(false);
+		try{
+			catchUp();
+			applyDay(date, gameInfos);
+			JSONObject record = new JSONObject();
+			record.put("op", "day");
+			record.put("date", date.toString());
+			record.put("value", gameInfos);
+			append(record);
+		} finally {
+			unlock();
+		}
+	}
+
+	private void applyDay(LocalDate date, JSONArray gameInfos) throws IOException {
+		loadSeason(season(date));
+		if(days.add(date)){
+			seasonChanged(date);
+		}
+		loadedDays.put(date, gameInfos);
+		changedDays.add(date);
+	}
+
+	/**Returns the stored plays of the given game, in this program's binary format for plays, or null if none are stored.<br>
+	The returned buffer is read only, and may be memory-mapped.
+	@param gi The game.
+	@throws NullPointerException if gi is null.
+	@throws IOException if an IO error occurs or the partition is malformed.
+	@return the stored plays of the given game.
+	*/
+	public synchronized ByteBuffer getEncodedPlays(GameInfo gi) throws IOException {
+		lock(true);
+		try{
+			catchUp();
+			ByteBuffer answer = loadPlays(gi);
+			return answer == null ? null : answer.duplicate();
+		} finally {
+			unlock();
+		}
+	}
+
+	/**Returns an index of the stored plays of the given games. Only the index of the plays of each game's season is read, not the plays themselves.<br>
+	Games whose plays are not stored are not in the index. Neither are games whose plays were stored by an older version of this program,
+	until the store is compacted or their plays are stored again.
+	@param gis The games.
+	@throws NullPointerException if gis is null or contains null.
+	@throws IOException if an IO error occurs or an index is malformed.
+	@return an index of the stored plays of the given games.
+	*/
+	public synchronized PlayIndex getPlayIndex(Collection<GameInfo> gis) throws IOException {
+		lock(true);
+		try{
+			catchUp();
+			Map<String, List<GameInfo>> bySeason = new TreeMap<String, List<GameInfo>>();
+			for(GameInfo gi : gis){
+				bySeason.computeIfAbsent(season(gi.date()), k -> new ArrayList<GameInfo>()).add(gi);
+			}
+			PlayIndex answer = new PlayIndex();
+			for(Map.Entry<String, List<GameInfo>> e : bySeason.entrySet()){
+				answer.putAll(loadPostings(e.getKey()), e.getValue());
+			}
+			//The index does not include plays which have not been flushed yet.
+			for(GameInfo gi : gis){
+				if(changedPlays.contains(gi)){
+					indexPlays(answer, gi, loadedPlays.get(gi));
+				}
+			}
+			return answer;
+		} finally {
+			unlock();
+		}
+	}
+
+	//Returns the index of the plays of the given season, as of the last flush.
+	private PlayIndex loadPostings(String season) throws IOException {
+		Path file = postingsFile(season);
+		if(!seasons.contains(season) || !Files.exists(file)){
+			return new PlayIndex();
+		}
+		try{
+			return PlayIndex.read(readBytes(file));
+		} catch(IllegalArgumentException e){
+			throw new IOException("Malformed play index: " + file, e);
+		}
+	}
+
+	//Adds the given encoded plays of the given game to the given index.
+	private void indexPlays(PlayIndex index, GameInfo gi, ByteBuffer plays) throws IOException {
+		try{
+			index.put(gi, plays);
+		} catch(IllegalArgumentException e){
+			throw new IOException("Malformed partition: " + playsFile(gi), e);
+		}
+	}
+
+	/**Stores the given plays of the given game, encoded by PlayCodec, replacing any already stored.
+	@param gi The game.
+	@param plays The encoded plays.
+	@throws NullPointerException if any parameter is null.
+	@throws IOException if an IO error occurs or the partition is malformed.
+	*/
+	synchronized void putEncodedPlays(GameInfo gi, byte[] plays) throws IOException {
+		if(plays == null){
+			throw new NullPointerException();
+		}
+		lock(false);
+		try{
+			catchUp();
+			applyPlays(gi, plays);
+			JSONObject record = new JSONObject();
+			record.put("op", "plays");
+			record.put("game", gi.toJSON());
+			record.put("value", Base64.getEncoder().encodeToString(plays));
+			append(record);
+		} finally {
+			unlock();
+		}
+	}
+
+	/**Stores the plays of the given game, replacing any already stored.<br>
+	The plays are given in the JSON format used by older versions of this program, and are encoded before they are stored.
+	Each play is an object with the keys "playlink", which may be null, "type", "time", "team", "score", and "players", an array of player names.
+	@param gi The game.
+	@param plays The plays.
+	@throws NullPointerException if any parameter is null.
+	@throws JSONException if a play is missing a key.
+	@throws IllegalArgumentException if a field of a play could not be parsed.
+	@throws IOException if an IO error occurs or the partition is malformed.
+	*/
+	public void putPlays(GameInfo gi, JSONArray plays) throws IOException {
+		putEncodedPlays(gi, PlayCodec.fromJSON(plays));
+	}
+
+	private void applyPlays(GameInfo gi, byte[] plays) throws IOException {
+		createGame(gi).remove("plays");
+		loadedPlays.put(gi, ByteBuffer.wrap(plays).asReadOnlyBuffer());
+		changedGames.add(gi);
+		changedPlays.add(gi);
+	}
+
+	/**Returns the stored video location of the play of the given game with the given link, or null if none is stored.
+	@param gi The game.
+	@param playLink The link of the play.
+	@throws NullPointerException if any parameter is null.
+	@throws IOException if an IO error occurs or the partition is malformed.
+	@return the stored video location of the play.
+	*/
+	public synchronized String getVideo(GameInfo gi, String playLink) throws IOException {
+		if(playLink == null){
+			throw new NullPointerException();
+		}
+		lock(true);
+		try{
+			catchUp();
+			JSONObject game = loadGame(gi);
+			if(game == null){
+				return null;
+			}
+			JSONObject videos = game.optJSONObject("videos");
+			return videos == null || videos.isNull(playLink) ? null : videos.getString(playLink);
+		} finally {
+			unlock();
+		}
+	}
+
+	/**Returns the stored video locations of the plays of the given game, as a map from the link of each play to its video location.
+	@param gi The game.
+	@throws NullPointerException if gi is null.
+	@throws IOException if an IO error occurs or the partition is malformed.
+	@return the stored video locations of the plays of the given game, which is empty if none are stored.
+	*/
+	public synchronized Map<String, String> getVideos(GameInfo gi) throws IOException {
+		lock(true);
+		try{
+			catchUp();
+			JSONObject game = loadGame(gi);
+			JSONObject videos = game == null ? null : game.optJSONObject("videos");
+			Map<String, String> answer = new HashMap<String, String>();
+			if(videos != null){
+				for(String playLink : videos.keySet()){
+					if(!videos.isNull(playLink)){
+						answer.put(playLink, videos.getString(playLink));
+					}
+				}
+			}
+			return answer;
+		} finally {
+			unlock();
+		}
+	}
+
+	/**Stores the video location of each of the given plays of the given game, all at once.
+	@param gi The game.
+	@param videos A map from the link of each play to its video location.
+	@throws NullPointerException if any parameter is null or videos contains null.
+	@throws IOException if an IO error occurs or the partition is malformed.
+	*/
+	public synchronized void putVideos(GameInfo gi, Map<String, String> videos) throws IOException {
+		lock(false);
+		try{
+			catchUp();
+			if(videos.isEmpty()){
+				return;
+			}
+			applyVideos(gi, videos);
+			JSONObject record = new JSONObject();
+			record.put("op", "videos");
+			record.put("game", gi.toJSON());
+			record.put("value", new JSONObject(videos));
+			append(record);
+		} finally {
+			unlock();
+		}
+	}
+
+	private void applyVideos(GameInfo gi, Map<String, String> videos) throws IOException {
+		for(Map.Entry<String, String> e : videos.entrySet()){
+			if(e.getKey() == null || e.getValue() == null){
+				throw new NullPointerException();
+			}
+		}
+		JSONObject game = createGame(gi);
+		JSONObject stored = game.optJSONObject("videos");
+		if(stored == null){
+			stored = new JSONObject();
+			game.put("videos", stored);
+		}
+		for(Map.Entry<String, String> e : videos.entrySet()){
+			stored.put(e.getKey(), e.getValue());
+		}
+		changedGames.add(gi);
+	}
+
+	/**Returns the learned team abbreviations, as a map from each abbreviation to the name of its team.
+	@throws IOException if an IO error occurs.
+	@return the learned team abbreviations.
+	*/
+	public synchronized Map<String, String> getTeamAbbreviations() throws IOException {
+		lock(true);
+		try{
+			catchUp();
+			return new TreeMap<String, String>(abbreviations);
+		} finally {
+			unlock();
+		}
+	}
+
+	/**Stores that the given abbreviation refers to the team with the given name.
+	@param abbreviation The abbreviation.
+	@param team The name of the team.
+	@throws NullPointerException if any parameter is null.
+	@throws IOException if an IO error occurs.
+	*/
+	public synchronized void putTeamAbbreviation(String abbreviation, String team) throws IOException {
+		if(abbreviation == null || team == null){
+			throw new NullPointerException();
+		}
+		lock(false);
+		try{
+			catchUp();
+			if(team.equals(abbreviations.get(abbreviation))){
+				return;
+			}
+			applyTeamAbbreviation(abbreviation, team);
+			JSONObject record = new JSONObject();
+			record.put("op", "abbreviation");
+			record.put("key", abbreviation);
+			record.put("value", team);
+			append(record);
+		} finally {
+			unlock();
+		}
+	}
+
+	private void applyTeamAbbreviation(String abbreviation, String team){
+		indexChanged |= !team.equals(abbreviations.put(abbreviation, team));
+	}
+
+	/**Returns the days between the given dates, inclusive, whose game information is stored. Only reads the indices of the seasons between the given dates.
+	@param beginning The beginning date.
+	@param end The end date.
+	@throws NullPointerException if any parameter is null.
+	@throws IOException if an IO error occurs or a season index is malformed.
+	@return the days between the given dates whose game information is stored, in order.
+	*/
+	public synchronized SortedSet<LocalDate> daysBetween(LocalDate beginning, LocalDate end) throws IOException {
+		lock(true);
+		try{
+			catchUp();
+			if(beginning.isAfter(end)){
+				return new TreeSet<LocalDate>();
+			}
+			loadSeasons(beginning, end);
+			return new TreeSet<LocalDate>(days.subSet(beginning, end.plusDays(1)));
+		} finally {
+			unlock();
+		}
+	}
+
+	/**Returns the games played between the given dates, inclusive, which have stored data. Only reads the indices of the seasons between the given dates.
+	@param beginning The beginning date.
+	@param end The end date.
+	@throws NullPointerException if any parameter is null.
+	@throws IOException if an IO error occurs or a season index is malformed.
+	@return the games played between the given dates which have stored data, in order.
+	*/
+	public synchronized SortedSet<GameInfo> gamesBetween(LocalDate beginning, LocalDate end) throws IOException {
+		lock(true);
+		try{
+			catchUp();
+			SortedSet<GameInfo> answer = new TreeSet<GameInfo>();
+			if(beginning.isAfter(end)){
+				return answer;
+			}
+			loadSeasons(beginning, end);
+			for(Set<GameInfo> s : games.subMap(beginning, end.plusDays(1)).values()){
+				answer.addAll(s);
+			}
+			return answer;
+		} finally {
+			unlock();
+		}
+	}
+
+	/**Compresses every file of this store other than the index and the journal, and compresses files written from now on.<br>
+	A new dictionary is trained from a sample of the store's files, so this method can also be used to retrain the dictionary once more data is stored.
+	This method reads and rewrites every file in the store.
+	@param sampleSize The maximum number of bytes of files to train the dictionary from.
+	@throws IllegalArgumentException if sampleSize is not positive.
+	@throws IOException if an IO error occurs or a file is malformed.
+	*/
+	public synchronized void compress(int sampleSize) throws IOException {
+		lock(false);
+		try{
+			if(sampleSize <= 0){
+				throw new IllegalArgumentException("Sample size was not positive.");
+			}
+			flush();
+			List<Path> files = allFiles();
+			//Samples are spread over the whole store, and limited in size so that each file is only a small part of the sample.
+			Collections.shuffle(files, new Random(files.size()));
+			List<byte[]> samples = new ArrayList<byte[]>();
+			int sampled = 0;
+			for(Path file : files){
+				if(sampled >= sampleSize){
+					break;
+				}
+				ByteBuffer contents = readBytes(file);
+				byte[] sample = new byte[Math.min(Math.min(contents.remaining(), MAX_SAMPLE), sampleSize - sampled)];
+				contents.get(sample);
+				samples.add(sample);
+				sampled += sample.length;
+			}
+			byte[] trained = StoreCompression.train(samples);
+			if(trained.length == 0){
+				throw new IOException("The store does not contain enough data to train a dictionary.");
+			}
+			writeFile(dictionaryFile(StoreCompression.id(trained)), ByteBuffer.wrap(trained));
+			dictionaries.put(StoreCompression.id(trained), trained);
+			rewrite(files, trained);
+			logging.info("Compressed " + files.size() + " files of " + directory + " using a dictionary of " + trained.length + " bytes trained from " + sampled + " bytes.");
+		} finally {
+			unlock();
+		}
+	}
+
+	/**Decompresses every file of this store, and stops compressing files written from now on.<br>
+	This method reads and rewrites every file in the store.
+	@throws IOException if an IO error occurs or a file is malformed.
+	*/
+	public synchronized void decompress() throws IOException {
+		lock(false);
+		try{
+			flush();
+			List<Path> files = allFiles();
+			rewrite(files, null);
+			logging.info("Decompressed " + files.size() + " files of " + directory);
+		} finally {
+			unlock();
+		}
+	}
+
+	/**Rewrites this store in the format written by this version of the program, and removes data which can no longer be read.<br>
+	Stores and partitions written by older versions of this program are converted, and files compressed differently from the rest of the store are rewritten.
+	Video locations of plays which are not among their game's stored plays, and duplicate games in the information of a day, are removed.
+	Games and days listed in a season's index whose partitions are missing are removed from the index, and files which are not part of any partition,
+	such as temporary files left by a crash, are deleted. The index of each season's plays is rebuilt, so it includes games stored by older versions of this program.<br>
+	Seasons are compacted one at a time, so the memory used does not depend on the size of the store.
+	@throws IOException if an IO error occurs or a partition is malformed.
+	*/
+	public synchronized void compact() throws IOException {
+		lock(false);
+		try{
+			catchUp();
+			writeChanges();
+			Compaction c = new Compaction();
+			for(String season : new ArrayList<String>(seasons)){
+				compactSeason(season, c);
+				//Writing each season's changes as it is compacted bounds the number of changed partitions held in memory.
+				writeChanges();
+			}
+			try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory)){
+				for(Path file : stream){
+					String name = file.getFileName().toString();
+					boolean unusedDictionary = name.startsWith(DICTIONARY_PREFIX) && name.endsWith(DICTIONARY_EXTENSION)
+						&& (dictionary == null || !file.equals(dictionaryFile(StoreCompression.id(dictionary))));
+					if(unusedDictionary || name.endsWith(".tmp")){
+						Files.delete(file);
+						c.strayFiles++;
+					}
+				}
+			}
+			dictionaries.clear();
+			indexChanged = true;
+			writeChanges();
+			logging.info("Compacted " + directory + ": rewrote " + c.rewritten + " files, removed " + c.videos + " unreachable video locations, "
+				+ c.duplicates + " duplicate games in days, " + c.stale + " missing or empty partitions and " + c.strayFiles + " stray files.");
+		} finally {
+			unlock();
+		}
+	}
+
+	//Counts of what was changed by compact.
+	private static class Compaction {
+		private int rewritten = 0;
+		private int videos = 0;
+		private int duplicates = 0;
+		private int stale = 0;
+		private int strayFiles = 0;
+	}
+
+	//Compacts the partitions of the given season, marking every partition which must be rewritten as changed. The exclusive lock must be held.
+	private void compactSeason(String season, Compaction c) throws IOException {
+		loadSeason(season);
+		LocalDate beginning = seasonBeginning(season);
+		LocalDate end = beginning.plusYears(1);
+		Set<Path> partitions = new HashSet<Path>();
+		partitions.add(seasonFile(season));
+		partitions.add(postingsFile(season));
+		PlayIndex postings = new PlayIndex();
+		for(LocalDate ld : new ArrayList<LocalDate>(days.subSet(beginning, end))){
+			if(!Files.exists(dayFile(ld))){
+				days.remove(ld);
+				loadedDays.remove(ld);
+				c.stale++;
+				continue;
+			}
+			JSONArray day = loadDay(ld);
+			JSONArray deduplicated = new JSONArray();
+			Set<GameInfo> seen = new HashSet<GameInfo>();
+			try{
+				for(int i = 0; i < day.length(); i++){
+					if(seen.add(GameInfo.fromJSON(day.getJSONObject(i)))){
+						deduplicated.put(day.getJSONObject(i));
+					}
+				}
+			} catch(JSONException | IllegalArgumentException | DateTimeException e){
+				throw new IOException("Malformed partition: " + dayFile(ld), e);
+			}
+			if(deduplicated.length() != day.length() || !isCanonical(dayFile(ld))){
+				c.duplicates += day.length() - deduplicated.length();
+				loadedDays.put(ld, deduplicated);
+				changedDays.add(ld);
+			}
+			partitions.add(dayFile(ld));
+		}
+		for(Set<GameInfo> s : new ArrayList<Set<GameInfo>>(games.subMap(beginning, end).values())){
+			for(GameInfo gi : new ArrayList<GameInfo>(s)){
+				JSONObject game = Files.exists(gameFile(gi)) ? loadGame(gi) : null;
+				ByteBuffer plays = game == null ? null : loadPlays(gi);
+				JSONObject videos = game == null ? null : game.optJSONObject("videos");
+				if(videos != null){
+					Set<String> links;
+					try{
+						links = plays == null ? Set.of() : PlayCodec.links(plays);
+					} catch(IllegalArgumentException e){
+						throw new IOException("Malformed partition: " + playsFile(gi), e);
+					}
+					for(String link : new ArrayList<String>(videos.keySet())){
+						if(!links.contains(link)){
+							videos.remove(link);
+							c.videos++;
+							changedGames.add(gi);
+						}
+					}
+					if(videos.length() == 0){
+						game.remove("videos");
+					}
+				}
+				if(plays == null && (videos == null || videos.length() == 0)){
+					s.remove(gi);
+					loadedGames.remove(gi);
+					loadedPlays.remove(gi);
+					changedGames.remove(gi);
+					changedPlays.remove(gi);
+					c.stale++;
+					continue;
+				}
+				if(!isCanonical(gameFile(gi))){
+					changedGames.add(gi);
+				}
+				if(!isCanonical(playsFile(gi))){
+					changedPlays.add(gi);
+				}
+				if(plays != null){
+					indexPlays(postings, gi, plays);
+				}
+				partitions.add(gameFile(gi));
+				partitions.add(playsFile(gi));
+			}
+		}
+		games.values().removeIf(Set::isEmpty);
+		c.rewritten += changedDays.size() + changedGames.size() + changedPlays.size() + 1;
+		c.strayFiles += deleteStrayFiles(directory.resolve(season), partitions);
+		if(days.subSet(beginning, end).isEmpty() && games.subMap(beginning, end).isEmpty()){
+			seasons.remove(season);
+			loadedSeasons.remove(season);
+			changedSeasons.remove(season);
+			indexChanged = true;
+			c.rewritten--;
+			Files.deleteIfExists(seasonFile(season));
+			Files.deleteIfExists(postingsFile(season));
+			Files.deleteIfExists(directory.resolve(season));
+		} else {
+			changedSeasons.add(season);
+			//Written before the changed plays, which are indexed again when they are written.
+			write(postingsFile(season), postings.toBytes());
+			c.rewritten++;
+		}
+	}
+
+	//Returns false if the given file is compressed differently from new files. Returns true if the file does not exist.
+	private boolean isCanonical(Path file) throws IOException {
+		if(!Files.exists(file)){
+			return true;
+		}
+		ByteBuffer header = ByteBuffer.allocate(8);
+		try(FileChannel in = FileChannel.open(file, StandardOpenOption.READ)){
+			while(header.hasRemaining() && in.read(header) > 0);
+		}
+		header.flip();
+		if(!StoreCompression.isCompressed(header)){
+			return dictionary == null;
+		}
+		return dictionary != null && StoreCompression.dictionaryId(header) == StoreCompression.id(dictionary);
+	}
+
+	//Deletes every file in the given directory which is not in the given set, along with any directories left empty. Returns the number of files deleted.
+	private static int deleteStrayFiles(Path directory, Set<Path> keep) throws IOException {
+		if(!Files.isDirectory(directory)){
+			return 0;
+		}
+		int answer = 0;
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory)){
+			for(Path file : stream){
+				if(Files.isDirectory(file)){
+					answer += deleteStrayFiles(file, keep);
+					try(DirectoryStream<Path> contents = Files.newDirectoryStream(file)){
+						if(!contents.iterator().hasNext()){
+							Files.delete(file);
+						}
+					}
+				} else if(!keep.contains(file)){
+					Files.delete(file);
+					answer++;
+				}
+			}
+		}
+		return answer;
+	}
+
+	//Rewrites the given files using the given dictionary, then writes the index and deletes any dictionaries which are no longer used.
+	private void rewrite(List<Path> files, byte[] newDictionary) throws IOException {
+		dictionary = newDictionary;
+		for(Path file : files){
+			write(file, readBytes(file));
+		}
+		indexChanged = true;
+		flush();
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, DICTIONARY_PREFIX + "*" + DICTIONARY_EXTENSION)){
+			for(Path file : stream){
+				if(dictionary == null || !file.equals(dictionaryFile(StoreCompression.id(dictionary)))){
+					Files.delete(file);
+				}
+			}
+		}
+		dictionaries.clear();
+		if(dictionary != null){
+			dictionaries.put(StoreCompression.id(dictionary), dictionary);
+		}
+	}
+
+	//Returns every file of this store other than the index, the journal and the dictionaries. The store must have been flushed.
+	private List<Path> allFiles() throws IOException {
+		List<Path> answer = new ArrayList<Path>();
+		for(String season : new ArrayList<String>(seasons)){
+			loadSeason(season);
+			answer.add(seasonFile(season));
+		}
+		for(LocalDate ld : days){
+			answer.add(dayFile(ld));
+		}
+		for(Set<GameInfo> s : games.values()){
+			for(GameInfo gi : s){
+				answer.add(gameFile(gi));
+				if(Files.exists(playsFile(gi))){
+					answer.add(playsFile(gi));
+				}
+			}
+		}
+		return answer;
+	}
+
+	/**Writes every changed partition, and the index if it changed, then empties the journal.<br>
+	Changes made by other processes which have this store open are also written.
+	@throws IOException if an IO error occurs.
+	*/
+	public synchronized void flush() throws IOException {
+		lock(false);
+		try{
+			catchUp();
+			writeChanges();
+		} finally {
+			unlock();
+		}
+	}
+
+	//Writes every changed partition, and the index if it changed, then empties the journal and starts a new generation. The exclusive lock must be held.
+	private void writeChanges() throws IOException {
+		for(LocalDate ld : changedDays){
+			JSONObject day = new JSONObject();
+			day.put("games", loadedDays.get(ld));
+			write(dayFile(ld), day.toString());
+		}
+		changedDays.clear();
+		Map<String, PlayIndex> postings = new HashMap<String, PlayIndex>();
+		for(GameInfo gi : changedPlays){
+			write(playsFile(gi), loadedPlays.get(gi).duplicate());
+			String season = season(gi.date());
+			if(!postings.containsKey(season)){
+				postings.put(season, loadPostings(season));
+			}
+			indexPlays(postings.get(season), gi, loadedPlays.get(gi));
+		}
+		for(Map.Entry<String, PlayIndex> e : postings.entrySet()){
+			write(postingsFile(e.getKey()), e.getValue().toBytes());
+		}
+		changedPlays.clear();
+		for(GameInfo gi : changedGames){
+			write(gameFile(gi), loadedGames.get(gi).toString());
+		}
+		changedGames.clear();
+		for(String season : changedSeasons){
+			write(seasonFile(season), seasonIndexToJSON(season).toString());
+		}
+		changedSeasons.clear();
+		if(indexChanged){
+			writeFile(directory.resolve(INDEX_FILE), ByteBuffer.wrap(indexToJSON().toString().getBytes(StandardCharsets.UTF_8)));
+			indexChanged = false;
+		}
+		//Every change in the journal is now in a partition.
+		journal.truncate(0);
+		generation = new Random().nextLong() & Long.MAX_VALUE;
+		ByteBuffer line = ByteBuffer.wrap((GENERATION_PREFIX + String.format("%016x", generation) + "\n").getBytes(StandardCharsets.UTF_8));
+		while(line.hasRemaining()){
+			journal.write(line, line.position());
+		}
+		journal.force(true);
+		journalPosition = GENERATION_LENGTH;
+		unsynced = 0;
+	}
+
+	/**Flushes this store and closes its journal. Once this method is called, no other methods of this store should be called.
+	@throws IOException if an IO error occurs.
+	*/
+	@Override
+	public synchronized void close() throws IOException {
+		if(closed){
+			return;
+		}
+		try{
+			flush();
+		} finally {
+			closed = true;
+			syncer.shutdownNow();
+			journal.close();
+			lockFile.close();
+		}
+	}
+
+	//Returns the partition of the given day, reading it if necessary, or null if it has none.
+	private JSONArray loadDay(LocalDate date) throws IOException {
+		loadSeason(season(date));
+		if(!days.contains(date)){
+			return null;
+		}
+		JSONArray answer = loadedDays.get(date);
+		if(answer == null){
+			try{
+				answer = new JSONObject(read(dayFile(date))).getJSONArray("games");
+			} catch(JSONException e){
+				throw new IOException("Malformed partition: " + dayFile(date), e);
+			}
+			loadedDays.put(date, answer);
+		}
+		return answer;
+	}
+
+	//Returns the encoded plays of the given game, reading them if necessary, or null if it has none.
+	//Plays stored as JSON by older versions of this program are encoded, and the game's partitions are marked as changed.
+	private ByteBuffer loadPlays(GameInfo gi) throws IOException {
+		loadSeason(season(gi.date()));
+		if(!games.getOrDefault(gi.date(), Set.of()).contains(gi)){
+			return null;
+		}
+		ByteBuffer answer = loadedPlays.get(gi);
+		if(answer == null){
+			Path file = playsFile(gi);
+			if(Files.exists(file)){
+				try(FileChannel in = FileChannel.open(file, StandardOpenOption.READ)){
+					answer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+				}
+				if(StoreCompression.isCompressed(answer)){
+					answer = decompress(file, answer).asReadOnlyBuffer();
+				}
+			} else {
+				JSONObject game = loadGame(gi);
+				JSONArray plays = game.optJSONArray("plays");
+				if(plays == null){
+					return null;
+				}
+				try{
+					answer = ByteBuffer.wrap(PlayCodec.fromJSON(plays)).asReadOnlyBuffer();
+				} catch(JSONException | IllegalArgumentException e){
+					throw new IOException("Malformed partition: " + gameFile(gi), e);
+				}
+				game.remove("plays");
+				changedGames.add(gi);
+				changedPlays.add(gi);
+			}
+			loadedPlays.put(gi, answer);
+		}
+		return answer;
+	}
+
+	//Returns the partition of the given game, reading it if necessary, or null if it has none.
+	private JSONObject loadGame(GameInfo gi) throws IOException {
+		loadSeason(season(gi.date()));
+		if(!games.getOrDefault(gi.date(), Set.of()).contains(gi)){
+			return null;
+		}
+		JSONObject answer = loadedGames.get(gi);
+		if(answer == null){
+			try{
+				answer = new JSONObject(read(gameFile(gi)));
+			} catch(JSONException e){
+				throw new IOException("Malformed partition: " + gameFile(gi), e);
+			}
+			loadedGames.put(gi, answer);
+		}
+		return answer;
+	}
+
+	//Returns the partition of the given game, creating it if it has none.
+	private JSONObject createGame(GameInfo gi) throws IOException {
+		JSONObject answer = loadGame(gi);
+		if(answer == null){
+			answer = new JSONObject();
+			answer.put("game", gi.toJSON());
+			games.computeIfAbsent(gi.date(), k -> new HashSet<GameInfo>()).add(gi);
+			loadedGames.put(gi, answer);
+			seasonChanged(gi.date());
+		}
+		return answer;
+	}
+
+	/**Returns the name of the season the given date is in, for example "2019-20". Seasons are considered to begin on August 1st.
+	@param date The date.
+	@throws NullPointerException if date is null.
+	@return the name of the season the given date is in.
+	*/
+	public static String season(LocalDate date){
+		int year = date.getMonthValue() >= Month.AUGUST.getValue() ? date.getYear() : date.getYear() - 1;
+		return String.format("%d-%02d", year, (year + 1) % 100);
+	}
+
+	//Returns the first day of the season with the given name.
+	private static LocalDate seasonBeginning(String season){
+		return LocalDate.of(Integer.parseInt(season.substring(0, season.indexOf('-'))), Month.AUGUST, 1);
+	}
+
+	private Path seasonFile(String season){
+		return directory.resolve(season).resolve(SEASON_FILE);
+	}
+
+	private Path postingsFile(String season){
+		return directory.resolve(season).resolve(POSTINGS_FILE);
+	}
+
+	//Returns the directory of the given day's partitions.
+	private Path dayDirectory(LocalDate date){
+		return directory.resolve(season(date)).resolve(date.toString());
+	}
+
+	private Path dayFile(LocalDate date){
+		return dayDirectory(date).resolve(DAY_FILE);
+	}
+
+	private Path gameFile(GameInfo gi){
+		return dayDirectory(gi.date()).resolve(gameFileName(gi) + ".json");
+	}
+
+	private Path playsFile(GameInfo gi){
+		return dayDirectory(gi.date()).resolve(gameFileName(gi) + PLAYS_EXTENSION);
+	}
+
+	private static String gameFileName(GameInfo gi){
+		return fileName(gi.awayTeam().toString()) + "@" + fileName(gi.homeTeam().toString());
+	}
+
+	//Replaces every character which may not be allowed in a file name.
+	private static String fileName(String name){
+		return name.replaceAll("[^A-Za-z0-9.-]", "_");
+	}
+
+	private String read(Path file) throws IOException {
+		return StandardCharsets.UTF_8.decode(readBytes(file)).toString();
+	}
+
+	//Returns the contents of the given file, decompressing them if they are compressed.
+	private ByteBuffer readBytes(Path file) throws IOException {
+		ByteBuffer answer = ByteBuffer.wrap(Files.readAllBytes(file));
+		return StoreCompression.isCompressed(answer) ? decompress(file, answer) : answer;
+	}
+
+	private ByteBuffer decompress(Path file, ByteBuffer contents) throws IOException {
+		try{
+			return StoreCompression.decompress(contents, dictionary(StoreCompression.dictionaryId(contents)));
+		} catch(IOException e){
+			throw new IOException("Could not decompress " + file + ": " + e.getMessage(), e);
+		}
+	}
+
+	//Returns the dictionary with the given id, reading it if necessary.
+	private byte[] dictionary(int id) throws IOException {
+		byte[] answer = dictionaries.get(id);
+		if(answer == null){
+			answer = Files.readAllBytes(dictionaryFile(id));
+			if(StoreCompression.id(answer) != id){
+				throw new IOException("Corrupt dictionary: " + dictionaryFile(id));
+			}
+			dictionaries.put(id, answer);
+		}
+		return answer;
+	}
+
+	private Path dictionaryFile(int id){
+		return directory.resolve(DICTIONARY_PREFIX + Integer.toHexString(id) + DICTIONARY_EXTENSION);
+	}
+
+	private void write(Path file, String contents) throws IOException {
+		write(file, ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	//Writes the given contents to the given file, compressing them if the store is compressed.
+	private void write(Path file, ByteBuffer contents) throws IOException {
+		writeFile(file, dictionary == null ? contents : StoreCompression.compress(contents, dictionary));
+	}
+
+	//Writes the given contents to a temporary file and syncs it, then moves it into place.
+	private static void writeFile(Path file, ByteBuffer buffer) throws IOException {
+		Files.createDirectories(file.getParent());
+		Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+		try{
+			try(FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)){
+				while(buffer.hasRemaining()){
+					out.write(buffer);
+				}
+				out.force(true);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+}
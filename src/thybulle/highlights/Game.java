@@ -48,6 +48,34 @@ public class Game {
 		return List.copyOf(this.constrain(new AndConstraint(constraints)));
 	}
 
+	/**Returns an unmodifiable list of plays with all plays in this Game that meet the given constraints, in order of when they occurred in the game.<br>
+	If this game is in the given index, only the plays which the index finds may satisfy the constraints are tested,
+	and plays which the index finds certainly satisfy them are not tested. Otherwise, every play is tested.
+	@param constraints All constraints.
+	@param index An index of the plays of this game and possibly others.
+	@throws NullPointerException if any parameter is null, or any value in constraints is null.
+	@return a list of all plays which meet the given constraints.
+	*/
+	public List<Play> getAllPlaysThatSatisfy(Collection<? extends Constraint> constraints, PlayIndex index){
+		Constraint constraint = new AndConstraint(constraints);
+		GameInfo gi = new GameInfo(date, awayTeam, homeTeam);
+		//The index describes different plays if the game's plays have been stored again since it was read.
+		if(index.numberOfPlays(gi) != data.size()){
+			return List.copyOf(this.constrain(constraint));
+		}
+		Pair<BitSet, BitSet> bounds = index.certainAndCandidates(constraint, gi);
+		BitSet certain = bounds.first();
+		BitSet candidates = bounds.second();
+		List<Play> answer = new ArrayList<Play>(candidates.cardinality());
+		for(int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)){
+			Play p = data.get(i);
+			if(certain.get(i) || constraint.satisfiedBy(p)){
+				answer.add(p);
+			}
+		}
+		return Collections.unmodifiableList(answer);
+	}
+
 	//Returns a list of all plays in this game that meet the constraint.
 	private List<Play> constrain(Constraint constraint){
 		List<Play> answer = new ArrayList<Play>();
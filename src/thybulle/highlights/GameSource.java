@@ -3,13 +3,17 @@ package thybulle.highlights;
 import java.time.*;
 import java.time.temporal.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
+import thybulle.misc.*;
 
 /**Interface representing a source of play-by-play data.<br>
 The source must be able to perform two operations.<br>
 It must be able to get the information of all games that occurred on a particular day 
 and it must be able to return play-by-play data for a game given a GameInfo object.<br>
-Additionally, several default methods which call getGameInformationOnDay and getGame in various ways are included.
+Additionally, several default methods which call getGameInformationOnDay and getGame in various ways are included.<br>
+Each of the bulk default methods has an overload which takes an Executor, and makes its calls to getGameInformationOnDay and getGame concurrently using that Executor.<br>
+Implementations should therefore be safe to call from several threads at once.
 */
 
 public interface GameSource extends Closeable{
@@ -28,7 +32,55 @@ public interface GameSource extends Closeable{
 	@return a Game with play-by-play data for the given GameInfo.
 	*/
 	Game getGame(GameInfo gi) throws IOException;
+
+	/**Returns the players who may appear in the plays of the given game, if they can be found without getting the game's play-by-play data, or null otherwise.<br>
+	This is used to rule out games which cannot contain plays by a certain player before their play-by-play data is requested.<br>
+	Every player who appears in a play of the game must be in the returned set. The default implementation returns null.
+	@param gi GameInfo representing the game.
+	@throws NullPointerException if gi is null.
+	@throws IOException if an IO error occurs.
+	@return the players who may appear in the plays of the given game, or null if they are not known.
+	*/
+	default Set<Player> getPlayers(GameInfo gi) throws IOException {
+		if(gi == null){
+			throw new NullPointerException();
+		}
+		return null;
+	}
 	
+	/**Returns an index of the plays of the given games, if it can be found without getting the games' play-by-play data, or null otherwise.<br>
+	This is used to rule out games which contain no plays satisfying the constraints before their play-by-play data is requested,
+	and to only test the plays of each game which may satisfy them.<br>
+	The index does not need to include every given game. The ordinals in the index must be the positions of the plays in the games returned by getGame.
+	The default implementation returns null.
+	@param gis The games.
+	@throws NullPointerException if gis is null or contains null.
+	@throws IOException if an IO error occurs.
+	@return an index of the plays of the given games, or null if there is none.
+	*/
+	default PlayIndex getPlayIndex(Collection<GameInfo> gis) throws IOException {
+		if(gis == null){
+			throw new NullPointerException();
+		}
+		return null;
+	}
+
+	/**Returns a Video depicting each of the given plays, in the same order as the given plays. Videos which could not be resolved are null.<br>
+	Sources which can resolve the videos of several plays at once more quickly than one at a time should override this method.
+	The default implementation calls getVideo on each play in turn.
+	@param plays The plays. They should have been returned by this source.
+	@throws NullPointerException if plays is null or contains null.
+	@throws IOException if an IO error occurs.
+	@return a Video depicting each of the given plays.
+	*/
+	default List<Video> getVideos(List<? extends Play> plays) throws IOException {
+		List<Video> answer = new ArrayList<Video>(plays.size());
+		for(Play p : plays){
+			answer.add(p.getVideo());
+		}
+		return answer;
+	}
+
 	/**Closes all resources associated with this GameSource.<br>
 	 * Once this method is called on an instance of GameSource, other method calls may or may not function correctly.
 	 @throws IOException if an IO error occurs.
@@ -50,6 +102,19 @@ public interface GameSource extends Closeable{
 		return answer;
 	}
 
+	/**Returns a list of games corresponding to the provided GameInfos, getting the games concurrently using the given Executor.<br>
+	The order of the list corresponds to the iteration order of the provided Collection.<br>
+	If getting any game throws an exception, getting the remaining games is cancelled and the exception is rethrown.
+	@throws NullPointerException if any paramter is null.
+	@throws IOException if an IO error occurs.
+	@param gi The GameInfos.
+	@param executor The Executor to get the games on.
+	@return a list of games corresponding to the provided GameInfos.
+	*/
+	default List<Game> getGames(Collection<GameInfo> gis, Executor executor) throws IOException {
+		return Concurrency.map(new ArrayList<GameInfo>(gis), this::getGame, executor);
+	}
+
 	/**Returns information for all NBA games played between the given dates, inclusive.
 	@param beginning The beginning date.
 	@param end The end date.
@@ -73,6 +138,24 @@ public interface GameSource extends Closeable{
 		return answer;
 	}
 
+	/**Returns information for all NBA games played between the given dates, inclusive, getting each day's information concurrently using the given Executor.<br>
+	The order of the returned list is the same as that of {@link #getGameInformationBetweenDates(LocalDate, LocalDate) getGameInformationBetweenDates}.<br>
+	If getting any day's information throws an exception, the remaining days are cancelled and the exception is rethrown.
+	@param beginning The beginning date.
+	@param end The end date.
+	@param executor The Executor to get each day's information on.
+	@throws NullPointerException if any paramter is null.
+	@throws IllegalArgumentException if end is before beginning.
+	@throws IOException if an IO error occurs.
+	@return information for all NBA games played between the given dates, inclusive.
+	*/
+	default List<GameInfo> getGameInformationBetweenDates(LocalDate beginning, LocalDate end, Executor executor) throws IOException {
+		if(beginning.isAfter(end)){
+			throw new IllegalArgumentException("Beginning date was after end date.");
+		}
+		return flatten(Concurrency.map(datesBetween(beginning, end), this::getGameInformationOnDay, executor));
+	}
+
 	/**Returns information for games played by the given teams on date.<br>
 	 * If no teams are specified, returns information for all games on the date.
 	@param date The date to look for a game.
@@ -124,4 +207,47 @@ public interface GameSource extends Closeable{
 		}
 		return answer;
 	}
+
+	/**Returns information for all games played by the given teams between the given dates, inclusive, getting each day's information concurrently using the given Executor.<br>
+	 * If no teams are specified, returns information for all games between the dates.<br>
+	 * The order of the returned list is the same as that of {@link #getTeamGameInformationBetweenDates(LocalDate, LocalDate, Collection) getTeamGameInformationBetweenDates}.<br>
+	 * If getting any day's information throws an exception, the remaining days are cancelled and the exception is rethrown.
+	@param beginning The beginning date.
+	@param end The end date.
+	@param teams The teams to get games of.
+	@param executor The Executor to get each day's information on.
+	@throws NullPointerException if any paramter is null.
+	@throws IllegalArgumentException if end is before beginning.
+	@throws IOException if an IO error occurs.
+	@return a list of all GameInfos played by the given team between the given dates, inclusive.	
+	*/
+	default List<GameInfo> getTeamGameInformationBetweenDates(LocalDate beginning, LocalDate end, Collection<? extends Team> teams, Executor executor) throws IOException {
+		if(teams.isEmpty()){
+			return this.getGameInformationBetweenDates(beginning, end, executor);
+		}
+		if(beginning.isAfter(end)){
+			throw new IllegalArgumentException("Beginning date was after end date.");
+		}
+		return flatten(Concurrency.map(datesBetween(beginning, end), d -> this.getTeamGameInformationOnDay(d, teams), executor));
+	}
+
+	//Returns a list of all dates between the given dates, inclusive.
+	private static List<LocalDate> datesBetween(LocalDate beginning, LocalDate end){
+		List<LocalDate> answer = new ArrayList<LocalDate>();
+		for(int i = 0; i <= beginning.until(end, ChronoUnit.DAYS); i++){
+			answer.add(beginning.plusDays(i));
+		}
+		return answer;
+	}
+
+	//Concatenates the given lists, in order. Null lists are skipped.
+	private static List<GameInfo> flatten(List<List<GameInfo>> lists){
+		List<GameInfo> answer = new ArrayList<GameInfo>();
+		for(List<GameInfo> l : lists){
+			if(l != null){
+				answer.addAll(l);
+			}
+		}
+		return answer;
+	}
 }
\ No newline at end of file
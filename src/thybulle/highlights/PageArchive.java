@@ -0,0 +1,87 @@
+package thybulle.highlights;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.*;
+import java.util.zip.*;
+
+/**Class representing a directory of rendered pages, keyed by URL.<br>
+Each page is stored gzipped in its own file, named after the SHA-256 hash of its URL. The first line of each file is the URL itself.<br>
+Pages are written to a temporary file and then moved into place, so a page is either entirely present or absent.<br>
+This class is thread safe.
+@author Owen Kulik
+*/
+
+class PageArchive {
+	private final Path directory;
+
+	//RI: directory is non-null.
+	//AF: Represents the pages stored in directory.
+
+	/**Constructs a PageArchive in the given directory, creating the directory if it does not exist.
+	@param location Path to the directory.
+	@throws NullPointerException if location is null.
+	@throws IOException if the directory could not be created.
+	*/
+	PageArchive(String location) throws IOException {
+		this.directory = Path.of(location);
+		Files.createDirectories(this.directory);
+	}
+
+	/**Returns the page stored for the given URL, or null if no page is stored for it.
+	@param url The URL.
+	@throws IOException if an IO error occurs.
+	@return the page stored for the given URL, or null if no page is stored for it.
+	*/
+	String get(String url) throws IOException {
+		Path file = directory.resolve(key(url));
+		if(!Files.exists(file)){
+			return null;
+		}
+		String contents;
+		try(InputStream in = new GZIPInputStream(Files.newInputStream(file))){
+			contents = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		int newline = contents.indexOf('\n');
+		if(newline == -1 || !contents.substring(0, newline).equals(url)){
+			//Two URLs with the same hash. This should never happen.
+			return null;
+		}
+		return contents.substring(newline + 1);
+	}
+
+	/**Stores the given page for the given URL, replacing any page already stored for it.
+	@param url The URL.
+	@param page The page.
+	@throws IOException if an IO error occurs.
+	*/
+	void put(String url, String page) throws IOException {
+		Path file = directory.resolve(key(url));
+		Path temp = Files.createTempFile(directory, key(url), ".tmp");
+		try{
+			try(OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))){
+				out.write((url + "\n").getBytes(StandardCharsets.UTF_8));
+				out.write(page.getBytes(StandardCharsets.UTF_8));
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	//Returns the file name used for the given URL.
+	private static String key(String url){
+		try{
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+			StringBuilder answer = new StringBuilder(hash.length * 2 + 3);
+			for(byte b : hash){
+				answer.append(String.format("%02x", b));
+			}
+			return answer.append(".gz").toString();
+		} catch(NoSuchAlgorithmException e){
+			//Every Java platform is required to support SHA-256.
+			throw new AssertionError(e);
+		}
+	}
+}
@@ -0,0 +1,294 @@
+package thybulle.highlights;
+
+import static thybulle.highlights.HighlightsLogger.*;
+
+import thybulle.misc.*;
+import java.util.*;
+
+/**Static class which parses play-by-play descriptions in the format used by stats.nba.com into Plays.<br>
+Both the stats.nba.com website and its JSON endpoints describe plays in this format, so it is shared between the sources which read from them.<br>
+Plays are grouped by the time at which they occurred. Each group is a pair of lists: the first list holds the away team's plays, and the second holds the home team's plays.<br>
+This is used to classify plays which involve both teams - for example, an and one is a field goal by one team combined with a shooting foul by the other.<br>
+All methods of this class are thread safe.
+@author Owen Kulik
+*/
+
+class PlayByPlayParser {
+	private static final String playerRegexNoGroup = "(?!MISS).+?";
+	private static final String playerRegex = "(" + playerRegexNoGroup + ")";
+	private static final String distanceRegex = "(?:\\d{1,2}' )?";
+	private static final String shotModifiers = "(?:Jump|Alley Oop|Reverse|Finger Roll|Running|Layup|Tip|Putback|Turnaround|Bank|Hook|Step Back|Floating|Pullup|Pull-Up|Cutting|Fadeaway|Driving|Tip|Jumper|Shot| )*";
+	private static final String turnoverModifiers = "(?:Lost Ball|Bad Pass|Offensive Foul|Basket Interference|5 Second Violation|Lane Violation|Step Out of Bounds|Out of Bounds Lost Ball|Traveling|Out of Bounds \\- Bad Pass Turnover|3 Second Violation|Palming|Backcourt|Double Dribble|Discontinue Dribble|Kicked Ball Violation|Inbound|No| )*";
+	
+	private static final String dunkMadeRegex = playerRegex + " " + distanceRegex + shotModifiers + "Dunk (?:Shot )?\\(\\d+ PTS\\).*";
+	private static final String missedDunkRegex = "MISS " + playerRegex + " " + distanceRegex + shotModifiers + "Dunk(?: Shot)?";
+	private static final String threePointerMadeRegex = playerRegex + " " + distanceRegex + "3PT" + shotModifiers + " \\(\\d+ PTS\\).*";
+	private static final String missedThreePointerRegex = "MISS " + playerRegex + " " + distanceRegex + "3PT" + shotModifiers;
+	private static final String fieldGoalMadeRegex = playerRegex + " " + distanceRegex + shotModifiers + " \\(\\d+ PTS\\).*";
+	private static final String missedFieldGoalRegex = "MISS " + playerRegex + " " + distanceRegex + shotModifiers;
+
+	private static final String missedFreeThrowRegex = "MISS " + playerRegex + " Free Throw.*";
+	private static final String madeFreeThrowRegex = playerRegex + " Free Throw.*";
+
+	private static final String teamReboundRegex = ".* Rebound";
+	private static final String reboundRegex = playerRegex + " REBOUND.*";
+
+	private static final String assistRegex = ".*\\(" + playerRegex + " \\d+ AST\\)";
+
+	private static final String stealRegex = playerRegex + " STEAL \\(\\d+ STL\\)";
+
+	private static final String blockRegex = playerRegex + " BLOCK \\(\\d+ BLK\\)";
+
+	private static final String alleyOopRegex = playerRegex + " " + distanceRegex + shotModifiers + "Alley Oop .* \\(\\d+ PTS\\) \\(" + playerRegex + " \\d+ AST\\)";
+
+	private static final String teamTechnicalRegex = ".* T\\.Foul \\(Def. 3 Sec .*\\).*";
+	private static final String flagrantFoul1Regex = playerRegex + " FLAGRANT\\.FOUL\\.TYPE1.*";
+	private static final String flagrantFoul2Regex = playerRegex + " FLAGRANT\\.FOUL\\.TYPE2.*";
+	private static final String shootingFoulRegex = playerRegex + " S\\.FOUL.*";
+	private static final String defensiveFoulRegex = playerRegex + " P\\.FOUL.*";
+	private static final String looseBallFoulRegex = playerRegex + " L\\.B\\.FOUL.*";
+	private static final String technicalFoulRegex = playerRegex + " T\\.FOUL.*";
+	private static final String offensiveFoulRegex = playerRegex + " OFF\\.Foul.*";
+	private static final String chargeRegex = playerRegex + " Offensive Charge Foul.*";
+	private static final String intentionalFoulRegex = playerRegex + " Personal Take Foul.*";
+	private static final String clearPathFoulRegex = playerRegex + " C\\.P\\.FOUL.*";
+	private static final String awayFromThePlayFoulRegex = playerRegex + " AWAY\\.FROM\\.PLAY\\.FOUL.*";
+	
+	private static final String shootingFoulRegexNoGroup = playerRegexNoGroup + " S\\.FOUL.*";
+	
+	private static final String eightSecondViolationRegex = ".* Turnover: 8 Second Violation \\(T#\\d+\\)";
+	private static final String shotClockViolationRegex = ".* Turnover: Shot Clock \\(T#\\d+\\)";
+	private static final String teamTurnoverRegex = ".* Turnover: .* \\(T#\\d+\\)";
+	private static final String travelingRegex = playerRegex + " Traveling Turnover \\(P\\d+\\.T\\d+\\)";
+	private static final String basketInterferenceRegex = playerRegex + " Offensive Goaltending Turnover \\(P\\d+\\.T\\d+\\)";
+	
+	private static final String jumpBallRegex = "Jump Ball(?:\\(CC\\)| )*" + playerRegex + " vs\\. " + playerRegex + ":.*";
+	
+	private static final String turnoverRegex = playerRegex + turnoverModifiers + " Turnover \\(P\\d+\\.T\\d+\\)";
+
+	private static final String goaltendingRegex = playerRegex + " Violation:Defensive Goaltending.*";
+	private static final String violationRegex = ".* Violation:.*";
+
+	private static final String subRegex = "SUB: " + playerRegex + " FOR " + playerRegex;
+
+	private static final String timeoutRegex = ".* Timeout: .*";
+
+	//The rules used to classify plays, in order of precedence.
+	private static final List<PlayClassifier.Rule> playTypeRules;
+	private static final PlayClassifier playTypeParsing;
+
+	static {
+		List<PlayClassifier.Rule> rules = new ArrayList<PlayClassifier.Rule>();
+		rules.add(new PlayClassifier.Rule(missedDunkRegex, "Dunk", PlayType.DUNK_MISSED));
+		rules.add(new PlayClassifier.Rule(missedThreePointerRegex, "3PT", PlayType.THREE_POINTER_MISSED));
+		rules.add(new PlayClassifier.Rule(missedFieldGoalRegex, "MISS ", PlayType.FIELD_GOAL_MISSED));
+		
+		rules.add(new PlayClassifier.Rule(dunkMadeRegex, "Dunk", shootingFoulRegexNoGroup, " S.FOUL", PlayType.AND_ONE_DUNK));
+		rules.add(new PlayClassifier.Rule(dunkMadeRegex, "Dunk", PlayType.DUNK_MADE));
+		rules.add(new PlayClassifier.Rule(threePointerMadeRegex, "3PT", shootingFoulRegexNoGroup, " S.FOUL", PlayType.AND_ONE_THREE_POINTER));
+		rules.add(new PlayClassifier.Rule(threePointerMadeRegex, "3PT", PlayType.THREE_POINTER_MADE));
+		rules.add(new PlayClassifier.Rule(fieldGoalMadeRegex, " PTS)", shootingFoulRegexNoGroup, " S.FOUL", PlayType.AND_ONE));
+		rules.add(new PlayClassifier.Rule(fieldGoalMadeRegex, " PTS)", PlayType.FIELD_GOAL_MADE));
+
+		rules.add(new PlayClassifier.Rule(missedFreeThrowRegex, " Free Throw", PlayType.FREE_THROW_MISSED));
+		rules.add(new PlayClassifier.Rule(madeFreeThrowRegex, " Free Throw", PlayType.FREE_THROW_MADE));
+		
+		rules.add(new PlayClassifier.Rule(teamReboundRegex, " Rebound", PlayType.TEAM_REBOUND));
+		rules.add(new PlayClassifier.Rule(reboundRegex, " REBOUND", PlayType.REBOUND));
+
+		rules.add(new PlayClassifier.Rule(assistRegex, " AST)", PlayType.ASSIST));
+
+		rules.add(new PlayClassifier.Rule(stealRegex, " STEAL (", PlayType.STEAL));
+
+		rules.add(new PlayClassifier.Rule(blockRegex, " BLOCK (", PlayType.BLOCK));
+
+		rules.add(new PlayClassifier.Rule(alleyOopRegex, "Alley Oop ", PlayType.ALLEY_OOP));
+
+		rules.add(new PlayClassifier.Rule(teamTechnicalRegex, " T.Foul (Def", PlayType.TEAM_TECHNICAL_FOUL));
+		rules.add(new PlayClassifier.Rule(flagrantFoul1Regex, " FLAGRANT.FOUL.TYPE1", PlayType.FLAGRANT_FOUL_1));
+		rules.add(new PlayClassifier.Rule(flagrantFoul2Regex, " FLAGRANT.FOUL.TYPE2", PlayType.FLAGRANT_FOUL_2));
+		rules.add(new PlayClassifier.Rule(shootingFoulRegex, " S.FOUL", PlayType.SHOOTING_FOUL));
+		rules.add(new PlayClassifier.Rule(defensiveFoulRegex, " P.FOUL", PlayType.DEFENSIVE_FOUL));
+		rules.add(new PlayClassifier.Rule(looseBallFoulRegex, " L.B.FOUL", PlayType.LOOSE_BALL_FOUL));
+		rules.add(new PlayClassifier.Rule(technicalFoulRegex, " T.FOUL", PlayType.TECHNICAL_FOUL));
+		rules.add(new PlayClassifier.Rule(offensiveFoulRegex, " OFF.Foul", PlayType.OFFENSIVE_FOUL));
+		rules.add(new PlayClassifier.Rule(chargeRegex, " Offensive Charge Foul", PlayType.OFFENSIVE_FOUL));
+		rules.add(new PlayClassifier.Rule(intentionalFoulRegex, " Personal Take Foul", PlayType.DEFENSIVE_FOUL));
+		rules.add(new PlayClassifier.Rule(clearPathFoulRegex, " C.P.FOUL", PlayType.DEFENSIVE_FOUL));
+		rules.add(new PlayClassifier.Rule(awayFromThePlayFoulRegex, " AWAY.FROM.PLAY.FOUL", PlayType.DEFENSIVE_FOUL));
+
+		rules.add(new PlayClassifier.Rule(eightSecondViolationRegex, " Turnover: 8 Second Violation (T#", PlayType.EIGHT_SECOND_VIOLATION));
+		rules.add(new PlayClassifier.Rule(shotClockViolationRegex, " Turnover: Shot Clock (T#", PlayType.SHOT_CLOCK_VIOLATION));
+		rules.add(new PlayClassifier.Rule(teamTurnoverRegex, " Turnover: ", PlayType.TEAM_TURNOVER));
+		rules.add(new PlayClassifier.Rule(travelingRegex, " Traveling Turnover (P", PlayType.TRAVELING));
+		rules.add(new PlayClassifier.Rule(basketInterferenceRegex, " Offensive Goaltending Turnover (P", PlayType.BASKET_INTERFERENCE));
+		rules.add(new PlayClassifier.Rule(turnoverRegex, " Turnover (P", PlayType.TURNOVER));
+		
+		rules.add(new PlayClassifier.Rule(jumpBallRegex, "Jump Ball", PlayType.JUMP_BALL));
+		
+		rules.add(new PlayClassifier.Rule(goaltendingRegex, " Violation:Defensive Goaltending", PlayType.GOALTENDING));
+		rules.add(new PlayClassifier.Rule(violationRegex, " Violation:", PlayType.VIOLATION));
+		
+		rules.add(new PlayClassifier.Rule(subRegex, "SUB: ", PlayType.SUBSTITUTION));
+
+		rules.add(new PlayClassifier.Rule(timeoutRegex, " Timeout: ", PlayType.TIMEOUT));
+		playTypeRules = Collections.unmodifiableList(rules);
+		playTypeParsing = new PlayClassifier(rules);
+	}
+
+	private PlayByPlayParser(){}
+
+	/**Returns the rules used to classify plays, in order of precedence.
+	@return the rules used to classify plays, in order of precedence.
+	*/
+	static List<PlayClassifier.Rule> rules(){
+		return playTypeRules;
+	}
+
+	/**Functional interface which constructs a source-specific Play from the parsed fields of a play.
+	@param <P> the type of Play constructed.
+	*/
+	@FunctionalInterface
+	interface PlayFactory<P extends Play> {
+		/**Constructs a Play with the given fields.
+		@param playLink The link associated with the unparsed play, or null if there is none.
+		@param playType The type of the play.
+		@param timestamp The time the play occurred.
+		@param team The team which committed the play.
+		@param score The score at the time of the play.
+		@param players The players involved in the play.
+		@return a Play with the given fields.
+		*/
+		P create(String playLink, PlayType playType, Timestamp timestamp, Team team, Score score, List<? extends Player> players);
+	}
+
+	/**Returns the number of unparsed plays in rawPlays.
+	@param rawPlays The unparsed plays, grouped by time.
+	@throws NullPointerException if rawPlays is null.
+	@return the number of unparsed plays in rawPlays.
+	*/
+	static long countPlays(SortedMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>> rawPlays){
+		long answer = 0;
+		for(Pair<List<UnparsedPlay>, List<UnparsedPlay>> p : rawPlays.values()){
+			answer += p.first().size() + p.second().size();
+		}
+		return answer;
+	}
+
+	/**Parses every play in rawPlays, keeping track of the score as it goes.<br>
+	Player names are resolved against the given rosters.
+	@param rawPlays The unparsed plays, grouped by time. The first list of each pair holds the away team's plays.
+	@param awayPlayers The away team's players.
+	@param homePlayers The home team's players.
+	@param awayTeam The away team.
+	@param homeTeam The home team.
+	@param factory Used to construct each parsed play.
+	@throws NullPointerException if any parameter is null.
+	@return a list of every parsed play, in order of time.
+	*/
+	static <P extends Play> List<P> parseAllPlays(SortedMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>> rawPlays,
+		Collection<? extends Player> awayPlayers, Collection<? extends Player> homePlayers, Team awayTeam, Team homeTeam, PlayFactory<? extends P> factory){
+		List<P> plays = new ArrayList<P>();
+		RosterIndex awayIndex = new RosterIndex(awayPlayers);
+		RosterIndex homeIndex = new RosterIndex(homePlayers);
+		Score score = new Score(0, 0);
+		for(Timestamp t : rawPlays.keySet()){
+			Pair<List<UnparsedPlay>, List<UnparsedPlay>> unparsedPlayGroup = rawPlays.get(t);
+			
+			Collection<P> pls = parsePlays(unparsedPlayGroup, awayIndex, homeIndex, awayTeam, t, score, factory);
+			Collection<P> plsr = parsePlays(unparsedPlayGroup.reversePair(), homeIndex, awayIndex, homeTeam, t, score.reverseScore(), factory);
+			/*if(pls.size() + plsr.size() < unparsedPlayGroup.first().size() + unparsedPlayGroup.second().size()){
+				logging.warning("Match not found for a play in: " + unparsedPlayGroup);
+			}*/
+
+			for(P p : pls){
+				score = addToScore(p.getType(), score);
+			}
+			for(P p : plsr){
+				score = addToScore(p.getType(), score.reverseScore()).reverseScore();
+			}
+			
+			plays.addAll(pls);
+			plays.addAll(plsr);
+		}
+		return plays;
+	}
+
+	//Parses all plays contained in unparsedPlayGroup
+	private static <P extends Play> Collection<P> parsePlays(Pair<List<UnparsedPlay>, List<UnparsedPlay>> unparsedPlayGroup, 
+				RosterIndex firstPlayers, RosterIndex secondPlayers, Team team, Timestamp timestamp, Score score, PlayFactory<? extends P> factory){
+		
+		Collection<P> newPlays = new ArrayList<P>();
+		for(int i = 0; i < unparsedPlayGroup.first().size(); i++){
+			UnparsedPlay unparsedPlay = unparsedPlayGroup.first().get(i);
+			String otherPlay = i < unparsedPlayGroup.second().size() ? unparsedPlayGroup.second().get(i).rawPlay : null;
+			List<PlayClassifier.Classification> classifications = playTypeParsing.classify(unparsedPlay.rawPlay, otherPlay);
+			for(PlayClassifier.Classification c : classifications){
+				List<String> playerLastNames = c.names();
+				List<Player> players = new ArrayList<Player>(playerLastNames.size());
+				for(int j = 0; j < playerLastNames.size(); j++){
+					players.add(guessPlayer(playerLastNames.get(j), firstPlayers, secondPlayers));
+				}
+				newPlays.add(factory.create(unparsedPlay.playLink, c.playType(), timestamp, team, score, players));
+			}
+			if(classifications.isEmpty()){
+				logging.warning("No match found for " + unparsedPlay);
+			}
+		}
+		return newPlays;
+	}
+
+	//Returns the player with the given name, as written in a play description.
+	//Exact matches on the committing team take precedence over exact matches on the other team, which take precedence over partial matches.
+	private static Player guessPlayer(String name, RosterIndex firstPlayers, RosterIndex secondPlayers){
+		name = name.toLowerCase();
+		Player answer = firstPlayers.exactMatch(name);
+		if(answer == null){
+			answer = secondPlayers.exactMatch(name);
+		}
+		if(answer == null){
+			answer = firstPlayers.partialMatch(name);
+		}
+		if(answer == null){
+			answer = secondPlayers.partialMatch(name);
+		}
+		if(answer == null){
+			logging.warning("Player not found: " + name);
+			return Player.get("", "");
+		}
+		return answer;
+	}
+
+	private static Score addToScore(PlayType pt, Score score){
+		if(pt.hasSupertype(PlayType.THREE_POINTER_MADE)){
+			return score.addToThisTeamsPoints(3);
+		} else if(pt.hasSupertype(PlayType.FIELD_GOAL_MADE)){
+			return score.addToThisTeamsPoints(2);
+		} else if(pt.hasSupertype(PlayType.FREE_THROW_MADE)){
+			return score.addToThisTeamsPoints(1);
+		} else {
+			return score;
+		}
+	}
+
+	/**Class used to hold a String representing an unparsed play, as well as a video link to the play.
+	*/
+	static class UnparsedPlay {
+		private final String rawPlay;
+		private final String playLink;
+
+		/**Constructs an UnparsedPlay with the given description and link.
+		@param s The description of the play.
+		@param v A link to the play's video, or null if there is none.
+		*/
+		UnparsedPlay(String s, String v){
+			rawPlay = s;
+			playLink = v;
+		}
+		
+		@Override
+		public String toString() {
+			return rawPlay;
+		}
+	}
+}
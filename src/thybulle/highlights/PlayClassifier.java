@@ -0,0 +1,285 @@
+package thybulle.highlights;
+
+import java.util.*;
+import java.util.regex.*;
+
+/**Immutable class which classifies play descriptions as PlayTypes.<br>
+A PlayClassifier is constructed from an ordered list of rules. Each rule consists of a regex, a PlayType, and a keyword:
+a literal String which appears in every description the regex matches.<br>
+Some rules also have a second regex and keyword, which must match the other team's simultaneous play. For example, an and one is a made field goal by one team and a shooting foul by the other.<br>
+Classifying a description scans it once with an automaton built from every rule's keyword. Only rules whose keywords were found are considered, in order.<br>
+A rule is skipped if the description has already matched a rule whose PlayType is a subtype of the rule's PlayType.<br>
+The result is the same as trying every rule's regex in order, but only the regexes of rules whose keywords occur in the description are tried.
+@author Owen Kulik
+*/
+
+class PlayClassifier {
+	private static final int ALPHABET_SIZE = 128;
+
+	private final List<Rule> rules;
+	//Ids of each rule's first and second keywords, indexed the same as rules. Rules without a second regex have a second keyword id of -1.
+	private final int[] firstKeywordIds;
+	private final int[] secondKeywordIds;
+	//For each keyword, the rules which have that keyword as their first keyword.
+	private final BitSet[] rulesByKeyword;
+	//Keyword automaton. transitions[state][c] is the next state after reading c. Non-ASCII characters return to the start state.
+	private final int[][] transitions;
+	//For each state, the keywords which have been found upon reaching that state.
+	private final int[][] outputs;
+
+	//RI: rules, rulesByKeyword, transitions and outputs are non-null. Every keyword is non-empty and ASCII.
+	//AF: Represents the rules in order. transitions and outputs form an Aho-Corasick automaton over the rules' keywords.
+
+	/**Constructs a PlayClassifier from the given rules. Rules earlier in the list take precedence.
+	@param rules The rules.
+	@throws NullPointerException if rules is null, or any rule is null.
+	@throws IllegalArgumentException if any keyword is empty or contains a non-ASCII character.
+	*/
+	PlayClassifier(List<Rule> rules){
+		this.rules = List.copyOf(rules);
+		Map<String, Integer> keywordIds = new LinkedHashMap<String, Integer>();
+		this.firstKeywordIds = new int[this.rules.size()];
+		this.secondKeywordIds = new int[this.rules.size()];
+		for(int i = 0; i < this.rules.size(); i++){
+			Rule r = this.rules.get(i);
+			firstKeywordIds[i] = keywordId(keywordIds, r.firstKeyword);
+			secondKeywordIds[i] = r.second == null ? -1 : keywordId(keywordIds, r.secondKeyword);
+		}
+		this.rulesByKeyword = new BitSet[keywordIds.size()];
+		for(int i = 0; i < rulesByKeyword.length; i++){
+			rulesByKeyword[i] = new BitSet(this.rules.size());
+		}
+		for(int i = 0; i < this.rules.size(); i++){
+			rulesByKeyword[firstKeywordIds[i]].set(i);
+		}
+
+		//Build the trie of keywords.
+		List<int[]> trie = new ArrayList<int[]>();
+		List<Set<Integer>> found = new ArrayList<Set<Integer>>();
+		trie.add(newState());
+		found.add(new TreeSet<Integer>());
+		for(Map.Entry<String, Integer> keyword : keywordIds.entrySet()){
+			int state = 0;
+			for(char c : keyword.getKey().toCharArray()){
+				if(trie.get(state)[c] == -1){
+					trie.get(state)[c] = trie.size();
+					trie.add(newState());
+					found.add(new TreeSet<Integer>());
+				}
+				state = trie.get(state)[c];
+			}
+			found.get(state).add(keyword.getValue());
+		}
+
+		//Breadth first, fill in missing transitions using failure links so that scanning never backtracks.
+		int[] failure = new int[trie.size()];
+		Deque<Integer> queue = new ArrayDeque<Integer>();
+		for(int c = 0; c < ALPHABET_SIZE; c++){
+			int next = trie.get(0)[c];
+			if(next == -1){
+				trie.get(0)[c] = 0;
+			} else {
+				failure[next] = 0;
+				queue.add(next);
+			}
+		}
+		while(!queue.isEmpty()){
+			int state = queue.poll();
+			found.get(state).addAll(found.get(failure[state]));
+			for(int c = 0; c < ALPHABET_SIZE; c++){
+				int next = trie.get(state)[c];
+				if(next == -1){
+					trie.get(state)[c] = trie.get(failure[state])[c];
+				} else {
+					failure[next] = trie.get(failure[state])[c];
+					queue.add(next);
+				}
+			}
+		}
+
+		this.transitions = trie.toArray(new int[trie.size()][]);
+		this.outputs = new int[found.size()][];
+		for(int i = 0; i < found.size(); i++){
+			outputs[i] = found.get(i).stream().mapToInt(Integer::intValue).toArray();
+		}
+	}
+
+	//Returns the id of the given keyword, assigning it a new id if it does not have one.
+	private static int keywordId(Map<String, Integer> keywordIds, String keyword){
+		if(keyword.isEmpty()){
+			throw new IllegalArgumentException("Keyword was empty.");
+		}
+		for(char c : keyword.toCharArray()){
+			if(c >= ALPHABET_SIZE){
+				throw new IllegalArgumentException("Keyword contained a non-ASCII character: " + keyword);
+			}
+		}
+		return keywordIds.computeIfAbsent(keyword, k -> keywordIds.size());
+	}
+
+	//Returns a new trie state with no transitions.
+	private static int[] newState(){
+		int[] state = new int[ALPHABET_SIZE];
+		Arrays.fill(state, -1);
+		return state;
+	}
+
+	//Scans the description once, and returns the set of keywords which appear in it.
+	private BitSet scan(String description){
+		BitSet answer = new BitSet(rulesByKeyword.length);
+		int state = 0;
+		for(int i = 0; i < description.length(); i++){
+			char c = description.charAt(i);
+			state = c < ALPHABET_SIZE ? transitions[state][c] : 0;
+			for(int keyword : outputs[state]){
+				answer.set(keyword);
+			}
+		}
+		return answer;
+	}
+
+	/**Classifies the given play description.<br>
+	Returns every PlayType the description matched, in the order of this classifier's rules, along with the player names captured by each match.
+	@param description The description to classify.
+	@param other The other team's play at the same time, or null if there is no such play.
+	@throws NullPointerException if description is null.
+	@return a list of classifications of the description. The list is empty if no rule matched.
+	*/
+	List<Classification> classify(String description, String other){
+		BitSet keywords = scan(description);
+		BitSet candidates = new BitSet(rules.size());
+		for(int k = keywords.nextSetBit(0); k >= 0; k = keywords.nextSetBit(k + 1)){
+			candidates.or(rulesByKeyword[k]);
+		}
+		BitSet otherKeywords = null;
+		List<Classification> answer = new ArrayList<Classification>();
+		eachRule: for(int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)){
+			Rule rule = rules.get(i);
+			for(Classification c : answer){
+				if(c.playType.hasSupertype(rule.playType)){
+					continue eachRule;
+				}
+			}
+			if(rule.second != null){
+				if(other == null){
+					continue;
+				}
+				if(otherKeywords == null){
+					otherKeywords = scan(other);
+				}
+				if(!otherKeywords.get(secondKeywordIds[i])){
+					continue;
+				}
+			}
+			Matcher matcher = rule.first.matcher(description);
+			if(!matcher.matches()){
+				continue;
+			}
+			List<String> names = new ArrayList<String>(groups(matcher));
+			if(rule.second != null){
+				Matcher matcher2 = rule.second.matcher(other);
+				if(!matcher2.matches()){
+					continue;
+				}
+				names.addAll(groups(matcher2));
+			}
+			answer.add(new Classification(rule.playType, names));
+		}
+		return answer;
+	}
+
+	//Returns all groups captured by the matcher, in order.
+	private static List<String> groups(Matcher m){
+		List<String> answer = new ArrayList<String>(m.groupCount());
+		for(int i = 1; i <= m.groupCount(); i++){
+			answer.add(m.group(i));
+		}
+		return answer;
+	}
+
+	/**Immutable class representing a single rule used to classify plays.
+	*/
+	static class Rule {
+		private final Pattern first;
+		private final String firstKeyword;
+		private final Pattern second;
+		private final String secondKeyword;
+		private final PlayType playType;
+
+		/**Constructs a Rule which classifies descriptions matching firstRegex as playType.
+		@param firstRegex The regex. Each of its groups should capture a player's name.
+		@param firstKeyword A literal which appears in every description firstRegex matches.
+		@param playType The PlayType.
+		@throws NullPointerException if any parameter is null.
+		*/
+		Rule(String firstRegex, String firstKeyword, PlayType playType){
+			this(firstRegex, firstKeyword, null, null, playType);
+		}
+
+		/**Constructs a Rule which classifies descriptions matching firstRegex as playType, if the other team's simultaneous play matches secondRegex.
+		@param firstRegex The regex. Each of its groups should capture a player's name.
+		@param firstKeyword A literal which appears in every description firstRegex matches.
+		@param secondRegex The regex for the other team's play, or null if there is none.
+		@param secondKeyword A literal which appears in every description secondRegex matches. Can be null if secondRegex is null.
+		@param playType The PlayType.
+		@throws NullPointerException if firstRegex, firstKeyword or playType is null, or if secondRegex is not null and secondKeyword is null.
+		*/
+		Rule(String firstRegex, String firstKeyword, String secondRegex, String secondKeyword, PlayType playType){
+			if(firstKeyword == null || playType == null || (secondRegex != null && secondKeyword == null)){
+				throw new NullPointerException();
+			}
+			this.first = Pattern.compile(firstRegex);
+			this.firstKeyword = firstKeyword;
+			this.second = secondRegex == null ? null : Pattern.compile(secondRegex);
+			this.secondKeyword = secondKeyword;
+			this.playType = playType;
+		}
+
+		/**Returns the regex which the description must match.
+		@return the regex which the description must match.
+		*/
+		String firstRegex(){
+			return first.pattern();
+		}
+
+		/**Returns the regex which the other team's simultaneous play must match, or null if there is none.
+		@return the regex which the other team's simultaneous play must match, or null if there is none.
+		*/
+		String secondRegex(){
+			return second == null ? null : second.pattern();
+		}
+
+		/**Returns the PlayType of descriptions which match this rule.
+		@return the PlayType of descriptions which match this rule.
+		*/
+		PlayType playType(){
+			return playType;
+		}
+	}
+
+	/**Immutable class representing a single classification of a play description.
+	*/
+	static class Classification {
+		private final PlayType playType;
+		private final List<String> names;
+
+		private Classification(PlayType playType, List<String> names){
+			this.playType = playType;
+			this.names = Collections.unmodifiableList(new ArrayList<String>(names));
+		}
+
+		/**Returns the PlayType of this classification.
+		@return the PlayType of this classification.
+		*/
+		PlayType playType(){
+			return playType;
+		}
+
+		/**Returns the player names captured by this classification, in order.
+		@return the player names captured by this classification, in order.
+		*/
+		List<String> names(){
+			return names;
+		}
+	}
+}
@@ -0,0 +1,383 @@
+package thybulle.highlights;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import org.json.*;
+
+/**Class which encodes the plays of a game in a compact binary format, and decodes them again.<br>
+Stored plays used to be JSON objects whose fields were strings, so loading them required parsing every play type, timestamp, score, team and player name.
+In this format, every field is a small integer, so decoding a game is a sequence of primitive reads from a buffer, which may be a memory-mapped file.<br>
+The format, in which all integers are big-endian, is:
+<ul>
+	<li>Header: the int MAGIC, the short VERSION, and the int number of plays.</li>
+	<li>Play type table: a byte count, followed by the name of each play type used.</li>
+	<li>Team table: a byte count, followed by the name of each team used.</li>
+	<li>Player table: an unsigned short count, followed by the first and last name of each player used. A player with no first name has a first name of length NO_STRING, while a player whose first name is empty has a first name of length 0.</li>
+	<li>Link table: an int count, followed by each play link. To save space, each link is stored as the unsigned short number of characters it shares with the previous link, followed by the rest of the link.</li>
+	<li>Plays: RECORD_SIZE bytes for each play, in order. These are the byte index of its type, the byte quarter, the short seconds remaining in the quarter,
+	the byte index of its team, an unused byte, the short points of its team and of the other team, the int index of its link or -1 if it has none,
+	and the unsigned short index of each of its players, with unused player slots being zero.</li>
+</ul>
+Strings are stored as their unsigned short length in bytes, followed by their UTF-8 encoding.
+Play types are stored by name in the play type table, rather than by ordinal, so that adding a play type does not change the meaning of existing data.
+@author Owen Kulik
+*/
+
+final class PlayCodec {
+	static final int MAGIC = 0x4E424150;
+	static final short VERSION = 1;
+	static final int RECORD_SIZE = 18;
+	private static final int MAX_PLAYERS = 2;
+	private static final int NO_STRING = 0xFFFF;
+
+	private PlayCodec(){}
+
+	/**Returns the plays encoded in the given buffer, constructed using the given factory.<br>
+	The buffer is read from its current position, which is not modified.
+	@param <P> the type of Play constructed.
+	@param encoded The encoded plays.
+	@param factory Constructs each play.
+	@throws NullPointerException if any parameter is null.
+	@throws IllegalArgumentException if the buffer does not contain plays in this format, or they are from a newer version of this format.
+	@return the plays encoded in the given buffer, in order.
+	*/
+	static <P extends Play> List<P> decode(ByteBuffer encoded, PlayByPlayParser.PlayFactory<? extends P> factory){
+		ByteBuffer in = encoded.duplicate();
+		try{
+			Tables t = readTables(in);
+			List<P> answer = new ArrayList<P>(t.count);
+			for(int i = 0; i < t.count; i++){
+				PlayType type = t.types[Byte.toUnsignedInt(in.get())];
+				int quarter = Byte.toUnsignedInt(in.get());
+				int timeRemaining = in.getShort();
+				Team team = t.teams[Byte.toUnsignedInt(in.get())];
+				in.get();
+				Score score = new Score(in.getShort(), in.getShort());
+				int link = in.getInt();
+				List<Player> playPlayers = new ArrayList<Player>(type.getNumberOfPlayers());
+				for(int j = 0; j < MAX_PLAYERS; j++){
+					int player = Short.toUnsignedInt(in.getShort());
+					if(j < type.getNumberOfPlayers()){
+						playPlayers.add(t.players[player]);
+					}
+				}
+				answer.add(factory.create(link == -1 ? null : t.links[link], type, new Timestamp(quarter, timeRemaining), team, score, playPlayers));
+			}
+			return answer;
+		} catch(BufferUnderflowException | IndexOutOfBoundsException | NullPointerException e){
+			throw new IllegalArgumentException("Encoded plays were truncated or malformed.", e);
+		}
+	}
+
+	/**Passes the type, team and players of each play encoded in the given buffer to the given visitor, in order.<br>
+	The timestamps, scores and links of the plays are skipped, and no Play objects are constructed, so this is faster than decoding the plays.<br>
+	The buffer is read from its current position, which is not modified.
+	@param encoded The encoded plays.
+	@param visitor Receives the fields of each play.
+	@throws NullPointerException if any parameter is null.
+	@throws IllegalArgumentException if the buffer does not contain plays in this format, or they are from a newer version of this format.
+	If this is thrown, the visitor may already have received some plays.
+	@return the number of plays encoded in the given buffer.
+	*/
+	static int visit(ByteBuffer encoded, PlayVisitor visitor){
+		if(visitor == null){
+			throw new NullPointerException();
+		}
+		ByteBuffer in = encoded.duplicate();
+		try{
+			Tables t = readTables(in);
+			for(int i = 0; i < t.count; i++){
+				int record = t.recordStart + i * RECORD_SIZE;
+				PlayType type = t.types[Byte.toUnsignedInt(in.get(record))];
+				Team team = t.teams[Byte.toUnsignedInt(in.get(record + 4))];
+				List<Player> playPlayers = new ArrayList<Player>(type.getNumberOfPlayers());
+				for(int j = 0; j < type.getNumberOfPlayers(); j++){
+					playPlayers.add(t.players[Short.toUnsignedInt(in.getShort(record + RECORD_SIZE - 2 * (MAX_PLAYERS - j)))]);
+				}
+				visitor.visit(i, type, team, playPlayers);
+			}
+			return t.count;
+		} catch(BufferUnderflowException | IndexOutOfBoundsException | NullPointerException e){
+			throw new IllegalArgumentException("Encoded plays were truncated or malformed.", e);
+		}
+	}
+
+	/**Returns the links of the plays encoded in the given buffer. Only the header and tables are read, so this is much faster than decoding the plays.<br>
+	The buffer is read from its current position, which is not modified.
+	@param encoded The encoded plays.
+	@throws NullPointerException if encoded is null.
+	@throws IllegalArgumentException if the buffer does not contain plays in this format, or they are from a newer version of this format.
+	@return the links of the plays encoded in the given buffer.
+	*/
+	static Set<String> links(ByteBuffer encoded){
+		try{
+			return new HashSet<String>(Arrays.asList(readTables(encoded.duplicate()).links));
+		} catch(BufferUnderflowException | IndexOutOfBoundsException | NullPointerException e){
+			throw new IllegalArgumentException("Encoded plays were truncated or malformed.", e);
+		}
+	}
+
+	/**Returns the players in the plays encoded in the given buffer. Only the header and tables are read, so this is much faster than decoding the plays.<br>
+	The buffer is read from its current position, which is not modified.
+	@param encoded The encoded plays.
+	@throws NullPointerException if encoded is null.
+	@throws IllegalArgumentException if the buffer does not contain plays in this format, or they are from a newer version of this format.
+	@return the players in the plays encoded in the given buffer.
+	*/
+	static Set<Player> players(ByteBuffer encoded){
+		try{
+			return new HashSet<Player>(Arrays.asList(readTables(encoded.duplicate()).players));
+		} catch(BufferUnderflowException | IndexOutOfBoundsException | NullPointerException e){
+			throw new IllegalArgumentException("Encoded plays were truncated or malformed.", e);
+		}
+	}
+
+	//Reads the header and tables, leaving the buffer positioned at the first record.
+	//Throws IllegalArgumentException if the buffer is too short to hold every record.
+	private static Tables readTables(ByteBuffer in){
+		Tables answer = new Tables();
+		answer.count = readHeader(in);
+		answer.types = new PlayType[Byte.toUnsignedInt(in.get())];
+		for(int i = 0; i < answer.types.length; i++){
+			answer.types[i] = PlayType.valueOf(readString(in));
+		}
+		answer.teams = new Team[Byte.toUnsignedInt(in.get())];
+		for(int i = 0; i < answer.teams.length; i++){
+			answer.teams[i] = Team.get(readString(in));
+		}
+		answer.players = new Player[Short.toUnsignedInt(in.getShort())];
+		for(int i = 0; i < answer.players.length; i++){
+			String first = readString(in);
+			answer.players[i] = Player.get(first, readString(in));
+		}
+		answer.links = new String[in.getInt()];
+		String previous = "";
+		for(int i = 0; i < answer.links.length; i++){
+			int shared = Short.toUnsignedInt(in.getShort());
+			answer.links[i] = previous.substring(0, shared) + readString(in);
+			previous = answer.links[i];
+		}
+		if(answer.count < 0 || in.remaining() < (long)answer.count * RECORD_SIZE){
+			throw new IllegalArgumentException("Encoded plays were truncated.");
+		}
+		answer.recordStart = in.position();
+		return answer;
+	}
+
+	//The tables of a buffer of encoded plays, and the number and position of its records.
+	private static final class Tables {
+		private int count;
+		private PlayType[] types;
+		private Team[] teams;
+		private Player[] players;
+		private String[] links;
+		private int recordStart;
+	}
+
+	//Reads the header, and returns the number of plays.
+	private static int readHeader(ByteBuffer in){
+		if(in.getInt() != MAGIC){
+			throw new IllegalArgumentException("Not encoded plays.");
+		}
+		short version = in.getShort();
+		if(version > VERSION){
+			throw new IllegalArgumentException("Encoded plays are from a newer version: " + version);
+		}
+		return in.getInt();
+	}
+
+	/**Encodes plays stored in the JSON format used by older versions of this program.<br>
+	Each play is an object with the keys "playlink", which may be null, "type", "time", "team", "score", and "players", an array of player names.
+	@param plays The plays.
+	@throws NullPointerException if plays is null.
+	@throws JSONException if a play is missing a key.
+	@throws IllegalArgumentException if a field of a play could not be parsed.
+	@return the encoded plays.
+	*/
+	static byte[] fromJSON(JSONArray plays){
+		Encoder answer = new Encoder();
+		for(int i = 0; i < plays.length(); i++){
+			JSONObject play = plays.getJSONObject(i);
+			JSONArray arr = play.getJSONArray("players");
+			List<Player> players = new ArrayList<Player>(arr.length());
+			for(int j = 0; j < arr.length(); j++){
+				players.add(Player.parse(arr.getString(j)));
+			}
+			answer.add(play.isNull("playlink") ? null : play.getString("playlink"), PlayType.parse(play.getString("type")), Timestamp.parse(play.getString("time")),
+				Team.get(play.getString("team")), Score.parse(play.getString("score")), players);
+		}
+		return answer.toBytes();
+	}
+
+	private static String readString(ByteBuffer in){
+		int length = Short.toUnsignedInt(in.getShort());
+		if(length == NO_STRING){
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if(s == null){
+			out.writeShort(NO_STRING);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		if(bytes.length >= NO_STRING){
+			throw new IllegalArgumentException("String was too long to encode: " + s);
+		}
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	/**Functional interface which receives the fields of encoded plays which are needed to index them.
+	*/
+	@FunctionalInterface
+	interface PlayVisitor {
+		/**Receives the fields of a play.
+		@param ordinal The position of the play in its game's list of plays.
+		@param playType The type of the play.
+		@param team The team which committed the play.
+		@param players The players involved in the play.
+		*/
+		void visit(int ordinal, PlayType playType, Team team, List<Player> players);
+	}
+
+	/**Class which encodes the plays of a game, one at a time.
+	*/
+	static final class Encoder {
+		private final Map<PlayType, Integer> types = new LinkedHashMap<PlayType, Integer>();
+		private final Map<Team, Integer> teams = new LinkedHashMap<Team, Integer>();
+		private final Map<Player, Integer> players = new LinkedHashMap<Player, Integer>();
+		private final List<String> links = new ArrayList<String>();
+		private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+		private final DataOutputStream recordsOut = new DataOutputStream(records);
+		private int count = 0;
+
+		//RI: the values of types, teams and players are their insertion indices. records contains count records.
+		//AF: Represents the encoding of count plays, whose types, teams, players and links are in the tables.
+
+		/**Adds a play with the given fields.
+		@param playLink The link of the play, or null if it has none.
+		@param playType The type of the play.
+		@param timestamp The time the play occurred.
+		@param team The team which committed the play.
+		@param score The score at the time of the play.
+		@param playPlayers The players involved in the play.
+		@throws NullPointerException if any parameter other than playLink is null.
+		@throws IllegalArgumentException if the play cannot be encoded, because it has too many players, or a game has too many distinct play types, teams or players.
+		*/
+		void add(String playLink, PlayType playType, Timestamp timestamp, Team team, Score score, List<? extends Player> playPlayers){
+			if(playPlayers.size() > MAX_PLAYERS){
+				throw new IllegalArgumentException("Play had more than " + MAX_PLAYERS + " players.");
+			}
+			if(timestamp.getQuarter() > 0xFF){
+				throw new IllegalArgumentException("Quarter was too large to encode.");
+			}
+			checkPoints(score.getThisTeamsPoints());
+			checkPoints(score.getOtherTeamsPoints());
+			int type = index(types, playType, 0xFF);
+			int teamIndex = index(teams, team, 0xFF);
+			int[] playerIndices = new int[MAX_PLAYERS];
+			for(int i = 0; i < playPlayers.size(); i++){
+				playerIndices[i] = index(players, playPlayers.get(i), NO_STRING);
+			}
+			try{
+				recordsOut.writeByte(type);
+				recordsOut.writeByte(timestamp.getQuarter());
+				recordsOut.writeShort(timestamp.getTimeRemaining());
+				recordsOut.writeByte(teamIndex);
+				recordsOut.writeByte(0);
+				recordsOut.writeShort(score.getThisTeamsPoints());
+				recordsOut.writeShort(score.getOtherTeamsPoints());
+				if(playLink == null){
+					recordsOut.writeInt(-1);
+				} else {
+					recordsOut.writeInt(links.size());
+					links.add(playLink);
+				}
+				for(int i : playerIndices){
+					recordsOut.writeShort(i);
+				}
+			} catch(IOException e){
+				//ByteArrayOutputStream does not throw IOException.
+				throw new AssertionError(e);
+			}
+			count++;
+		}
+
+		//Returns the index of the given value in the given table, adding it if necessary.
+		private static <T> int index(Map<T, Integer> table, T value, int limit){
+			if(value == null){
+				throw new NullPointerException();
+			}
+			Integer answer = table.get(value);
+			if(answer == null){
+				if(table.size() >= limit){
+					throw new IllegalArgumentException("Too many distinct values to encode.");
+				}
+				answer = table.size();
+				table.put(value, answer);
+			}
+			return answer;
+		}
+
+		private static void checkPoints(int points){
+			if(points > Short.MAX_VALUE){
+				throw new IllegalArgumentException("Score was too large to encode.");
+			}
+		}
+
+		/**Returns the encoding of the plays added so far.
+		@return the encoding of the plays added so far.
+		*/
+		byte[] toBytes(){
+			ByteArrayOutputStream answer = new ByteArrayOutputStream(records.size() + 1024);
+			DataOutputStream out = new DataOutputStream(answer);
+			try{
+				out.writeInt(MAGIC);
+				out.writeShort(VERSION);
+				out.writeInt(count);
+				out.writeByte(types.size());
+				for(PlayType pt : types.keySet()){
+					writeString(out, pt.name());
+				}
+				out.writeByte(teams.size());
+				for(Team t : teams.keySet()){
+					writeString(out, t.name());
+				}
+				out.writeShort(players.size());
+				for(Player p : players.keySet()){
+					writeString(out, p.firstNameOrNull());
+					writeString(out, p.lastName());
+				}
+				out.writeInt(links.size());
+				String previous = "";
+				for(String link : links){
+					int shared = 0;
+					int limit = Math.min(Math.min(previous.length(), link.length()), NO_STRING - 1);
+					while(shared < limit && previous.charAt(shared) == link.charAt(shared)){
+						shared++;
+					}
+					if(shared > 0 && Character.isHighSurrogate(link.charAt(shared - 1))){
+						shared--;
+					}
+					out.writeShort(shared);
+					writeString(out, link.substring(shared));
+					previous = link;
+				}
+				records.writeTo(out);
+			} catch(IOException e){
+				//ByteArrayOutputStream does not throw IOException.
+				throw new AssertionError(e);
+			}
+			return answer.toByteArray();
+		}
+	}
+}
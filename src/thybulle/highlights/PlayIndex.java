@@ -0,0 +1,380 @@
+package thybulle.highlights;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.*;
+
+import thybulle.misc.*;
+
+/**Class representing an inverted index of the plays of a set of games.<br>
+For each player, team and play type, the index holds a posting list: the games whose plays involve it,
+and for each such game, the set of ordinals of those plays, which are their positions in the game's list of plays.<br>
+A constraint made of Players, Teams and PlayTypes, combined by And, Or and Not constraints, can then be evaluated against a game
+by intersecting, uniting and complementing its posting lists, without reading the game's plays.
+Other constraints cannot be evaluated this way, so for each game, the index finds the plays which certainly satisfy a constraint,
+and the plays which may satisfy it. Plays which may satisfy it still need to be tested.<br>
+Play types are indexed by their own type only. A PlayType constraint is satisfied by plays of any of its subtypes, so the posting lists of each of its subtypes are united.<br>
+An index can be written to and read from a compact binary format, in which all integers are big-endian:
+the int MAGIC, the short VERSION, the int number of games, then the date, away team and home team of each game followed by its int number of plays,
+then the int number of terms, and for each term, its name, the int number of games in its posting list, and for each game, its int index in the list of games,
+the unsigned short number of ordinals, and each unsigned short ordinal.
+Strings are stored as their unsigned short length in bytes, followed by their UTF-8 encoding.<br>
+This class is not thread safe.
+@author Owen Kulik
+*/
+
+public final class PlayIndex {
+	static final int MAGIC = 0x4E424149;
+	static final short VERSION = 1;
+
+	//The number of plays of each game in this index.
+	private final Map<GameInfo, Integer> games = new HashMap<GameInfo, Integer>();
+	//The posting list of each term. Each term is the name of a player, team or play type, prefixed by its kind.
+	private final Map<String, Map<GameInfo, BitSet>> postings = new HashMap<String, Map<GameInfo, BitSet>>();
+
+	//RI: games and postings are non-null. Every game in postings is a key of games, and every ordinal in a posting list is less than the game's number of plays.
+	//No posting list, and no set of ordinals, is empty.
+	//AF: Represents the plays of the games in games, which involve the players, teams and play types in postings.
+
+	/**Constructs an empty PlayIndex.
+	*/
+	PlayIndex(){}
+
+	/**Adds the given game to this index, replacing it if it is already in the index.
+	@param gi The game.
+	@param plays The game's plays, in order.
+	@throws NullPointerException if any parameter is null, or plays contains null.
+	*/
+	void put(GameInfo gi, List<? extends Play> plays){
+		remove(gi);
+		games.put(gi, plays.size());
+		for(int i = 0; i < plays.size(); i++){
+			Play p = plays.get(i);
+			add(term(p.getType()), gi, i);
+			add(term(p.getTeam()), gi, i);
+			for(Player player : p.getPlayers()){
+				add(term(player), gi, i);
+			}
+		}
+	}
+
+	/**Adds the given game to this index, replacing it if it is already in the index.
+	@param gi The game.
+	@param encoded The game's plays, encoded by PlayCodec.
+	@throws NullPointerException if any parameter is null.
+	@throws IllegalArgumentException if encoded does not contain plays encoded by PlayCodec.
+	*/
+	void put(GameInfo gi, ByteBuffer encoded){
+		if(gi == null){
+			throw new NullPointerException();
+		}
+		//Collected separately, so that this index is unchanged if the plays are malformed.
+		Map<String, BitSet> terms = new HashMap<String, BitSet>();
+		int plays = PlayCodec.visit(encoded, (ordinal, playType, team, players) -> {
+			terms.computeIfAbsent(term(playType), k -> new BitSet()).set(ordinal);
+			terms.computeIfAbsent(term(team), k -> new BitSet()).set(ordinal);
+			for(Player player : players){
+				terms.computeIfAbsent(term(player), k -> new BitSet()).set(ordinal);
+			}
+		});
+		remove(gi);
+		games.put(gi, plays);
+		for(Map.Entry<String, BitSet> e : terms.entrySet()){
+			postings.computeIfAbsent(e.getKey(), k -> new HashMap<GameInfo, BitSet>()).put(gi, e.getValue());
+		}
+	}
+
+	/**Removes the given game from this index, if it is in the index.
+	@param gi The game.
+	@throws NullPointerException if gi is null.
+	*/
+	void remove(GameInfo gi){
+		if(games.remove(gi) == null){
+			return;
+		}
+		for(Iterator<Map<GameInfo, BitSet>> it = postings.values().iterator(); it.hasNext();){
+			Map<GameInfo, BitSet> list = it.next();
+			list.remove(gi);
+			if(list.isEmpty()){
+				it.remove();
+			}
+		}
+	}
+
+	/**Adds the given games of the given index to this index, replacing any already in this index.
+	@param other The index.
+	@param gis The games to add. Games which are not in other are ignored.
+	@throws NullPointerException if any parameter is null.
+	*/
+	void putAll(PlayIndex other, Collection<GameInfo> gis){
+		Set<GameInfo> added = new HashSet<GameInfo>();
+		for(GameInfo gi : gis){
+			Integer plays = other.games.get(gi);
+			if(plays != null){
+				remove(gi);
+				games.put(gi, plays);
+				added.add(gi);
+			}
+		}
+		for(Map.Entry<String, Map<GameInfo, BitSet>> e : other.postings.entrySet()){
+			for(Map.Entry<GameInfo, BitSet> posting : e.getValue().entrySet()){
+				if(added.contains(posting.getKey())){
+					postings.computeIfAbsent(e.getKey(), k -> new HashMap<GameInfo, BitSet>()).put(posting.getKey(), (BitSet)posting.getValue().clone());
+				}
+			}
+		}
+	}
+
+	private void add(String term, GameInfo gi, int ordinal){
+		postings.computeIfAbsent(term, k -> new HashMap<GameInfo, BitSet>()).computeIfAbsent(gi, k -> new BitSet()).set(ordinal);
+	}
+
+	private static String term(PlayType pt){
+		return "type " + pt.name();
+	}
+
+	private static String term(Team t){
+		return "team " + t.name();
+	}
+
+	private static String term(Player p){
+		return "player " + p.firstName() + "|" + p.lastName();
+	}
+
+	/**Returns true if the given game is in this index.
+	@param gi The game.
+	@throws NullPointerException if gi is null.
+	@return true if the given game is in this index.
+	*/
+	public boolean covers(GameInfo gi){
+		if(gi == null){
+			throw new NullPointerException();
+		}
+		return games.containsKey(gi);
+	}
+
+	/**Returns the number of plays of the given game, or -1 if it is not in this index.
+	@param gi The game.
+	@throws NullPointerException if gi is null.
+	@return the number of plays of the given game.
+	*/
+	public int numberOfPlays(GameInfo gi){
+		if(gi == null){
+			throw new NullPointerException();
+		}
+		return games.getOrDefault(gi, -1);
+	}
+
+	/**Returns the number of games in this index.
+	@return the number of games in this index.
+	*/
+	public int numberOfGames(){
+		return games.size();
+	}
+
+	/**Returns the ordinals of the plays of the given game which may satisfy the given constraint, or null if the game is not in this index.<br>
+	Every play which satisfies the constraint is included, but if the constraint is not made only of Players, Teams, PlayTypes, and And, Or and Not constraints,
+	some plays which do not satisfy it may also be included.
+	@param c The constraint.
+	@param gi The game.
+	@throws NullPointerException if any parameter is null.
+	@return the ordinals of the plays of the given game which may satisfy the given constraint.
+	*/
+	public BitSet candidates(Constraint c, GameInfo gi){
+		if(c == null){
+			throw new NullPointerException();
+		}
+		return covers(gi) ? bounds(c, gi)[1] : null;
+	}
+
+	/**Returns the ordinals of the plays of the given game which certainly satisfy the given constraint, or null if the game is not in this index.<br>
+	If the constraint is not made only of Players, Teams, PlayTypes, and And, Or and Not constraints, some plays which satisfy it may not be included.
+	@param c The constraint.
+	@param gi The game.
+	@throws NullPointerException if any parameter is null.
+	@return the ordinals of the plays of the given game which certainly satisfy the given constraint.
+	*/
+	public BitSet certain(Constraint c, GameInfo gi){
+		if(c == null){
+			throw new NullPointerException();
+		}
+		return covers(gi) ? bounds(c, gi)[0] : null;
+	}
+
+	/**Returns the ordinals of the plays of the given game which certainly satisfy the given constraint, and of the plays which may satisfy it,
+	or null if the game is not in this index.<br>
+	The first BitSet is the same as certain(c, gi), and the second is the same as candidates(c, gi), but the constraint is only evaluated once.
+	@param c The constraint.
+	@param gi The game.
+	@throws NullPointerException if any parameter is null.
+	@return the ordinals of the plays which certainly satisfy the constraint, and of the plays which may satisfy it.
+	*/
+	Pair<BitSet, BitSet> certainAndCandidates(Constraint c, GameInfo gi){
+		if(c == null){
+			throw new NullPointerException();
+		}
+		if(!covers(gi)){
+			return null;
+		}
+		BitSet[] b = bounds(c, gi);
+		return new Pair<BitSet, BitSet>(b[0], b[1]);
+	}
+
+	//Returns the plays of the given game which certainly satisfy the given constraint, and the plays which may satisfy it. The game must be in this index.
+	private BitSet[] bounds(Constraint c, GameInfo gi){
+		int plays = games.get(gi);
+		if(c instanceof AndConstraint){
+			BitSet lower = all(plays);
+			BitSet upper = all(plays);
+			for(Constraint inner : ((AndConstraint)c).getConstraints()){
+				BitSet[] b = bounds(inner, gi);
+				lower.and(b[0]);
+				upper.and(b[1]);
+			}
+			return new BitSet[]{lower, upper};
+		} else if(c instanceof OrConstraint){
+			BitSet lower = new BitSet(plays);
+			BitSet upper = new BitSet(plays);
+			for(Constraint inner : ((OrConstraint)c).getConstraints()){
+				BitSet[] b = bounds(inner, gi);
+				lower.or(b[0]);
+				upper.or(b[1]);
+			}
+			return new BitSet[]{lower, upper};
+		} else if(c instanceof NotConstraint){
+			BitSet[] b = bounds(((NotConstraint)c).getConstraint(), gi);
+			b[0].flip(0, plays);
+			b[1].flip(0, plays);
+			return new BitSet[]{b[1], b[0]};
+		}
+		BitSet exact;
+		if(c instanceof Team){
+			exact = posting(term((Team)c), gi);
+		} else if(c instanceof Player){
+			exact = posting(term((Player)c), gi);
+		} else if(c instanceof PlayType){
+			exact = new BitSet(plays);
+			for(PlayType pt : PlayType.values()){
+				if(pt.hasSupertype((PlayType)c)){
+					exact.or(posting(term(pt), gi));
+				}
+			}
+		} else {
+			return new BitSet[]{new BitSet(plays), all(plays)};
+		}
+		return new BitSet[]{exact, (BitSet)exact.clone()};
+	}
+
+	//Returns a copy of the posting list of the given term for the given game.
+	private BitSet posting(String term, GameInfo gi){
+		BitSet answer = postings.getOrDefault(term, Map.of()).get(gi);
+		return answer == null ? new BitSet() : (BitSet)answer.clone();
+	}
+
+	private static BitSet all(int plays){
+		BitSet answer = new BitSet(plays);
+		answer.set(0, plays);
+		return answer;
+	}
+
+	/**Returns this index, in this class' binary format.
+	@throws IllegalArgumentException if a game has more than 65535 plays.
+	@return this index, in this class' binary format.
+	*/
+	ByteBuffer toBytes(){
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try{
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			List<GameInfo> order = new ArrayList<GameInfo>(new TreeSet<GameInfo>(games.keySet()));
+			Map<GameInfo, Integer> indices = new HashMap<GameInfo, Integer>();
+			out.writeInt(order.size());
+			for(GameInfo gi : order){
+				indices.put(gi, indices.size());
+				writeString(out, gi.date().toString());
+				writeString(out, gi.awayTeam().name());
+				writeString(out, gi.homeTeam().name());
+				out.writeInt(games.get(gi));
+			}
+			out.writeInt(postings.size());
+			for(Map.Entry<String, Map<GameInfo, BitSet>> e : new TreeMap<String, Map<GameInfo, BitSet>>(postings).entrySet()){
+				writeString(out, e.getKey());
+				out.writeInt(e.getValue().size());
+				for(Map.Entry<GameInfo, BitSet> posting : e.getValue().entrySet()){
+					BitSet ordinals = posting.getValue();
+					if(ordinals.length() > 0xFFFF){
+						throw new IllegalArgumentException("Game had too many plays to index: " + posting.getKey());
+					}
+					out.writeInt(indices.get(posting.getKey()));
+					out.writeShort(ordinals.cardinality());
+					for(int i = ordinals.nextSetBit(0); i >= 0; i = ordinals.nextSetBit(i + 1)){
+						out.writeShort(i);
+					}
+				}
+			}
+		} catch(IOException e){
+			//ByteArrayOutputStream does not throw IOException.
+			throw new AssertionError(e);
+		}
+		return ByteBuffer.wrap(bytes.toByteArray());
+	}
+
+	/**Reads an index in this class' binary format from the given buffer, starting at its current position, which is not modified.
+	@param encoded The index.
+	@throws NullPointerException if encoded is null.
+	@throws IllegalArgumentException if the buffer does not contain an index in this format, or it is from a newer version of this format.
+	@return the index.
+	*/
+	static PlayIndex read(ByteBuffer encoded){
+		ByteBuffer in = encoded.duplicate();
+		PlayIndex answer = new PlayIndex();
+		try{
+			if(in.getInt() != MAGIC){
+				throw new IllegalArgumentException("Not a play index.");
+			}
+			short version = in.getShort();
+			if(version > VERSION){
+				throw new IllegalArgumentException("Play index is from a newer version: " + version);
+			}
+			GameInfo[] order = new GameInfo[in.getInt()];
+			for(int i = 0; i < order.length; i++){
+				order[i] = new GameInfo(LocalDate.parse(readString(in)), Team.get(readString(in)), Team.get(readString(in)));
+				answer.games.put(order[i], in.getInt());
+			}
+			int terms = in.getInt();
+			for(int i = 0; i < terms; i++){
+				Map<GameInfo, BitSet> list = new HashMap<GameInfo, BitSet>();
+				answer.postings.put(readString(in), list);
+				int length = in.getInt();
+				for(int j = 0; j < length; j++){
+					GameInfo gi = order[in.getInt()];
+					BitSet ordinals = new BitSet();
+					int count = Short.toUnsignedInt(in.getShort());
+					for(int k = 0; k < count; k++){
+						ordinals.set(Short.toUnsignedInt(in.getShort()));
+					}
+					list.put(gi, ordinals);
+				}
+			}
+		} catch(BufferUnderflowException | IndexOutOfBoundsException | NullPointerException | DateTimeException e){
+			throw new IllegalArgumentException("Play index was truncated or malformed.", e);
+		}
+		return answer;
+	}
+
+	private static String readString(ByteBuffer in){
+		byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+}
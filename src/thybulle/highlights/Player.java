@@ -1,6 +1,7 @@
 package thybulle.highlights;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import thybulle.misc.*;
 
 /**Immutable class representing a player. <br>
@@ -13,7 +14,7 @@ public class Player implements Constraint, Comparable<Player> {
 	private final String firstName;
 	private final String lastName;
 
-	private static final Map<Pair<String, String>, Player> interning /*please hire me for an internship.*/ = new HashMap<Pair<String, String>, Player>();
+	private static final Map<Pair<String, String>, Player> interning /*please hire me for an internship.*/ = new ConcurrentHashMap<Pair<String, String>, Player>();
 
 	/*Constructs a player with first name first and last name last. If a player only has one name (ex Nene), first should be null.
 	*/
@@ -36,16 +37,9 @@ public class Player implements Constraint, Comparable<Player> {
 		if(last == null){
 			throw new NullPointerException();
 		}
-		first = first != null ? first.toLowerCase() : null;
-		last = last.toLowerCase();
-		Player p = interning.get(new Pair<String, String>(first, last));
-		if(p == null){
-			Player answer = new Player(first, last);
-			interning.put(new Pair<String, String>(first, last), answer);
-			return answer;
-		} else {
-			return p;
-		}
+		String lowerFirst = first != null ? first.toLowerCase() : null;
+		String lowerLast = last.toLowerCase();
+		return interning.computeIfAbsent(new Pair<String, String>(lowerFirst, lowerLast), k -> new Player(lowerFirst, lowerLast));
 	}
 
 	/**Parses and returns a Player object from the given String.<br>
@@ -80,6 +74,14 @@ public class Player implements Constraint, Comparable<Player> {
 		return firstName != null ? firstName : "";
 	}
 
+	/**Returns this player's first name, or null if the player does not have one.<br>
+	Unlike firstName(), this distinguishes a player with no first name from a player whose first name is empty, which are different players.
+	@return this player's first name, or null if the player does not have one.
+	*/
+	String firstNameOrNull(){
+		return firstName;
+	}
+
 	/**Returns this player's last name.
 	@return this player's first name.
 	*/
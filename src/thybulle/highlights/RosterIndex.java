@@ -0,0 +1,101 @@
+package thybulle.highlights;
+
+import static thybulle.highlights.HighlightsLogger.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**Class which finds players on a roster by the names used for them in play descriptions.<br>
+A name matches a player exactly if it is the player's last name or initialed name, and partially if either it or the player's last name contains the other.<br>
+Exact matches are found with a single hash lookup. Partial matches are found by looking up the name in an index of every substring of every last name,
+and looking up every substring of the name in an index of last names.<br>
+If several players match a name, the one which appears first in the roster is returned, and the ambiguity is logged the first time the name is looked up.<br>
+This class is thread safe.
+@author Owen Kulik
+*/
+
+class RosterIndex {
+	private final List<Player> players;
+	//Maps each last name and initialed name to the positions in players of the players with that name, in increasing order.
+	private final Map<String, List<Integer>> names = new HashMap<String, List<Integer>>();
+	//Maps each last name to the positions in players of the players with that last name, in increasing order.
+	private final Map<String, List<Integer>> lastNames = new HashMap<String, List<Integer>>();
+	//Maps each substring of each last name to the positions in players of the players whose last names contain it, in increasing order.
+	private final Map<String, List<Integer>> substrings = new HashMap<String, List<Integer>>();
+	//Names which have already been reported as ambiguous.
+	private final Set<String> reported = ConcurrentHashMap.newKeySet();
+
+	//RI: players, names, lastNames and substrings are non-null. Every position in the maps is a valid index of players.
+	//AF: Represents the roster players, in order.
+
+	/**Constructs a RosterIndex of the given players. Players earlier in the iteration order of roster take precedence.
+	@param roster The players.
+	@throws NullPointerException if roster is null or contains null.
+	*/
+	RosterIndex(Collection<? extends Player> roster){
+		this.players = List.copyOf(roster);
+		for(int i = 0; i < players.size(); i++){
+			Player p = players.get(i);
+			add(names, p.lastName(), i);
+			add(names, p.initialedName(), i);
+			add(lastNames, p.lastName(), i);
+			String last = p.lastName();
+			for(int start = 0; start <= last.length(); start++){
+				for(int end = start; end <= last.length(); end++){
+					add(substrings, last.substring(start, end), i);
+				}
+			}
+		}
+	}
+
+	//Adds position to the list of positions for key, unless it is already the last position in the list.
+	private static void add(Map<String, List<Integer>> map, String key, int position){
+		List<Integer> positions = map.computeIfAbsent(key, k -> new ArrayList<Integer>(1));
+		if(positions.isEmpty() || positions.get(positions.size() - 1) != position){
+			positions.add(position);
+		}
+	}
+
+	/**Returns the first player whose last name or initialed name is the given name, or null if there is no such player.
+	@param name The lowercase name.
+	@throws NullPointerException if name is null.
+	@return the first player whose last name or initialed name is the given name.
+	*/
+	Player exactMatch(String name){
+		return first(name, names.getOrDefault(name, List.of()));
+	}
+
+	/**Returns the first player whose last name contains the given name, or is contained by the given name, or null if there is no such player.
+	@param name The lowercase name.
+	@throws NullPointerException if name is null.
+	@return the first player whose last name contains or is contained by the given name.
+	*/
+	Player partialMatch(String name){
+		SortedSet<Integer> positions = new TreeSet<Integer>(substrings.getOrDefault(name, List.of()));
+		for(int start = 0; start <= name.length(); start++){
+			for(int end = start; end <= name.length(); end++){
+				List<Integer> matches = lastNames.get(name.substring(start, end));
+				if(matches != null){
+					positions.addAll(matches);
+				}
+			}
+		}
+		return first(name, positions);
+	}
+
+	//Returns the player at the first of the given positions, or null if there are none. Logs a warning the first time a name matches several players.
+	private Player first(String name, Collection<Integer> positions){
+		if(positions.isEmpty()){
+			return null;
+		}
+		Player answer = players.get(positions.iterator().next());
+		if(positions.size() > 1 && reported.add(name)){
+			List<Player> matches = new ArrayList<Player>(positions.size());
+			for(int position : positions){
+				matches.add(players.get(position));
+			}
+			logging.warning("Ambiguous player name \"" + name + "\" matched " + matches + ". Using " + answer + ".");
+		}
+		return answer;
+	}
+}
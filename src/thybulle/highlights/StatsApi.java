@@ -0,0 +1,470 @@
+package thybulle.highlights;
+
+import static thybulle.highlights.HighlightsLogger.*;
+
+import thybulle.highlights.PlayByPlayParser.UnparsedPlay;
+import thybulle.misc.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.time.*;
+import java.io.*;
+import java.net.URI;
+import java.net.http.*;
+
+import org.json.*;
+
+/**Class which gets play-by-play data from the JSON endpoints behind stats.nba.com.<br>
+This source contains the same data as AdvancedStats, but requests it directly over HTTP instead of rendering pages with a browser.<br>
+As such, it does not require a browser or a browser driver, and many requests can be in flight at once.<br>
+Play descriptions are in the same format as on the website, and are parsed in the same way.<br>
+The stats.nba.com endpoints are undocumented and may change or begin rejecting requests without warning.<br>
+The options for this source can be specified in the JSON file "../config/statsapiconfig.json".<br>
+The base URL of the endpoints is configurable, so this source can also be pointed at a local server which serves previously recorded responses.
+@author Owen Kulik
+*/
+
+public class StatsApi implements GameSource {
+	private final HttpClient client;
+	private final String baseUrl;
+	private final Duration timeout;
+	//Limits the number of requests in flight at once. stats.nba.com stops responding if too many requests are made at once.
+	private final Semaphore requests;
+	private final int maxRequests;
+
+	private final Map<GameInfo, Game> interning = new ConcurrentHashMap<GameInfo, Game>();
+	private final Map<GameInfo, GameIds> ids = new ConcurrentHashMap<GameInfo, GameIds>();
+	//The away and home players of each game whose box score has been requested.
+	private final Map<GameInfo, Pair<LinkedHashSet<Player>, LinkedHashSet<Player>>> rosters = new ConcurrentHashMap<GameInfo, Pair<LinkedHashSet<Player>, LinkedHashSet<Player>>>();
+
+	public static final String DEFAULT_CONFIG_PATH = "../config/statsapiconfig.json";
+	public static final String DEFAULT_BASE_URL = "https://stats.nba.com/stats";
+	public static final int DEFAULT_MAX_REQUESTS = 8;
+	public static final long DEFAULT_TIMEOUT = 10000;
+
+	private static final int MAX_RETRIES = 3;
+	private static final long RETRY_DELAY = 1000;
+
+	//stats.nba.com ignores requests which do not appear to come from a browser on its website.
+	private static final String[] HEADERS = {
+		"User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64; rv:78.0) Gecko/20100101 Firefox/78.0",
+		"Accept", "application/json, text/plain, */*",
+		"Accept-Language", "en-US,en;q=0.5",
+		"Referer", "https://stats.nba.com/",
+		"Origin", "https://stats.nba.com",
+		"x-nba-stats-origin", "stats",
+		"x-nba-stats-token", "true"
+	};
+
+	//RI: client, baseUrl, timeout and requests are non-null. baseUrl does not end with a slash.
+	//AF: Represents the endpoints at baseUrl. ids holds the stats.nba.com ids of every game this source has found.
+
+	private StatsApi(String baseUrl, int maxRequests, long timeout){
+		if(maxRequests < 1){
+			throw new IllegalArgumentException("Maximum number of requests was less than 1.");
+		}
+		if(timeout < 1){
+			throw new IllegalArgumentException("Timeout was not positive.");
+		}
+		this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+		this.requests = new Semaphore(maxRequests, true);
+		this.maxRequests = maxRequests;
+		this.timeout = Duration.ofMillis(timeout);
+		this.client = HttpClient.newBuilder().connectTimeout(this.timeout).followRedirects(HttpClient.Redirect.NORMAL).build();
+	}
+
+	/**Returns a StatsApi instance which uses the default options.
+	@return a StatsApi instance.
+	*/
+	public static StatsApi open(){
+		return new StatsApi(DEFAULT_BASE_URL, DEFAULT_MAX_REQUESTS, DEFAULT_TIMEOUT);
+	}
+
+	/**Returns a StatsApi instance which requests data from the given base URL, with at most maxRequests requests in flight at once.
+	@param baseUrl The URL which endpoint names are appended to, for example "https://stats.nba.com/stats".
+	@param maxRequests The maximum number of requests in flight at once.
+	@param timeout The timeout of each request, in milliseconds.
+	@throws NullPointerException if baseUrl is null.
+	@throws IllegalArgumentException if maxRequests or timeout is less than 1.
+	@return a StatsApi instance.
+	*/
+	public static StatsApi open(String baseUrl, int maxRequests, long timeout){
+		return new StatsApi(baseUrl, maxRequests, timeout);
+	}
+
+	/**Returns a StatsApi instance using the given JSON object as a config file in accordance with the specification in the config README.
+	@param obj JSON object to read from.
+	@throws NullPointerException if obj is null.
+	@throws IllegalArgumentException if maxRequests or timeout is less than 1.
+	@return a StatsApi instance.
+	*/
+	public static StatsApi open(JSONObject obj){
+		return new StatsApi(obj.optString("baseUrl", DEFAULT_BASE_URL), obj.optInt("maxRequests", DEFAULT_MAX_REQUESTS), obj.optLong("timeout", DEFAULT_TIMEOUT));
+	}
+
+	/**Returns a Video depicting each of the given plays, in the same order as the given plays. Videos which could not be resolved are null.<br>
+	The videos are requested concurrently, with as many requests in flight at once as this source allows, instead of one at a time.
+	@param plays The plays.
+	@throws NullPointerException if plays is null or contains null.
+	@throws IOException if an IO error occurs.
+	@return a Video depicting each of the given plays.
+	*/
+	@Override
+	public List<Video> getVideos(List<? extends Play> plays) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(maxRequests);
+		try{
+			return Concurrency.map(plays, Play::getVideo, executor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**Returns information for all games played on the given day, or null if an error occurs.
+	@param ld the date.
+	@throws IOException if an IO error occurs.
+	@throws NullPointerException if ld is null.
+	@return information for all games played on the given day.
+	*/
+	public List<GameInfo> getGameInformationOnDay(LocalDate ld) throws IOException {
+		try{
+			return getGameInformationOnDayInternal(ld);
+		} catch(StatsApiControlFlowException e){
+			logging.error("Could not get game information for " + ld.toString());
+			return null;
+		}
+	}
+
+	private List<GameInfo> getGameInformationOnDayInternal(LocalDate ld) throws IOException {
+		logging.info("Requesting game information for " + ld.toString());
+		String date = String.format("%02d", ld.getMonthValue()) + "/" + String.format("%02d", ld.getDayOfMonth()) + "/" + ld.getYear();
+		JSONObject scoreboard = fetch(baseUrl + "/scoreboardv2?DayOffset=0&LeagueID=00&GameDate=" + date);
+		Map<String, Team> teams = new HashMap<String, Team>();
+		for(Map<String, Object> row : resultSet(scoreboard, "LineScore")){
+			Object nickname = row.containsKey("TEAM_NAME") ? row.get("TEAM_NAME") : row.get("TEAM_NICKNAME");
+			teams.put(row.get("GAME_ID") + " " + row.get("TEAM_ID"), Team.get(row.get("TEAM_CITY_NAME") + " " + nickname));
+		}
+		List<GameInfo> answer = new ArrayList<GameInfo>();
+		for(Map<String, Object> row : resultSet(scoreboard, "GameHeader")){
+			String gameId = (String)row.get("GAME_ID");
+			Team awayTeam = teams.get(gameId + " " + row.get("VISITOR_TEAM_ID"));
+			Team homeTeam = teams.get(gameId + " " + row.get("HOME_TEAM_ID"));
+			if(awayTeam == null || homeTeam == null){
+				logging.error("Could not get game information for game " + gameId + " on " + ld.toString());
+				continue;
+			}
+			GameInfo gi = new GameInfo(ld, awayTeam, homeTeam);
+			ids.put(gi, new GameIds(gameId, String.valueOf(row.get("VISITOR_TEAM_ID"))));
+			answer.add(gi);
+		}
+		logging.info("Got game information for " + ld.toString() + ". Found " + answer.size() + (answer.size() == 1 ? " game." : " games."));
+		return answer;
+	}
+
+	/**Returns a Game object with play-by-play data for the given GameInfo,
+	or null if the GameInfo does not exist, or if the play-by-play data could not be obtained.
+	@param gi The Game Information.
+	@throws IOException if an IO error occurs.
+	@throws NullPointerException if gi is null.
+	@return a Game object with play-by-play data for the given GameInfo
+	*/
+	public Game getGame(GameInfo gi) throws IOException {
+		try{
+			return getGameInternal(gi);
+		} catch(StatsApiControlFlowException e){
+			logging.error("Could not get play-by-play data for " + gi.toString());
+			return null;
+		}
+	}
+
+	private Game getGameInternal(GameInfo gi) throws IOException {
+		if(interning.containsKey(gi)){
+			return interning.get(gi);
+		}
+		logging.info("Requesting play-by-play data for " + gi.toString());
+		GameIds gameIds = getIds(gi);
+		if(gameIds == null){
+			throw new StatsApiControlFlowException("Could not find a game corresponding to the given GameInformation");
+		}
+		Pair<LinkedHashSet<Player>, LinkedHashSet<Player>> roster = getRoster(gi, gameIds);
+		LinkedHashSet<Player> awayPlayers = roster.first();
+		LinkedHashSet<Player> homePlayers = roster.second();
+
+		JSONObject playByPlay = fetch(baseUrl + "/playbyplayv2?EndPeriod=10&StartPeriod=1&GameID=" + gameIds.gameId);
+		SortedMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>> rawPlays = getRawPlays(resultSet(playByPlay, "PlayByPlay"), gameIds.gameId);
+
+		long parseStart = System.nanoTime();
+		List<StatsApiPlay> plays = PlayByPlayParser.parseAllPlays(rawPlays, awayPlayers, homePlayers, gi.awayTeam(), gi.homeTeam(),
+			(link, type, time, team, score, players) -> new StatsApiPlay(this, link, type, time, team, score, players));
+		long parseNanos = Math.max(System.nanoTime() - parseStart, 1);
+		logging.info("Finished parsing " + gi.toString() + ". Found " + plays.size() + (plays.size() == 1 ? " play." : " plays.")
+			+ " Classified " + PlayByPlayParser.countPlays(rawPlays) + " plays in " + (parseNanos / 1000000) + " ms.");
+		Game result = new Game(gi, plays);
+		interning.put(gi, result);
+		return result;
+	}
+
+	/**Returns the players in the box score of the given game, or null if the game could not be found.<br>
+	This requires a single request, and the result is reused when the game's play-by-play data is requested.
+	@param gi The Game Information.
+	@throws NullPointerException if gi is null.
+	@throws IOException if an IO error occurs.
+	@return the players in the box score of the given game.
+	*/
+	@Override
+	public Set<Player> getPlayers(GameInfo gi) throws IOException {
+		try{
+			GameIds gameIds = getIds(gi);
+			if(gameIds == null){
+				return null;
+			}
+			Pair<LinkedHashSet<Player>, LinkedHashSet<Player>> roster = getRoster(gi, gameIds);
+			Set<Player> answer = new HashSet<Player>(roster.first());
+			answer.addAll(roster.second());
+			return Collections.unmodifiableSet(answer);
+		} catch(StatsApiControlFlowException e){
+			logging.error("Could not get players for " + gi.toString());
+			return null;
+		}
+	}
+
+	//Returns the away and home players of the given game, requesting its box score if it has not been requested.
+	private Pair<LinkedHashSet<Player>, LinkedHashSet<Player>> getRoster(GameInfo gi, GameIds gameIds) throws IOException {
+		Pair<LinkedHashSet<Player>, LinkedHashSet<Player>> cached = rosters.get(gi);
+		if(cached != null){
+			return cached;
+		}
+		JSONObject boxScore = fetch(baseUrl + "/boxscoretraditionalv2?EndPeriod=10&EndRange=28800&RangeType=0&StartPeriod=1&StartRange=0&GameID=" + gameIds.gameId);
+		LinkedHashSet<Player> awayPlayers = new LinkedHashSet<Player>();
+		LinkedHashSet<Player> homePlayers = new LinkedHashSet<Player>();
+		for(Map<String, Object> row : resultSet(boxScore, "PlayerStats")){
+			Player p = parsePlayer((String)row.get("PLAYER_NAME"));
+			if(String.valueOf(row.get("TEAM_ID")).equals(gameIds.awayTeamId)){
+				awayPlayers.add(p);
+			} else {
+				homePlayers.add(p);
+			}
+		}
+		Pair<LinkedHashSet<Player>, LinkedHashSet<Player>> roster = new Pair<LinkedHashSet<Player>, LinkedHashSet<Player>>(awayPlayers, homePlayers);
+		rosters.put(gi, roster);
+		return roster;
+	}
+
+	//Groups the rows of a play-by-play result set by time. Rows with a video have a link to the endpoint which resolves the video.
+	private SortedMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>> getRawPlays(List<Map<String, Object>> rows, String gameId){
+		SortedMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>> rawPlays = new TreeMap<Timestamp, Pair<List<UnparsedPlay>, List<UnparsedPlay>>>();
+		for(Map<String, Object> row : rows){
+			String awayPlay = (String)row.get("VISITORDESCRIPTION");
+			String homePlay = (String)row.get("HOMEDESCRIPTION");
+			if(awayPlay == null && homePlay == null){
+				continue;
+			}
+			String[] timeSplit = ((String)row.get("PCTIMESTRING")).split(":");
+			int minutes = Integer.parseInt(timeSplit[0]);
+			int seconds = Integer.parseInt(timeSplit[1]);
+			Timestamp timestamp = new Timestamp(((Number)row.get("PERIOD")).intValue(), (minutes * 60) + seconds);
+			Object videoAvailable = row.get("VIDEO_AVAILABLE_FLAG");
+			String playLink = videoAvailable instanceof Number && ((Number)videoAvailable).intValue() == 1
+				? baseUrl + "/videoeventsasset?GameEventID=" + row.get("EVENTNUM") + "&GameID=" + gameId : null;
+			Pair<List<UnparsedPlay>, List<UnparsedPlay>> playsAtTime = rawPlays.computeIfAbsent(timestamp,
+				t -> new Pair<List<UnparsedPlay>, List<UnparsedPlay>>(new ArrayList<UnparsedPlay>(), new ArrayList<UnparsedPlay>()));
+			if(awayPlay != null && !awayPlay.trim().equals("")){
+				playsAtTime.first().add(new UnparsedPlay(awayPlay.trim(), playLink));
+			}
+			if(homePlay != null && !homePlay.trim().equals("")){
+				playsAtTime.second().add(new UnparsedPlay(homePlay.trim(), playLink));
+			}
+		}
+		return rawPlays;
+	}
+
+	//Parses a player from a name as it appears in a box score.
+	private static Player parsePlayer(String name){
+		name = name.trim();
+		if(!name.contains(" ")){
+			return Player.get(null, name);
+		}
+		String[] split = name.split(" ", 2);
+		return Player.get(split[0], split[1]);
+	}
+
+	//Returns the ids of the given game, requesting the games on its date if they are not known. Returns null if no such game exists.
+	private GameIds getIds(GameInfo gi) throws IOException {
+		if(ids.containsKey(gi)){
+			return ids.get(gi);
+		}
+		this.getGameInformationOnDay(gi.date());
+		if(ids.containsKey(gi)){
+			return ids.get(gi);
+		}
+		logging.warning("No game found for " + gi.toString());
+		return null;
+	}
+
+	//Returns the rows of the result set with the given name, each as a map from column header to value. Null values are omitted.
+	private static List<Map<String, Object>> resultSet(JSONObject response, String name){
+		try{
+			JSONArray sets = response.getJSONArray("resultSets");
+			for(int i = 0; i < sets.length(); i++){
+				JSONObject set = sets.getJSONObject(i);
+				if(!set.getString("name").equals(name)){
+					continue;
+				}
+				JSONArray headers = set.getJSONArray("headers");
+				JSONArray rowSet = set.getJSONArray("rowSet");
+				List<Map<String, Object>> answer = new ArrayList<Map<String, Object>>(rowSet.length());
+				for(int j = 0; j < rowSet.length(); j++){
+					JSONArray row = rowSet.getJSONArray(j);
+					Map<String, Object> map = new HashMap<String, Object>();
+					for(int k = 0; k < headers.length() && k < row.length(); k++){
+						if(!row.isNull(k)){
+							map.put(headers.getString(k), row.get(k));
+						}
+					}
+					answer.add(map);
+				}
+				return answer;
+			}
+		} catch(JSONException e){
+			throw new StatsApiControlFlowException("Malformed response.", e);
+		}
+		throw new StatsApiControlFlowException("Response did not contain the result set " + name);
+	}
+
+	//Requests the given URL and returns its body as a JSON object. Retries if the request times out or the server is overloaded.
+	private JSONObject fetch(String url) throws IOException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(timeout).headers(HEADERS).GET().build();
+		IOException lastException = null;
+		for(int retry = 0; retry < MAX_RETRIES; retry++){
+			if(retry > 0){
+				pause(RETRY_DELAY * retry);
+			}
+			HttpResponse<String> response;
+			try{
+				requests.acquire();
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to make a request.");
+			}
+			try{
+				response = client.send(request, HttpResponse.BodyHandlers.ofString());
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a response.");
+			} catch(IOException e){
+				logging.info("Request to " + url + " failed: " + e.toString() + ". Retrying.");
+				lastException = e;
+				continue;
+			} finally {
+				requests.release();
+			}
+			if(response.statusCode() == 429 || response.statusCode() >= 500){
+				logging.info("Request to " + url + " returned status " + response.statusCode() + ". Retrying.");
+				continue;
+			}
+			if(response.statusCode() != 200){
+				throw new StatsApiControlFlowException("Request to " + url + " returned status " + response.statusCode());
+			}
+			try{
+				return new JSONObject(response.body());
+			} catch(JSONException e){
+				throw new StatsApiControlFlowException("Response from " + url + " was not valid JSON.", e);
+			}
+		}
+		if(lastException != null){
+			throw lastException;
+		}
+		throw new StatsApiControlFlowException("Request to " + url + " failed " + MAX_RETRIES + " times.");
+	}
+
+	//Sleeps for the given number of milliseconds.
+	private static void pause(long millis) throws InterruptedIOException {
+		try{
+			Thread.sleep(millis);
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to retry a request.");
+		}
+	}
+
+	/**Closes the resources associated with this StatsApi.<br>
+	Requests do not hold any resources between calls, so this method only discards cached games.
+	*/
+	public void close(){
+		interning.clear();
+	}
+
+	private static class StatsApiPlay extends Play {
+		private final String videoLink;
+		private final StatsApi source;
+		private Video v;
+
+		private StatsApiPlay(StatsApi source, String link, PlayType playType, Timestamp timestamp, Team team, Score score, List<? extends Player> player){
+			super(playType, timestamp, team, score, player);
+			this.source = source;
+			this.videoLink = link;
+		}
+
+		//RI: source is non-null.
+		//AF: Same as superclass. videoLink is the endpoint which resolves the play's video, or null if it has no video. v is video of entire play.
+
+		/**Returns a Video depicting this play, or null if an error occurs.
+		@throws IOException if an IO error occurs.
+		@return a Video depicting this play.
+		*/
+		public Video getVideo() throws IOException {
+			try{
+				return getVideoInternal();
+			} catch(StatsApiControlFlowException e){
+				logging.error("Could not resolve video for " + this.toString());
+				return null;
+			}
+		}
+
+		private synchronized Video getVideoInternal() throws IOException {
+			if(videoLink == null){
+				logging.warning("No video exists for " + this.toString());
+				return null;
+			}
+			if(v != null){
+				return v;
+			}
+			logging.info("Requesting video for " + this.toString());
+			try{
+				JSONArray urls = source.fetch(videoLink).getJSONObject("resultSets").getJSONObject("Meta").getJSONArray("videoUrls");
+				if(urls.length() == 0 || urls.getJSONObject(0).isNull("murl")){
+					throw new StatsApiControlFlowException("No video URL in response.");
+				}
+				v = new InternetVideo(urls.getJSONObject(0).getString("murl"));
+				return v;
+			} catch(JSONException e){
+				throw new StatsApiControlFlowException("Malformed response.", e);
+			}
+		}
+	}
+
+	//Class used to hold the stats.nba.com ids of a game.
+	private static class GameIds {
+		private final String gameId;
+		private final String awayTeamId;
+
+		private GameIds(String gameId, String awayTeamId){
+			this.gameId = gameId;
+			this.awayTeamId = awayTeamId;
+		}
+	}
+
+	//Exception used to control flow in StatsApi methods.
+	private static class StatsApiControlFlowException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private StatsApiControlFlowException(String message){
+			super(message);
+		}
+
+		private StatsApiControlFlowException(String message, Throwable cause){
+			super(message, cause);
+		}
+	}
+}
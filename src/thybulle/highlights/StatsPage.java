@@ -0,0 +1,268 @@
+package thybulle.highlights;
+
+import java.util.*;
+
+import org.jsoup.nodes.*;
+import org.jsoup.select.*;
+import org.openqa.selenium.*;
+
+import org.json.*;
+
+/**Enum representing the types of page rendered by AdvancedStats.<br>
+Each type of page has an element whose visibility indicates the page has loaded, and a function used to tell when its content has stopped changing.<br>
+Pages whose content may legitimately be empty, such as days without games, must settle before they are used.
+Their settle functions only accept an empty page once the page's data has finished loading,
+so that an empty page is never mistaken for a page whose data has not arrived yet.<br>
+Each type of page also has a script which runs in the browser and extracts only the fields AdvancedStats uses as a compact JSON array,
+so that the whole page does not need to be serialized, sent from the browser and parsed.<br>
+The same fields can also be extracted from the page's HTML, which is used if the script fails and for pages which were archived as HTML.
+The formats of the extracted arrays are:
+<ul>
+	<li>DAY - an object for each game with video information: {"text" : "AWAY @ HOME", "video" : video status, "link" : box score link}</li>
+	<li>GAME_SUMMARY - the name of each team, away team first.</li>
+	<li>BOX_SCORE - an array for each team, away team first, containing the text of each player cell.</li>
+	<li>PLAY_BY_PLAY - an object for each row. Rows which start a period are {"start" : true}.
+	Other rows are {"time" : clock, "away" : away description, "home" : home description, "awayLink" : away video link, "homeLink" : home video link}.</li>
+	<li>VIDEO - a single element, the source of the video.</li>
+</ul>
+Missing values are null, and links are relative to https://stats.nba.com.
+@author Owen Kulik
+*/
+
+enum StatsPage {
+	DAY(StatsPage.DEFAULT_TIMEOUT, By.className("stats-video-status-page"), countOnceLoaded(By.cssSelector(".stats-video-status-page [data-ng-repeat]")), 2, true,
+		"var answer = [];"
+		+ "var games = document.body.querySelectorAll('[data-ng-repeat]');"
+		+ "for(var i = 0; i < games.length; i++){"
+		+ "  var check = find(games[i], '.has-video');"
+		+ "  if(!check){ continue; }"
+		+ "  var boxScore = find(games[i], '.has-boxscore');"
+		+ "  var link = boxScore ? find(boxScore, '[ng-href]') : null;"
+		+ "  answer.push({text: text(find(games[i], '.text')), video: text(check), link: link ? link.getAttribute('href') : null});"
+		+ "}"),
+	GAME_SUMMARY(StatsPage.DEFAULT_TIMEOUT, By.className("game-summary-team__name"), null, 0, false,
+		"var answer = [];"
+		+ "var teams = document.body.querySelectorAll('.game-summary-team__name');"
+		+ "for(var i = 0; i < teams.length; i++){ answer.push(text(teams[i])); }"),
+	BOX_SCORE(StatsPage.DEFAULT_TIMEOUT, By.className("nba-stat-table"), count(By.cssSelector(".nba-stat-table__overlay .player")), 1, false,
+		"var answer = [];"
+		+ "var tables = document.body.querySelectorAll('.nba-stat-table__overlay');"
+		+ "for(var i = 0; i < tables.length; i++){"
+		+ "  var players = [];"
+		+ "  var cells = tables[i].querySelectorAll('.player');"
+		+ "  for(var j = 0; j < cells.length; j++){ players.push(text(cells[j])); }"
+		+ "  answer.push(players);"
+		+ "}"),
+	PLAY_BY_PLAY(StatsPage.DEFAULT_TIMEOUT, By.className("boxscore-pbp__inner"), count(By.cssSelector(".boxscore-pbp__inner [ng-if='!boxscore.isLive'] > *")), 1, false,
+		"var inner = document.body.querySelector('.boxscore-pbp__inner');"
+		+ "var table = inner ? find(inner, '[ng-if=\"!boxscore.isLive\"]') : null;"
+		+ "if(!table){ return null; }"
+		+ "var answer = [];"
+		+ "var link = function(e){ var a = e ? find(e, '[href]') : null; return a ? a.getAttribute('href') : null; };"
+		+ "for(var e = table.firstElementChild; e; e = e.nextElementSibling){"
+		+ "  if(text(e).indexOf('Start of') === 0){ answer.push({start: true}); continue; }"
+		+ "  var away = find(e, '.play.team.vtm');"
+		+ "  var home = find(e, '.play.team.htm');"
+		+ "  answer.push({time: text(find(e, '.time')), away: text(away), home: text(home), awayLink: link(away), homeLink: link(home)});"
+		+ "}"),
+	VIDEO(StatsPage.VIDEO_TIMEOUT, By.id("stats-videojs-player_html5_api"), nonEmptyAttribute(By.id("stats-videojs-player_html5_api"), "src"), 0, false,
+		"var video = document.getElementById('stats-videojs-player_html5_api');"
+		+ "var answer = [video ? video.getAttribute('src') : null];");
+
+	private static final long DEFAULT_TIMEOUT = 10000;
+	private static final long VIDEO_TIMEOUT = 60000;
+
+	//Functions shared by every extraction script.
+	//text returns an element's text with whitespace collapsed, like Jsoup's Element.text().
+	//It uses innerText rather than textContent, since innerText separates the text of line breaks and block elements as Jsoup does, while textContent joins it with no space.
+	//find returns the element if it matches the selector, or its first matching descendant.
+	private static final String SCRIPT_PREFIX = "var text = function(e){ return e ? e.innerText.replace(/\\s+/g, ' ').trim() : null; };"
+		+ "var find = function(e, selector){ return e.matches(selector) ? e : e.querySelector(selector); };";
+
+	//Returns the number of requests the page's Angular application has in flight, or null if the page has no Angular application.
+	//The pages of stats.nba.com load their data with Angular's $http service once the page itself has loaded.
+	private static final String PENDING_REQUESTS_SCRIPT = "var app = document.querySelector('[ng-app], [data-ng-app]') || document.body;"
+		+ "var injector = window.angular ? window.angular.element(app).injector() : null;"
+		+ "return injector ? injector.get('$http').pendingRequests.length : null;";
+
+	private final long timeout;
+	private final By loaded;
+	private final java.util.function.Function<WebDriver, Object> settle;
+	private final int stablePolls;
+	private final boolean mustSettle;
+	private final String script;
+
+	private StatsPage(long timeout, By loaded, java.util.function.Function<WebDriver, Object> settle, int stablePolls, boolean mustSettle, String script){
+		this.timeout = timeout;
+		this.loaded = loaded;
+		this.settle = settle;
+		this.stablePolls = stablePolls;
+		this.mustSettle = mustSettle;
+		this.script = SCRIPT_PREFIX + script + "return JSON.stringify(answer);";
+	}
+
+	/**Returns the maximum time to wait for a page of this type to load, in milliseconds.
+	@return the maximum time to wait for a page of this type to load, in milliseconds.
+	*/
+	long timeout(){
+		return timeout;
+	}
+
+	/**Returns a locator for the element whose visibility indicates that a page of this type has loaded.
+	@return a locator for the element whose visibility indicates that a page of this type has loaded.
+	*/
+	By loaded(){
+		return loaded;
+	}
+
+	/**Returns a function used to tell when the content of a page of this type has stopped changing, or null if its content does not change after it loads.<br>
+	The page has settled once the function has returned the same non-null value for stablePolls() consecutive polls after the first.
+	@return a function used to tell when the content of a page of this type has stopped changing.
+	*/
+	java.util.function.Function<WebDriver, Object> settle(){
+		return settle;
+	}
+
+	/**Returns the number of consecutive polls for which the settle function must return the same value after the first.
+	@return the number of consecutive polls for which the settle function must return the same value after the first.
+	*/
+	int stablePolls(){
+		return stablePolls;
+	}
+
+	/**Returns whether a page of this type must settle before it is used.<br>
+	If it does not settle in time, its content may be incomplete or missing, so it should be treated as a page which failed to load.
+	Otherwise, a page which does not settle in time is used as it is.
+	@return whether a page of this type must settle before it is used.
+	*/
+	boolean mustSettle(){
+		return mustSettle;
+	}
+
+	/**Returns a script which returns the fields of a page of this type as a String containing a JSON array, or null if the page does not contain them.
+	@return a script which extracts the fields of a page of this type.
+	*/
+	String script(){
+		return script;
+	}
+
+	/**Extracts the fields of a page of this type from its HTML, in the same format as the script.
+	@param document The page.
+	@throws NullPointerException if document is null.
+	@return the fields of the page, or null if the page does not contain them.
+	*/
+	JSONArray extract(Document document){
+		Element body = document.body();
+		JSONArray answer = new JSONArray();
+		switch(this){
+			case DAY:
+				for(Element e : body.getElementsByAttribute("data-ng-repeat")){
+					Elements check = e.getElementsByClass("has-video");
+					if(check.isEmpty()){
+						continue;
+					}
+					Elements text = e.getElementsByClass("text");
+					Elements boxScore = e.getElementsByClass("has-boxscore");
+					Elements link = boxScore.isEmpty() ? boxScore : boxScore.get(0).getElementsByAttribute("ng-href");
+					JSONObject game = new JSONObject();
+					game.put("text", text.isEmpty() ? JSONObject.NULL : text.get(0).text());
+					game.put("video", check.get(0).text());
+					game.put("link", link.isEmpty() ? JSONObject.NULL : link.get(0).attr("href"));
+					answer.put(game);
+				}
+				return answer;
+			case GAME_SUMMARY:
+				for(Element e : body.getElementsByClass("game-summary-team__name")){
+					answer.put(e.text());
+				}
+				return answer;
+			case BOX_SCORE:
+				for(Element table : body.getElementsByClass("nba-stat-table__overlay")){
+					JSONArray players = new JSONArray();
+					for(Element e : table.getElementsByClass("player")){
+						players.put(e.text());
+					}
+					answer.put(players);
+				}
+				return answer;
+			case PLAY_BY_PLAY:
+				Elements inner = body.getElementsByClass("boxscore-pbp__inner");
+				Elements tables = inner.isEmpty() ? inner : inner.get(0).getElementsByAttributeValue("ng-if", "!boxscore.isLive");
+				if(tables.isEmpty()){
+					return null;
+				}
+				for(Element e = tables.get(0).children().first(); e != null; e = e.nextElementSibling()){
+					JSONObject row = new JSONObject();
+					if(e.text().startsWith("Start of")){
+						row.put("start", true);
+						answer.put(row);
+						continue;
+					}
+					Elements away = e.getElementsByClass("play team vtm");
+					Elements home = e.getElementsByClass("play team htm");
+					Elements time = e.getElementsByClass("time");
+					row.put("time", time.isEmpty() ? JSONObject.NULL : time.get(0).text());
+					row.put("away", away.isEmpty() ? JSONObject.NULL : away.get(0).text());
+					row.put("home", home.isEmpty() ? JSONObject.NULL : home.get(0).text());
+					row.put("awayLink", link(away));
+					row.put("homeLink", link(home));
+					answer.put(row);
+				}
+				return answer;
+			case VIDEO:
+				Element video = body.getElementById("stats-videojs-player_html5_api");
+				answer.put(video == null || !video.hasAttr("src") ? JSONObject.NULL : video.attr("src"));
+				return answer;
+			default:
+				throw new AssertionError();
+		}
+	}
+
+	//Returns the href of the first element with an href in the first of the given elements, or JSONObject.NULL if there is none.
+	private static Object link(Elements play){
+		if(play.isEmpty()){
+			return JSONObject.NULL;
+		}
+		Elements links = play.get(0).getElementsByAttribute("href");
+		return links.isEmpty() ? JSONObject.NULL : links.get(0).attr("href");
+	}
+
+	//Returns a function which returns the number of elements matching the locator, or null if there are none.
+	private static java.util.function.Function<WebDriver, Object> count(By locator){
+		return driver -> {
+			int size = driver.findElements(locator).size();
+			return size == 0 ? null : Integer.valueOf(size);
+		};
+	}
+
+	//Returns a function which returns the number of elements matching the locator.
+	//If there are none, it returns 0 only once the page's Angular application has no requests in flight, and null before then,
+	//since the elements are only added once the page's data has arrived.
+	private static java.util.function.Function<WebDriver, Object> countOnceLoaded(By locator){
+		return driver -> {
+			int size = driver.findElements(locator).size();
+			if(size > 0){
+				return Integer.valueOf(size);
+			}
+			Object pending;
+			try{
+				pending = ((JavascriptExecutor)driver).executeScript(PENDING_REQUESTS_SCRIPT);
+			} catch(JavascriptException e){
+				return null;
+			}
+			return pending instanceof Number && ((Number)pending).intValue() == 0 ? Integer.valueOf(0) : null;
+		};
+	}
+
+	//Returns a function which returns the value of the given attribute of the first element matching the locator, or null if it is empty.
+	private static java.util.function.Function<WebDriver, Object> nonEmptyAttribute(By locator, String attribute){
+		return driver -> {
+			List<WebElement> elements = driver.findElements(locator);
+			if(elements.isEmpty()){
+				return null;
+			}
+			String value = elements.get(0).getAttribute(attribute);
+			return value == null || value.isEmpty() ? null : value;
+		};
+	}
+}
@@ -0,0 +1,238 @@
+package thybulle.highlights;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**Class which compresses the files of a data store, and trains the dictionaries they are compressed with.<br>
+Each file is compressed on its own, so any partition can still be read without reading any other.
+Partitions are small and very similar to each other, so on their own they compress poorly.
+Instead, they are compressed with a preset dictionary: a block of data, trained from existing partitions, which contains the strings that partitions most often have in common,
+such as team names, player names and the beginnings of play links. The compressor can then refer back to the dictionary as if it preceded each file.<br>
+A compressed file consists of the int MAGIC, the int id of its dictionary, the int length of the uncompressed data, and the data compressed by Deflater.
+No uncompressed file begins with MAGIC, so compressed and uncompressed files can be told apart by their contents.
+@author Owen Kulik
+*/
+
+final class StoreCompression {
+	static final int MAGIC = 0x4E42415A;
+	//Deflate can only refer back 32 KB, so a larger dictionary would not help.
+	static final int DICTIONARY_SIZE = 32 * 1024;
+	private static final int HEADER_SIZE = 12;
+	//Length of the substrings counted when training a dictionary, and of the segments a dictionary is made of.
+	private static final int K = 8;
+	private static final int SEGMENT_SIZE = 64;
+
+	private StoreCompression(){}
+
+	/**Returns true if the given data is compressed, judging by its first bytes. The buffer's position is not modified.
+	@param data The data.
+	@throws NullPointerException if data is null.
+	@return true if the given data is compressed.
+	*/
+	static boolean isCompressed(ByteBuffer data){
+		return data.remaining() >= HEADER_SIZE && data.getInt(data.position()) == MAGIC;
+	}
+
+	/**Returns the id of the dictionary the given compressed data was compressed with.
+	@param data The compressed data.
+	@throws NullPointerException if data is null.
+	@throws IllegalArgumentException if data is not compressed.
+	@return the id of the dictionary the given compressed data was compressed with.
+	*/
+	static int dictionaryId(ByteBuffer data){
+		if(!isCompressed(data)){
+			throw new IllegalArgumentException("Data was not compressed.");
+		}
+		return data.getInt(data.position() + 4);
+	}
+
+	/**Returns the id of the given dictionary, which is its CRC32 checksum.
+	@param dictionary The dictionary.
+	@throws NullPointerException if dictionary is null.
+	@return the id of the given dictionary.
+	*/
+	static int id(byte[] dictionary){
+		CRC32 crc = new CRC32();
+		crc.update(dictionary);
+		return (int)crc.getValue();
+	}
+
+	/**Compresses the remaining bytes of the given buffer using the given dictionary.
+	@param data The data.
+	@param dictionary The dictionary.
+	@throws NullPointerException if any parameter is null.
+	@return the compressed data.
+	*/
+	static ByteBuffer compress(ByteBuffer data, byte[] dictionary){
+		int length = data.remaining();
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		try{
+			deflater.setDictionary(dictionary);
+			deflater.setInput(data.duplicate());
+			deflater.finish();
+			ByteBuffer answer = ByteBuffer.allocate(HEADER_SIZE + length / 2 + 64);
+			answer.putInt(MAGIC).putInt(id(dictionary)).putInt(length);
+			while(!deflater.finished()){
+				if(!answer.hasRemaining()){
+					answer = grow(answer);
+				}
+				deflater.deflate(answer);
+			}
+			answer.flip();
+			return answer;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**Decompresses the given compressed data using the given dictionary.
+	@param data The compressed data.
+	@param dictionary The dictionary whose id is stored in the data.
+	@throws NullPointerException if any parameter is null.
+	@throws IOException if the data is corrupt, or was not compressed with the given dictionary.
+	@return the decompressed data.
+	*/
+	static ByteBuffer decompress(ByteBuffer data, byte[] dictionary) throws IOException {
+		if(dictionaryId(data) != id(dictionary)){
+			throw new IOException("Data was compressed with a different dictionary.");
+		}
+		ByteBuffer in = data.duplicate();
+		in.position(in.position() + 8);
+		int length = in.getInt();
+		if(length < 0){
+			throw new IOException("Compressed data was corrupt.");
+		}
+		ByteBuffer answer = ByteBuffer.allocate(length);
+		Inflater inflater = new Inflater();
+		try{
+			inflater.setInput(in);
+			while(!inflater.finished()){
+				if(inflater.inflate(answer) == 0){
+					if(inflater.needsDictionary()){
+						inflater.setDictionary(dictionary);
+					} else if(inflater.needsInput() || !answer.hasRemaining()){
+						throw new IOException("Compressed data was truncated or corrupt.");
+					}
+				}
+			}
+		} catch(DataFormatException e){
+			throw new IOException("Compressed data was corrupt.", e);
+		} finally {
+			inflater.end();
+		}
+		if(answer.hasRemaining()){
+			throw new IOException("Compressed data was truncated or corrupt.");
+		}
+		answer.flip();
+		return answer;
+	}
+
+	private static ByteBuffer grow(ByteBuffer buffer){
+		ByteBuffer answer = ByteBuffer.allocate(buffer.capacity() * 2);
+		buffer.flip();
+		answer.put(buffer);
+		return answer;
+	}
+
+	/**Trains a dictionary of at most DICTIONARY_SIZE bytes from the given samples.<br>
+	Each sample is divided into segments of SEGMENT_SIZE bytes, and each segment is scored by how many samples contain each of its substrings of K bytes.
+	The dictionary is built from the highest scoring segments. Once a substring is in the dictionary, it no longer adds to the score of other segments,
+	so the dictionary does not contain the same substrings many times.
+	The highest scoring segments are placed at the end of the dictionary, as they can then be referred to with the shortest distances.
+	@param samples The samples, which should be the contents of typical files.
+	@throws NullPointerException if samples is null or contains null.
+	@return a dictionary trained from the given samples. May be shorter than DICTIONARY_SIZE if the samples are short.
+	*/
+	static byte[] train(List<byte[]> samples){
+		//Number of samples containing each substring.
+		Map<Long, Integer> frequencies = new HashMap<Long, Integer>();
+		for(byte[] sample : samples){
+			Set<Long> seen = new HashSet<Long>();
+			for(int i = 0; i + K <= sample.length; i++){
+				seen.add(substring(sample, i));
+			}
+			for(Long l : seen){
+				frequencies.merge(l, 1, Integer::sum);
+			}
+		}
+		//Segments which are in fewer than two samples are of no use, so they are not considered.
+		PriorityQueue<Segment> candidates = new PriorityQueue<Segment>();
+		for(byte[] sample : samples){
+			for(int start = 0; start + K <= sample.length; start += SEGMENT_SIZE){
+				Segment s = new Segment(sample, start, Math.min(start + SEGMENT_SIZE, sample.length));
+				s.score(frequencies);
+				if(s.score > 0){
+					candidates.add(s);
+				}
+			}
+		}
+		//Scores only decrease as substrings are used, so a segment whose updated score is still at least the best remaining score is the best segment.
+		Deque<Segment> chosen = new ArrayDeque<Segment>();
+		int size = 0;
+		while(!candidates.isEmpty() && size < DICTIONARY_SIZE){
+			Segment best = candidates.poll();
+			best.score(frequencies);
+			if(best.score == 0){
+				continue;
+			}
+			if(!candidates.isEmpty() && best.score < candidates.peek().score){
+				candidates.add(best);
+				continue;
+			}
+			chosen.addFirst(best);
+			size += best.end - best.start;
+			for(int i = best.start; i + K <= best.end; i++){
+				frequencies.remove(substring(best.sample, i));
+			}
+		}
+		ByteArrayOutputStream answer = new ByteArrayOutputStream(DICTIONARY_SIZE);
+		for(Segment s : chosen){
+			answer.write(s.sample, s.start, s.end - s.start);
+		}
+		byte[] bytes = answer.toByteArray();
+		return bytes.length <= DICTIONARY_SIZE ? bytes : Arrays.copyOfRange(bytes, bytes.length - DICTIONARY_SIZE, bytes.length);
+	}
+
+	//Returns the K bytes of the given array starting at the given index, as a long.
+	private static long substring(byte[] bytes, int start){
+		return ByteBuffer.wrap(bytes, start, K).getLong();
+	}
+
+	//A segment of a sample, ordered from highest to lowest score.
+	private static class Segment implements Comparable<Segment> {
+		private final byte[] sample;
+		private final int start;
+		private final int end;
+		private long score;
+
+		private Segment(byte[] sample, int start, int end){
+			this.sample = sample;
+			this.start = start;
+			this.end = end;
+		}
+
+		//Sets this segment's score to the sum of the frequencies of its distinct substrings which appear in more than one sample.
+		private void score(Map<Long, Integer> frequencies){
+			Set<Long> seen = new HashSet<Long>();
+			long answer = 0;
+			for(int i = start; i + K <= end; i++){
+				long l = substring(sample, i);
+				int frequency = frequencies.getOrDefault(l, 0);
+				if(frequency > 1 && seen.add(l)){
+					answer += frequency;
+				}
+			}
+			score = answer;
+		}
+
+		@Override
+		public int compareTo(Segment other){
+			return Long.compare(other.score, this.score);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package thybulle.highlights;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import thybulle.misc.*;
 
 /**Immutable class representing a team. <br>
@@ -75,7 +76,7 @@ Here is a list of all such team names:
 public class Team implements Constraint, Comparable<Team> {
 	private final String teamName;
 
-	private static final Map<String, Team> interning = new HashMap<String, Team>();
+	private static final Map<String, Team> interning = new ConcurrentHashMap<String, Team>();
 
 	private static final Set<String> nbaTeams = Set.of("atlanta hawks", "boston celtics", "brooklyn nets", "charlotte hornets", "chicago bulls", "cleveland cavaliers",
 			"dallas mavericks", "denver nuggets", "detroit pistons", "golden state warriors", "houston rockets", "indiana pacers", "la clippers", "los angeles lakers",
@@ -117,15 +118,7 @@ public class Team implements Constraint, Comparable<Team> {
 		if(name == null){
 			throw new NullPointerException();
 		}
-		name = name.toLowerCase();
-		Team t = interning.get(name);
-		if(t == null){
-			Team answer = new Team(name);
-			interning.put(name, answer);
-			return answer;
-		} else {
-			return t;
-		}
+		return interning.computeIfAbsent(name.toLowerCase(), Team::new);
 	}
 
 	/**Parses a team from the given string.<br>
@@ -0,0 +1,350 @@
+package thybulle.misc;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**Class representing a directory of downloaded videos, which is kept between runs so a video is only downloaded once.<br>
+Each video is stored once, in the clips directory, under the SHA-256 hash of its contents, so videos with the same contents at different URLs are only stored once.
+The urls directory maps each URL to the hash of its video's contents, using a file named after the SHA-256 hash of the URL which contains the hash of the contents.<br>
+A video is downloaded to a temporary file in the cache's directory, then moved into place, and only then is its URL's file written, the same way.
+So a URL in the cache always refers to a complete video, even if a download was interrupted, and several processes may use the same cache at once.<br>
+Videos are hard-linked into the location they are saved to, rather than copied, if the location is on the same file system as the cache.
+A linked video shares its contents with the cache, so it may be deleted or replaced, but must not be modified in place.<br>
+The cache may be limited to a number of bytes. Each time a video is used, the last modified time of its cached file is updated,
+so the files' last modified times record when each video was last used, by any process.
+Once downloads take the cache over its limit, the least recently used videos are deleted in the background until it is within its limit again.
+Videos may be pinned while they are being used, so they are not deleted. A pin only prevents this process from deleting the videos,
+but a video which has been linked into place remains there even if its cached file is deleted.<br>
+The number of videos found in the cache and downloaded, and the number of bytes which were not downloaded because they were in the cache, are recorded.<br>
+This class is thread safe.
+@author Owen Kulik
+*/
+
+public class ClipCache {
+	private final Path clips;
+	private final Path urls;
+	private final Path temp;
+	private final long maxBytes;
+	//The size of the cached videos, as of the last eviction plus the videos downloaded since.
+	private final AtomicLong size = new AtomicLong();
+	private final AtomicBoolean evictionScheduled = new AtomicBoolean(false);
+	//Deletes the least recently used videos.
+	private final ExecutorService evictor;
+	//The number of pins on the hash of each pinned URL.
+	private final Map<String, Integer> pins = new ConcurrentHashMap<String, Integer>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong bytesSaved = new AtomicLong();
+
+	public static final String CLIP_EXTENSION = ".mp4";
+	//Temporary files older than this many milliseconds were left by a download which did not finish, and are deleted when videos are evicted.
+	public static final long TEMP_FILE_AGE = 24 * 60 * 60 * 1000;
+
+	//RI: clips, urls and temp are non-null directories. maxBytes is positive. Every value of pins is positive.
+	//AF: Represents the videos in clips, along with the URLs in urls which they were downloaded from, which are kept within maxBytes bytes.
+
+	/**Constructs a ClipCache using the given directory, creating it if it does not exist. The cache's size is not limited.
+	@param location Path to the directory.
+	@throws NullPointerException if location is null.
+	@throws IOException if an IO error occurs.
+	*/
+	public ClipCache(String location) throws IOException {
+		this(location, Long.MAX_VALUE);
+	}
+
+	/**Constructs a ClipCache using the given directory, creating it if it does not exist, which holds at most the given number of bytes of videos.<br>
+	If the cache is already larger than that, its least recently used videos are deleted in the background.
+	@param location Path to the directory.
+	@param maxBytes The maximum number of bytes of videos to keep.
+	@throws NullPointerException if location is null.
+	@throws IllegalArgumentException if maxBytes is not positive.
+	@throws IOException if an IO error occurs.
+	*/
+	public ClipCache(String location, long maxBytes) throws IOException {
+		if(location == null){
+			throw new NullPointerException();
+		}
+		if(maxBytes <= 0){
+			throw new IllegalArgumentException("Maximum cache size was not positive.");
+		}
+		Path directory = Path.of(location);
+		this.clips = Files.createDirectories(directory.resolve("clips"));
+		this.urls = Files.createDirectories(directory.resolve("urls"));
+		this.temp = Files.createDirectories(directory.resolve("tmp"));
+		this.maxBytes = maxBytes;
+		this.evictor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "Clip cache eviction");
+			t.setDaemon(true);
+			return t;
+		});
+		long total = 0;
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(clips)){
+			for(Path clip : stream){
+				total += Files.size(clip);
+			}
+		}
+		size.set(total);
+		evictIfFull();
+	}
+
+	/**Saves the video at the given URL to the given location, downloading it only if it is not in the cache, and returns a FileVideo pointing to that location.
+	@param url The URL of the video.
+	@param location The location to save the video to. Any file already there is replaced.
+	@throws NullPointerException if any parameter is null.
+	@throws IOException if an IO error occurs.
+	@return a reference to a Video object pointing to the given location.
+	*/
+	public FileVideo save(URL url, File location) throws IOException {
+		if(url == null || location == null){
+			throw new NullPointerException();
+		}
+		Path clip = get(url);
+		if(clip != null){
+			try{
+				Files.setLastModifiedTime(clip, FileTime.fromMillis(System.currentTimeMillis()));
+				long bytes = Files.size(clip);
+				link(clip, location.toPath());
+				hits.incrementAndGet();
+				bytesSaved.addAndGet(bytes);
+				return new FileVideo(location);
+			} catch(NoSuchFileException e){
+				//The video was evicted, by another process, after it was found.
+			}
+		}
+		misses.incrementAndGet();
+		link(download(url), location.toPath());
+		evictIfFull();
+		return new FileVideo(location);
+	}
+
+	/**Pins the videos at the given URLs, so that this cache does not delete them until the returned pin is closed. The videos do not need to be in the cache yet.
+	@param videos The URLs of the videos.
+	@throws NullPointerException if videos is null or contains null.
+	@return the pin, which unpins the videos when closed.
+	*/
+	public Closeable pin(Collection<URL> videos){
+		List<String> hashes = new ArrayList<String>(videos.size());
+		for(URL url : videos){
+			hashes.add(hash(url.toString().getBytes(StandardCharsets.UTF_8)));
+		}
+		for(String hash : hashes){
+			pins.merge(hash, 1, Integer::sum);
+		}
+		AtomicBoolean closed = new AtomicBoolean(false);
+		return () -> {
+			if(closed.compareAndSet(false, true)){
+				for(String hash : hashes){
+					pins.computeIfPresent(hash, (k, v) -> v == 1 ? null : v - 1);
+				}
+			}
+		};
+	}
+
+	/**Returns the number of videos which were saved from the cache.
+	@return the number of videos which were saved from the cache.
+	*/
+	public long hits(){
+		return hits.get();
+	}
+
+	/**Returns the number of videos which had to be downloaded.
+	@return the number of videos which had to be downloaded.
+	*/
+	public long misses(){
+		return misses.get();
+	}
+
+	/**Returns the number of bytes of videos which were saved from the cache rather than downloaded.
+	@return the number of bytes of videos which were saved from the cache.
+	*/
+	public long bytesSaved(){
+		return bytesSaved.get();
+	}
+
+	/**Returns a summary of the number of videos saved from the cache and downloaded, suitable for logging.
+	@return a summary of this cache's use.
+	*/
+	public String statistics(){
+		long h = hits.get();
+		long total = h + misses.get();
+		return "Clip cache: " + h + " of " + total + (total == 1 ? " video" : " videos") + " found in the cache (" + (total == 0 ? 0 : h * 100 / total) + "% hit rate), "
+			+ (bytesSaved.get() / (1024 * 1024)) + " MB not downloaded.";
+	}
+
+	//Starts deleting the least recently used videos in the background, if the cache is over its limit and this is not already being done.
+	private void evictIfFull(){
+		if(size.get() > maxBytes && evictionScheduled.compareAndSet(false, true)){
+			evictor.execute(() -> {
+				evictionScheduled.set(false);
+				try{
+					evict();
+				} catch(IOException e){
+					//Evicting again after the next download may succeed.
+				}
+			});
+		}
+	}
+
+	//Deletes the least recently used videos which are not pinned until the cache is within its limit,
+	//along with the URLs of videos which are not in the cache, and temporary files left by downloads which did not finish.
+	private void evict() throws IOException {
+		//The URL files referring to each video, and the videos referred to by pinned URLs.
+		//URL files are read before videos, and a video is always published before its URL file, so every video referred to by a URL file which is read is found.
+		Map<String, List<Path>> referrers = new HashMap<String, List<Path>>();
+		Set<String> pinned = new HashSet<String>();
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(urls)){
+			for(Path entry : stream){
+				String contents;
+				try{
+					contents = Files.readString(entry, StandardCharsets.UTF_8).trim();
+				} catch(NoSuchFileException e){
+					continue;
+				}
+				referrers.computeIfAbsent(contents, k -> new ArrayList<Path>()).add(entry);
+				if(pins.containsKey(entry.getFileName().toString())){
+					pinned.add(contents);
+				}
+			}
+		}
+		Set<String> present = new HashSet<String>();
+		List<Path> candidates = new ArrayList<Path>();
+		Map<Path, BasicFileAttributes> attributes = new HashMap<Path, BasicFileAttributes>();
+		long total = 0;
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(clips)){
+			for(Path clip : stream){
+				BasicFileAttributes a = Files.readAttributes(clip, BasicFileAttributes.class);
+				attributes.put(clip, a);
+				total += a.size();
+				String contents = contents(clip);
+				present.add(contents);
+				if(!pinned.contains(contents)){
+					candidates.add(clip);
+				}
+			}
+		}
+		candidates.sort(Comparator.comparing((Path p) -> attributes.get(p).lastModifiedTime()));
+		for(Iterator<Path> it = candidates.iterator(); total > maxBytes && it.hasNext();){
+			Path clip = it.next();
+			if(Files.deleteIfExists(clip)){
+				total -= attributes.get(clip).size();
+				present.remove(contents(clip));
+			}
+		}
+		size.set(total);
+		for(Map.Entry<String, List<Path>> e : referrers.entrySet()){
+			if(!present.contains(e.getKey())){
+				for(Path entry : e.getValue()){
+					Files.deleteIfExists(entry);
+				}
+			}
+		}
+		long now = System.currentTimeMillis();
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(temp)){
+			for(Path file : stream){
+				if(now - Files.getLastModifiedTime(file).toMillis() > TEMP_FILE_AGE){
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+	}
+
+	/**Returns the cached video downloaded from the given URL, or null if it is not in the cache.
+	@param url The URL of the video.
+	@throws NullPointerException if url is null.
+	@throws IOException if an IO error occurs.
+	@return the cached video downloaded from the given URL.
+	*/
+	public Path get(URL url) throws IOException {
+		Path entry = urls.resolve(hash(url.toString().getBytes(StandardCharsets.UTF_8)));
+		String contents;
+		try{
+			contents = Files.readString(entry, StandardCharsets.UTF_8).trim();
+		} catch(NoSuchFileException e){
+			return null;
+		}
+		Path clip = clips.resolve(contents + CLIP_EXTENSION);
+		return Files.isRegularFile(clip) ? clip : null;
+	}
+
+	//Returns the hash of the contents of the given cached video.
+	private static String contents(Path clip){
+		String name = clip.getFileName().toString();
+		return name.substring(0, name.length() - CLIP_EXTENSION.length());
+	}
+
+	//Downloads the video at the given URL into the cache, and returns the cached video.
+	private Path download(URL url) throws IOException {
+		MessageDigest digest = sha256();
+		Path downloaded = Files.createTempFile(temp, "clip", CLIP_EXTENSION);
+		try{
+			try(InputStream in = new DigestInputStream(url.openStream(), digest)){
+				Files.copy(in, downloaded, StandardCopyOption.REPLACE_EXISTING);
+			}
+			String contents = hex(digest.digest());
+			Path clip = clips.resolve(contents + CLIP_EXTENSION);
+			if(!Files.exists(clip)){
+				size.addAndGet(Files.size(downloaded));
+				publish(downloaded, clip);
+			}
+			Path entry = Files.createTempFile(temp, "url", ".txt");
+			try{
+				Files.writeString(entry, contents, StandardCharsets.UTF_8);
+				publish(entry, urls.resolve(hash(url.toString().getBytes(StandardCharsets.UTF_8))));
+			} finally {
+				Files.deleteIfExists(entry);
+			}
+			return clip;
+		} finally {
+			Files.deleteIfExists(downloaded);
+		}
+	}
+
+	//Moves the given file into place, so that it is either entirely present or absent.
+	private static void publish(Path file, Path destination) throws IOException {
+		Files.move(file, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	//Hard-links the given cached video to the given location, copying it instead if it cannot be linked there.
+	private static void link(Path clip, Path location) throws IOException {
+		Files.deleteIfExists(location);
+		try{
+			Files.createLink(location, clip);
+		} catch(UnsupportedOperationException | FileSystemException e){
+			//The location is on a different file system, or the file system does not support hard links.
+			Files.copy(clip, location, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	//Returns the SHA-256 hash of the given bytes, in hexadecimal.
+	private static String hash(byte[] bytes){
+		return hex(sha256().digest(bytes));
+	}
+
+	private static MessageDigest sha256(){
+		try{
+			return MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e){
+			//Every Java implementation is required to support SHA-256.
+			throw new AssertionError(e);
+		}
+	}
+
+	private static String hex(byte[] bytes){
+		StringBuilder answer = new StringBuilder(bytes.length * 2);
+		for(byte b : bytes){
+			answer.append(String.format("%02x", b));
+		}
+		return answer.toString();
+	}
+}
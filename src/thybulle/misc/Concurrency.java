@@ -0,0 +1,84 @@
+package thybulle.misc;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**Static class with util methods for running IO-bound work concurrently.
+*/
+
+public class Concurrency {
+	private Concurrency(){}
+
+	/**Functional interface representing a function which may throw an IOException.
+	@param <T> the type of the input to the function.
+	@param <R> the type of the result of the function.
+	*/
+	@FunctionalInterface
+	public interface IOFunction<T, R> {
+		/**Applies this function to the given argument.
+		@param t the function argument.
+		@throws IOException if an IO error occurs.
+		@return the function result.
+		*/
+		R apply(T t) throws IOException;
+	}
+
+	/**Applies the given function to every input using the given executor, and returns a list of the results.<br>
+	The order of the returned list corresponds to the order of the inputs, regardless of the order in which the calls finish.<br>
+	If any call throws an exception, all calls which have not yet finished are cancelled, and the first exception thrown is rethrown by this method.
+	@param inputs The inputs.
+	@param function The function to apply to each input.
+	@param executor The executor to run the calls on.
+	@throws NullPointerException if any parameter is null.
+	@throws IOException if any call throws an IOException.
+	@throws InterruptedIOException if the calling thread is interrupted while waiting for the calls to finish.
+	@return a list of the results of each call, in the order of the inputs.
+	*/
+	public static <T, R> List<R> map(List<? extends T> inputs, IOFunction<? super T, ? extends R> function, Executor executor) throws IOException {
+		if(inputs == null || function == null || executor == null){
+			throw new NullPointerException();
+		}
+		CompletionService<R> completion = new ExecutorCompletionService<R>(executor);
+		List<Future<R>> futures = new ArrayList<Future<R>>(inputs.size());
+		try{
+			for(T input : inputs){
+				futures.add(completion.submit(() -> function.apply(input)));
+			}
+			for(int i = 0; i < futures.size(); i++){
+				completion.take().get();
+			}
+			List<R> answer = new ArrayList<R>(futures.size());
+			for(Future<R> f : futures){
+				answer.add(f.get());
+			}
+			return answer;
+		} catch(InterruptedException e){
+			cancelAll(futures);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for concurrent calls to finish.");
+		} catch(ExecutionException e){
+			cancelAll(futures);
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException){
+				throw (IOException)cause;
+			} else if(cause instanceof RuntimeException){
+				throw (RuntimeException)cause;
+			} else if(cause instanceof Error){
+				throw (Error)cause;
+			} else {
+				throw new IOException(cause);
+			}
+		} catch(RuntimeException e){
+			cancelAll(futures);
+			throw e;
+		}
+	}
+
+	//Cancels all futures which have not yet finished, interrupting them if they are running.
+	private static void cancelAll(Collection<? extends Future<?>> futures){
+		for(Future<?> f : futures){
+			f.cancel(true);
+		}
+	}
+}
@@ -6,11 +6,14 @@ import java.util.*;
 import java.nio.file.*;
 
 /**Immutable class representing a video file on the internet.
-Includes the ability to get a URL object pointing to the video.
+Includes the ability to get a URL object pointing to the video.<br>
+If a ClipCache has been set, videos are saved through it, so each video is only downloaded once.
 */
 
 public class InternetVideo implements Video {
 	private final URL internetLocation;
+	//The cache videos are saved through, or null if there is none.
+	private static volatile ClipCache cache = null;
 
 	/**Constructs an InternetVideo pointing to the given URL.
 	@param location The video URL.
@@ -38,8 +41,30 @@ public class InternetVideo implements Video {
 		}
 	}
 
+	/**Sets the cache which videos are saved through. If it is null, videos are downloaded every time they are saved.
+	@param clipCache The cache, or null.
+	*/
+	public static void setCache(ClipCache clipCache){
+		cache = clipCache;
+	}
+
+	/**Pins the given videos in the cache, if one has been set, so they are not deleted from it until the returned pin is closed.
+	@param videos The videos to pin.
+	@throws NullPointerException if videos is null or contains null.
+	@return the pin, which unpins the videos when closed.
+	*/
+	public static Closeable pin(Collection<InternetVideo> videos){
+		List<URL> locations = new ArrayList<URL>(videos.size());
+		for(InternetVideo v : videos){
+			locations.add(v.internetLocation);
+		}
+		ClipCache c = cache;
+		return c == null ? () -> {} : c.pin(locations);
+	}
+
 	@Override
-	/**Saves a copy of this video to the given location and returns a FileVideo pointing to that location.
+	/**Saves a copy of this video to the given location and returns a FileVideo pointing to that location.<br>
+	If a cache has been set, the video is only downloaded if it is not in the cache.
 	@param location The location to save the video to.
 	@throws NullPointerException if location is null.
 	@return a reference to a Video object pointing to the given location.
@@ -48,6 +73,10 @@ public class InternetVideo implements Video {
 		if(location == null){
 			throw new NullPointerException();
 		}
+		ClipCache c = cache;
+		if(c != null){
+			return c.save(internetLocation, location);
+		}
 		InputStream stream = internetLocation.openStream();
 		Files.copy(stream, location.toPath(), StandardCopyOption.REPLACE_EXISTING);
 		return new FileVideo(location);
@@ -0,0 +1,201 @@
+package thybulle.highlights;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.*;
+
+import org.json.*;
+
+/**Checks that a DataStore recovers exactly the complete records of its journal after a crash.<br>
+A store is made to append one record of each kind to its journal, and a copy of its directory is taken before it is flushed, as if the program had been killed.
+The journal of each copy is then damaged the way a crash or a bad disk would damage it: its last record is cut short,
+a record's checksum no longer matches its contents, or the generation line is damaged.
+Each copy is then opened, and the check fails unless exactly the records which are still complete are found in it, both then and after it is opened again.
+@author Owen Kulik
+*/
+
+public class DataStoreJournalTest {
+	private static final LocalDate FIRST_DAY = LocalDate.of(2019, 10, 22);
+	private static final LocalDate SECOND_DAY = LocalDate.of(2019, 10, 23);
+	//The day SECOND_DAY's record refers to once it has been corrupted.
+	private static final LocalDate CORRUPTED_DAY = LocalDate.of(2019, 10, 24);
+	private static final GameInfo GAME = new GameInfo(SECOND_DAY, Team.get("Los Angeles Lakers"), Team.get("LA Clippers"));
+	private static final String ABBREVIATION = "XYZ";
+	private static final String PLAY_LINK = "https://stats.nba.com/events/?GameID=0021900002&GameEventID=7";
+	private static final String VIDEO_URL = "https://videos.nba.com/nba/pbp/media/2019/10/23/0021900002/7/video_1280x720.mp4";
+	//The number of records written, one of each kind, in this order: FIRST_DAY, ABBREVIATION, SECOND_DAY, GAME's plays, GAME's videos.
+	private static final int RECORDS = 5;
+
+	private DataStoreJournalTest(){}
+
+	/**Runs the check.
+	@param args Ignored.
+	@throws IOException if an IO error occurs.
+	@throws AssertionError if the check fails.
+	*/
+	public static void main(String[] args) throws IOException {
+		Path root = Files.createTempDirectory("datastorejournaltest");
+		try{
+			Path crashed = root.resolve("crashed");
+			byte[] journal = writeRecords(crashed);
+			List<Integer> lines = lineEnds(journal);
+			if(lines.size() != RECORDS + 1){
+				throw new AssertionError("Expected a generation line and " + RECORDS + " records, but the journal has " + lines.size() + " lines.");
+			}
+			int cases = 0;
+
+			check(root, crashed, "intact journal", journal, complete());
+			cases++;
+
+			int lastStart = lines.get(RECORDS - 1) + 1;
+			byte[] torn = Arrays.copyOf(journal, lastStart + (journal.length - lastStart) / 2);
+			check(root, crashed, "last record cut short", torn, complete(0, 1, 2, 3));
+			cases++;
+
+			byte[] unterminated = Arrays.copyOf(journal, journal.length - 1);
+			check(root, crashed, "last record missing its newline", unterminated, complete(0, 1, 2, 3));
+			cases++;
+
+			int thirdStart = lines.get(2) + 1;
+			byte[] tornEarly = Arrays.copyOf(journal, thirdStart + 10);
+			check(root, crashed, "journal cut short in the middle of a record", tornEarly, complete(0, 1));
+			cases++;
+
+			byte[] corruptMiddle = corrupt(journal, lines.get(2) + 1, lines.get(3), SECOND_DAY.toString(), CORRUPTED_DAY.toString());
+			check(root, crashed, "checksum mismatch in a middle record", corruptMiddle, complete(0, 1, 3, 4));
+			cases++;
+
+			byte[] corruptLast = corrupt(journal, lastStart, lines.get(RECORDS), "1280x720", "1920x720");
+			check(root, crashed, "checksum mismatch in the last record", corruptLast, complete(0, 1, 2, 3));
+			cases++;
+
+			byte[] badGeneration = journal.clone();
+			badGeneration[0] = 'G';
+			check(root, crashed, "damaged generation line", badGeneration, complete());
+			cases++;
+
+			System.out.println("DataStoreJournalTest: " + cases + " damaged journals recovered exactly their complete records.");
+		} finally {
+			delete(root);
+		}
+	}
+
+	//Opens a store in the given directory, writes one record of each kind, and copies the directory before the store is flushed.
+	//Returns the journal of the copy.
+	private static byte[] writeRecords(Path crashed) throws IOException {
+		Path live = crashed.resolveSibling("live");
+		DataStore store = DataStore.open(live.toString());
+		try{
+			store.putDay(FIRST_DAY, new JSONArray().put(new GameInfo(FIRST_DAY, Team.get("New Orleans Pelicans"), Team.get("Toronto Raptors")).toJSON()));
+			store.putTeamAbbreviation(ABBREVIATION, "los angeles lakers");
+			store.putDay(SECOND_DAY, new JSONArray().put(GAME.toJSON()));
+			PlayCodec.Encoder plays = new PlayCodec.Encoder();
+			plays.add(PLAY_LINK, PlayType.DUNK_MADE, new Timestamp(1, 600), GAME.awayTeam(), new Score(2, 0), List.of(Player.get("Anthony", "Davis")));
+			store.putEncodedPlays(GAME, plays.toBytes());
+			store.putVideos(GAME, Map.of(PLAY_LINK, VIDEO_URL));
+			copy(live, crashed);
+		} finally {
+			store.close();
+		}
+		return Files.readAllBytes(crashed.resolve(DataStore.JOURNAL_FILE));
+	}
+
+	//Opens a copy of the crashed store whose journal is the given journal, and fails unless exactly the expected records are found in it,
+	//both when it is first opened and when it is opened again after being closed.
+	private static void check(Path root, Path crashed, String name, byte[] journal, boolean[] expected) throws IOException {
+		Path copy = root.resolve("case" + name.hashCode());
+		copy(crashed, copy);
+		Files.write(copy.resolve(DataStore.JOURNAL_FILE), journal);
+		for(int open = 0; open < 2; open++){
+			DataStore store = DataStore.open(copy.toString());
+			try{
+				boolean[] found = found(store);
+				if(!Arrays.equals(found, expected)){
+					throw new AssertionError(name + (open == 0 ? "" : ", opened again") + ": expected records " + Arrays.toString(expected) + " but found " + Arrays.toString(found));
+				}
+				if(store.getDay(CORRUPTED_DAY) != null){
+					throw new AssertionError(name + ": a record whose checksum does not match was applied.");
+				}
+			} finally {
+				store.close();
+			}
+		}
+		String generation = Files.readString(copy.resolve(DataStore.JOURNAL_FILE), StandardCharsets.UTF_8);
+		if(!generation.startsWith("generation ") || generation.indexOf('\n') != generation.length() - 1){
+			throw new AssertionError(name + ": the journal was not emptied once it was applied: " + generation);
+		}
+	}
+
+	//Returns whether each record written by writeRecords is found in the given store.
+	private static boolean[] found(DataStore store) throws IOException {
+		return new boolean[]{
+			store.getDay(FIRST_DAY) != null,
+			store.getTeamAbbreviations().containsKey(ABBREVIATION),
+			store.getDay(SECOND_DAY) != null,
+			store.getEncodedPlays(GAME) != null,
+			VIDEO_URL.equals(store.getVideo(GAME, PLAY_LINK))
+		};
+	}
+
+	//Returns the expected result of found() when only the records with the given indices are complete, or every record if none are given.
+	private static boolean[] complete(int... records){
+		boolean[] answer = new boolean[RECORDS];
+		if(records.length == 0){
+			Arrays.fill(answer, true);
+		}
+		for(int i : records){
+			answer[i] = true;
+		}
+		return answer;
+	}
+
+	//Returns the position of each newline in the given journal.
+	private static List<Integer> lineEnds(byte[] journal){
+		List<Integer> answer = new ArrayList<Integer>();
+		for(int i = 0; i < journal.length; i++){
+			if(journal[i] == '\n'){
+				answer.add(i);
+			}
+		}
+		return answer;
+	}
+
+	//Returns a copy of the journal in which the first occurrence of target between start and end is replaced by replacement, which must have the same length.
+	//The record's checksum is left as it was, so it no longer matches.
+	private static byte[] corrupt(byte[] journal, int start, int end, String target, String replacement){
+		String record = new String(journal, start, end - start, StandardCharsets.UTF_8);
+		int index = record.indexOf(target);
+		if(index == -1 || target.length() != replacement.length()){
+			throw new AssertionError("Could not corrupt the record: " + record);
+		}
+		byte[] answer = journal.clone();
+		byte[] bytes = replacement.getBytes(StandardCharsets.UTF_8);
+		System.arraycopy(bytes, 0, answer, start + record.substring(0, index).getBytes(StandardCharsets.UTF_8).length, bytes.length);
+		return answer;
+	}
+
+	//Copies the given directory and everything in it, replacing any files already at the destination.
+	private static void copy(Path from, Path to) throws IOException {
+		try(Stream<Path> files = Files.walk(from)){
+			for(Path p : files.collect(Collectors.toList())){
+				Path target = to.resolve(from.relativize(p).toString());
+				if(Files.isDirectory(p)){
+					Files.createDirectories(target);
+				} else {
+					Files.copy(p, target, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+		}
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try(Stream<Path> files = Files.walk(directory)){
+			for(Path p : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())){
+				Files.delete(p);
+			}
+		}
+	}
+}
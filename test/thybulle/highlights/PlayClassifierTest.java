@@ -0,0 +1,122 @@
+package thybulle.highlights;
+
+import thybulle.misc.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**Regression check which classifies every description in a corpus of play descriptions with both PlayClassifier
+and the ordered cascade of regexes it replaced, and fails if they disagree on the PlayTypes or player names of any description.<br>
+The check also fails if any rule matches no description in the corpus, so that every rule is compared.<br>
+Run from the repository's root folder. Additional corpus files in the same format can be given as arguments.
+@author Owen Kulik
+*/
+
+public class PlayClassifierTest {
+	private static final String CORPUS = "test/thybulle/highlights/play-descriptions.txt";
+
+	private PlayClassifierTest(){}
+
+	/**Runs the check.
+	@param args Paths to additional corpus files.
+	@throws IOException if a corpus file could not be read.
+	@throws AssertionError if the check fails.
+	*/
+	public static void main(String[] args) throws IOException {
+		List<String> corpora = new ArrayList<String>();
+		corpora.add(CORPUS);
+		corpora.addAll(Arrays.asList(args));
+
+		List<PlayClassifier.Rule> rules = PlayByPlayParser.rules();
+		Map<Pair<String, String>, PlayType> playTypeParsing = new LinkedHashMap<Pair<String, String>, PlayType>();
+		for(PlayClassifier.Rule r : rules){
+			playTypeParsing.put(new Pair<String, String>(r.firstRegex(), r.secondRegex()), r.playType());
+		}
+		if(playTypeParsing.size() != rules.size()){
+			throw new AssertionError("Two rules have the same regexes.");
+		}
+		PlayClassifier classifier = new PlayClassifier(rules);
+
+		Set<Pair<String, String>> unmatched = new HashSet<Pair<String, String>>(playTypeParsing.keySet());
+		int descriptions = 0;
+		List<String> failures = new ArrayList<String>();
+		for(String corpus : corpora){
+			for(String line : Files.readAllLines(Path.of(corpus), StandardCharsets.UTF_8)){
+				if(line.isBlank() || line.startsWith("#")){
+					continue;
+				}
+				String[] fields = line.split("\t", 2);
+				String description = fields[0];
+				String other = fields.length > 1 ? fields[1] : null;
+				descriptions++;
+
+				List<Pair<PlayType, List<String>>> expected = cascade(playTypeParsing, description, other, unmatched);
+				List<Pair<PlayType, List<String>>> actual = new ArrayList<Pair<PlayType, List<String>>>();
+				for(PlayClassifier.Classification c : classifier.classify(description, other)){
+					actual.add(new Pair<PlayType, List<String>>(c.playType(), c.names()));
+				}
+				if(!expected.equals(actual)){
+					failures.add(line + "\n\texpected " + expected + "\n\tbut was  " + actual);
+				}
+			}
+		}
+
+		if(!failures.isEmpty()){
+			throw new AssertionError(failures.size() + " of " + descriptions + " descriptions were classified differently:\n" + String.join("\n", failures));
+		}
+		if(!unmatched.isEmpty()){
+			StringBuilder message = new StringBuilder("No description in the corpus matched these rules:");
+			for(Pair<String, String> p : unmatched){
+				message.append("\n\t").append(playTypeParsing.get(p)).append(": ").append(p);
+			}
+			throw new AssertionError(message.toString());
+		}
+		System.out.println("PlayClassifierTest: " + descriptions + " descriptions classified identically by " + rules.size() + " rules.");
+	}
+
+	//Classifies the description by trying every regex in order, as AdvancedStats did before PlayClassifier.
+	//Removes each rule which matched from unmatched.
+	private static List<Pair<PlayType, List<String>>> cascade(Map<Pair<String, String>, PlayType> playTypeParsing, String description, String other,
+			Set<Pair<String, String>> unmatched){
+		List<Pair<PlayType, List<String>>> answer = new ArrayList<Pair<PlayType, List<String>>>();
+		eachPlayType: for(Pair<String, String> parsingPair : playTypeParsing.keySet()){
+			PlayType playType = playTypeParsing.get(parsingPair);
+			for(Pair<PlayType, List<String>> p : answer){
+				if(p.first().hasSupertype(playType)){
+					continue eachPlayType;
+				}
+			}
+
+			if(other == null && parsingPair.second() != null){
+				continue;
+			}
+			List<String> playerLastNames = new ArrayList<String>();
+			Matcher matcher = Pattern.compile(parsingPair.first()).matcher(description);
+			if(!matcher.matches()){
+				continue;
+			}
+			playerLastNames.addAll(getAllGroups(matcher));
+			if(parsingPair.second() != null){
+				Matcher matcher2 = Pattern.compile(parsingPair.second()).matcher(other);
+				if(!matcher2.matches()){
+					continue;
+				}
+				playerLastNames.addAll(getAllGroups(matcher2));
+			}
+			answer.add(new Pair<PlayType, List<String>>(playType, playerLastNames));
+			unmatched.remove(parsingPair);
+		}
+		return answer;
+	}
+
+	//Returns all groups captured by the matcher, in order.
+	private static Collection<String> getAllGroups(Matcher m){
+		Collection<String> answer = new ArrayList<String>();
+		for(int i = 1; i <= m.groupCount(); i++){
+			answer.add(m.group(i));
+		}
+		return answer;
+	}
+}
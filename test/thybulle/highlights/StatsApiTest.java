@@ -0,0 +1,307 @@
+package thybulle.highlights;
+
+import thybulle.misc.*;
+import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.*;
+
+/**Checks StatsApi against a local HTTP server which serves fixture responses in the format of the stats.nba.com endpoints it uses.<br>
+The responses are in the statsapi folder next to this file, one per endpoint. They hold the games of October 22, 2019,
+and the box score, part of the play-by-play and the video of one play of the Lakers at Clippers game.<br>
+Run from the repository's root folder.
+@author Owen Kulik
+*/
+
+public class StatsApiTest {
+	private static final Path FIXTURES = Path.of("test", "thybulle", "highlights", "statsapi");
+	private static final LocalDate DATE = LocalDate.of(2019, 10, 22);
+	private static final GameInfo LAKERS_AT_CLIPPERS = new GameInfo(DATE, Team.get("Los Angeles Lakers"), Team.get("LA Clippers"));
+	private static final String VIDEO_URL = "https://videos.nba.com/nba/pbp/media/2019/10/22/0021900002/7/7f7d1a52-8ad8-8f5c-0a9d-2b6e8d1f6c1e_1280x720.mp4";
+
+	private StatsApiTest(){}
+
+	/**Runs the checks.
+	@param args Ignored.
+	@throws IOException if an IO error occurs.
+	@throws AssertionError if a check fails.
+	*/
+	public static void main(String[] args) throws IOException {
+		FixtureServer server = new FixtureServer();
+		try{
+			checkGameInformation(server);
+			checkPlayers(server);
+			checkPlays(server);
+			checkVideos(server);
+			checkRetries(server);
+			checkMaxRequests(server);
+		} finally {
+			server.stop();
+		}
+		System.out.println("StatsApiTest: all checks passed.");
+	}
+
+	//Checks the games parsed from the scoreboard.
+	private static void checkGameInformation(FixtureServer server) throws IOException {
+		server.reset();
+		StatsApi source = server.open(StatsApi.DEFAULT_MAX_REQUESTS);
+		List<GameInfo> games = source.getGameInformationOnDay(DATE);
+		assertEquals(List.of(new GameInfo(DATE, Team.get("New Orleans Pelicans"), Team.get("Toronto Raptors")), LAKERS_AT_CLIPPERS), games, "games on " + DATE);
+		assertEquals(List.of("DayOffset=0&LeagueID=00&GameDate=10/22/2019"), server.queries("scoreboardv2"), "scoreboard queries");
+	}
+
+	//Checks the players parsed from the box score, and that the box score is only requested once.
+	private static void checkPlayers(FixtureServer server) throws IOException {
+		server.reset();
+		StatsApi source = server.open(StatsApi.DEFAULT_MAX_REQUESTS);
+		Set<Player> players = source.getPlayers(LAKERS_AT_CLIPPERS);
+		assertEquals(21, players.size(), "number of players");
+		for(String name : List.of("LeBron James", "Danny Green", "Kentavious Caldwell-Pope", "JaMychal Green", "Jared Dudley", "Kawhi Leonard")){
+			String[] split = name.split(" ", 2);
+			assertTrue(players.contains(Player.get(split[0], split[1])), "players contains " + name);
+		}
+		source.getGame(LAKERS_AT_CLIPPERS);
+		assertEquals(1, server.queries("boxscoretraditionalv2").size(), "box score requests");
+		assertTrue(server.queries("boxscoretraditionalv2").get(0).endsWith("GameID=0021900002"), "box score query");
+	}
+
+	//Checks the plays parsed from the play-by-play, including the teams, players, times and scores of each.
+	private static void checkPlays(FixtureServer server) throws IOException {
+		server.reset();
+		StatsApi source = server.open(StatsApi.DEFAULT_MAX_REQUESTS);
+		Game game = source.getGame(LAKERS_AT_CLIPPERS);
+		assertTrue(game != null, "game was found");
+		assertEquals(List.of("EndPeriod=10&StartPeriod=1&GameID=0021900002"), server.queries("playbyplayv2"), "play-by-play queries");
+
+		Team lakers = LAKERS_AT_CLIPPERS.awayTeam();
+		Team clippers = LAKERS_AT_CLIPPERS.homeTeam();
+		List<String> expected = List.of(
+			play(PlayType.JUMP_BALL, clippers, 1, "12:00", 0, 0, "Ivica Zubac", "Anthony Davis"),
+			play(PlayType.FIELD_GOAL_MISSED, lakers, 1, "11:41", 0, 0, "Anthony Davis"),
+			play(PlayType.REBOUND, clippers, 1, "11:39", 0, 0, "Ivica Zubac"),
+			play(PlayType.FIELD_GOAL_MADE, clippers, 1, "11:25", 0, 0, "Kawhi Leonard"),
+			play(PlayType.FIELD_GOAL_MADE, lakers, 1, "11:08", 0, 2, "LeBron James"),
+			play(PlayType.ASSIST, lakers, 1, "11:08", 0, 2, "Danny Green"),
+			play(PlayType.THREE_POINTER_MADE, clippers, 1, "10:50", 2, 2, "Patrick Beverley"),
+			play(PlayType.ASSIST, clippers, 1, "10:50", 2, 2, "Kawhi Leonard"),
+			play(PlayType.DUNK_MADE, lakers, 1, "10:31", 2, 5, "JaVale McGee"),
+			play(PlayType.ASSIST, lakers, 1, "10:31", 2, 5, "LeBron James"),
+			play(PlayType.ALLEY_OOP, lakers, 1, "10:31", 2, 5, "JaVale McGee", "LeBron James"),
+			play(PlayType.AND_ONE, lakers, 1, "10:12", 4, 5, "Anthony Davis"),
+			play(PlayType.FREE_THROW_MADE, lakers, 1, "10:12", 4, 5, "Anthony Davis"),
+			play(PlayType.SHOOTING_FOUL, clippers, 1, "10:12", 5, 4, "Maurice Harkless"),
+			play(PlayType.STEAL, lakers, 1, "9:55", 7, 5, "Kentavious Caldwell-Pope"),
+			play(PlayType.TURNOVER, clippers, 1, "9:55", 5, 7, "Lou Williams"),
+			play(PlayType.THREE_POINTER_MISSED, lakers, 1, "9:50", 7, 5, "Danny Green"),
+			play(PlayType.REBOUND, clippers, 1, "9:48", 5, 7, "Montrezl Harrell"),
+			play(PlayType.BLOCK, lakers, 1, "9:31", 7, 5, "Anthony Davis"),
+			play(PlayType.FIELD_GOAL_MISSED, clippers, 1, "9:31", 5, 7, "Montrezl Harrell"),
+			play(PlayType.REBOUND, lakers, 1, "9:29", 7, 5, "Dwight Howard"),
+			play(PlayType.TIMEOUT, lakers, 1, "9:29", 7, 5),
+			play(PlayType.SUBSTITUTION, clippers, 1, "9:29", 5, 7, "Landry Shamet", "Maurice Harkless"),
+			play(PlayType.THREE_POINTER_MADE, lakers, 2, "11:45", 7, 5, "Alex Caruso"),
+			play(PlayType.ASSIST, lakers, 2, "11:45", 7, 5, "Quinn Cook"),
+			play(PlayType.DEFENSIVE_FOUL, clippers, 2, "11:30", 5, 10, "Lou Williams"),
+			play(PlayType.DUNK_MADE, clippers, 2, "11:02", 5, 10, "Montrezl Harrell"),
+			play(PlayType.ASSIST, clippers, 2, "11:02", 5, 10, "Lou Williams")
+		);
+		List<String> actual = new ArrayList<String>();
+		for(Play p : game.getAllPlays()){
+			actual.add(play(p));
+		}
+		assertEquals(expected, actual, "plays");
+	}
+
+	//Checks that the video of a play is resolved from the videoeventsasset endpoint, and that plays without video make no request.
+	private static void checkVideos(FixtureServer server) throws IOException {
+		server.reset();
+		StatsApi source = server.open(StatsApi.DEFAULT_MAX_REQUESTS);
+		Game game = source.getGame(LAKERS_AT_CLIPPERS);
+		Play miss = find(game, PlayType.FIELD_GOAL_MISSED, new Timestamp(1, 11 * 60 + 41));
+		Video video = miss.getVideo();
+		assertTrue(video instanceof InternetVideo, "video is an InternetVideo");
+		assertEquals(VIDEO_URL, video.getLocation(), "video location");
+		assertEquals(List.of("GameEventID=7&GameID=0021900002"), server.queries("videoeventsasset"), "video queries");
+		assertTrue(miss.getVideo() == video, "video is only requested once");
+		assertEquals(1, server.queries("videoeventsasset").size(), "video requests");
+
+		Play timeout = find(game, PlayType.TIMEOUT, new Timestamp(1, 9 * 60 + 29));
+		assertEquals(null, timeout.getVideo(), "video of a play without video");
+		assertEquals(1, server.queries("videoeventsasset").size(), "video requests");
+	}
+
+	//Checks that requests are retried after 429 and 5xx responses, but not after other errors, and not more than three times.
+	private static void checkRetries(FixtureServer server) throws IOException {
+		server.reset();
+		server.fail("scoreboardv2", 429, 503);
+		StatsApi source = server.open(StatsApi.DEFAULT_MAX_REQUESTS);
+		assertEquals(2, source.getGameInformationOnDay(DATE).size(), "games after two failed requests");
+		assertEquals(3, server.queries("scoreboardv2").size(), "scoreboard requests after two failed requests");
+
+		server.reset();
+		server.fail("scoreboardv2", 500, 502, 503, 504);
+		source = server.open(StatsApi.DEFAULT_MAX_REQUESTS);
+		assertEquals(null, source.getGameInformationOnDay(DATE), "games after every request failed");
+		assertEquals(3, server.queries("scoreboardv2").size(), "scoreboard requests after every request failed");
+
+		server.reset();
+		server.fail("scoreboardv2", 404);
+		source = server.open(StatsApi.DEFAULT_MAX_REQUESTS);
+		assertEquals(null, source.getGameInformationOnDay(DATE), "games after a 404");
+		assertEquals(1, server.queries("scoreboardv2").size(), "scoreboard requests after a 404");
+	}
+
+	//Checks that no more than maxRequests requests are in flight at once, even when more threads than that resolve videos at once.
+	private static void checkMaxRequests(FixtureServer server) throws IOException {
+		ExecutorService threads = Executors.newFixedThreadPool(16);
+		try{
+			for(int maxRequests : new int[]{1, 3}){
+				server.reset();
+				StatsApi source = server.open(maxRequests);
+				List<Play> plays = source.getGame(LAKERS_AT_CLIPPERS).getAllPlays();
+				server.delay(100);
+				List<Video> videos = Concurrency.map(plays, Play::getVideo, threads);
+				assertEquals(plays.size(), videos.size(), "number of videos");
+				assertEquals(maxRequests, server.maxInFlight(), "most requests in flight with maxRequests " + maxRequests);
+				assertTrue(server.queries("videoeventsasset").size() > maxRequests, "videos requested with maxRequests " + maxRequests);
+			}
+		} finally {
+			threads.shutdown();
+		}
+	}
+
+	//Returns the play of the given type at the given time.
+	private static Play find(Game game, PlayType type, Timestamp time){
+		for(Play p : game.getAllPlays()){
+			if(p.getType() == type && p.getTimestamp().equals(time)){
+				return p;
+			}
+		}
+		throw new AssertionError("No " + type + " at " + time);
+	}
+
+	//Returns a String describing a play with the given values, in the same format as play(Play).
+	private static String play(PlayType type, Team team, int quarter, String clock, int teamScore, int otherScore, String... players){
+		String[] split = clock.split(":");
+		Timestamp time = new Timestamp(quarter, Integer.parseInt(split[0]) * 60 + Integer.parseInt(split[1]));
+		List<Player> list = new ArrayList<Player>();
+		for(String name : players){
+			String[] names = name.split(" ", 2);
+			list.add(Player.get(names[0], names[1]));
+		}
+		return type + " by " + list + " of " + team + " at " + time + ", score " + new Score(teamScore, otherScore);
+	}
+
+	//Returns a String describing the given play's type, players, team, time and score.
+	private static String play(Play p){
+		return p.getType() + " by " + p.getPlayers() + " of " + p.getTeam() + " at " + p.getTimestamp() + ", score " + p.getScore();
+	}
+
+	private static void assertEquals(Object expected, Object actual, String what){
+		if(!Objects.equals(expected, actual)){
+			throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+		}
+	}
+
+	private static void assertTrue(boolean condition, String what){
+		if(!condition){
+			throw new AssertionError(what + " was false");
+		}
+	}
+
+	//Local HTTP server which serves the recorded response of each endpoint, and records the requests made to it.
+	private static class FixtureServer {
+		private final HttpServer server;
+		//The query of every request to each endpoint, in order.
+		private final Map<String, List<String>> queries = new ConcurrentHashMap<String, List<String>>();
+		//Statuses to respond with instead of the recorded response, for each endpoint, in order.
+		private final Map<String, Deque<Integer>> failures = new ConcurrentHashMap<String, Deque<Integer>>();
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final AtomicInteger maxInFlight = new AtomicInteger();
+		private volatile long delay;
+
+		private FixtureServer() throws IOException {
+			server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+			server.createContext("/stats/", this::handle);
+			server.setExecutor(Executors.newCachedThreadPool());
+			server.start();
+		}
+
+		//Returns a StatsApi which requests from this server.
+		private StatsApi open(int maxRequests){
+			return StatsApi.open("http://127.0.0.1:" + server.getAddress().getPort() + "/stats", maxRequests, 10000);
+		}
+
+		//Forgets every request, failure and delay.
+		private void reset(){
+			queries.clear();
+			failures.clear();
+			delay = 0;
+			maxInFlight.set(0);
+		}
+
+		//Responds to the next requests to the given endpoint with the given statuses.
+		private void fail(String endpoint, Integer... statuses){
+			failures.put(endpoint, new ConcurrentLinkedDeque<Integer>(Arrays.asList(statuses)));
+		}
+
+		//Waits for the given number of milliseconds before responding to each request.
+		private void delay(long millis){
+			delay = millis;
+		}
+
+		//Returns the queries of the requests made to the given endpoint.
+		private List<String> queries(String endpoint){
+			return queries.getOrDefault(endpoint, List.of());
+		}
+
+		//Returns the most requests which have been in flight at once.
+		private int maxInFlight(){
+			return maxInFlight.get();
+		}
+
+		private void stop(){
+			server.stop(0);
+			((ExecutorService)server.getExecutor()).shutdownNow();
+		}
+
+		//A request stops counting as in flight just before its response is sent, since the client may make its next request as soon as it has the response.
+		private void handle(HttpExchange exchange) throws IOException {
+			int current = inFlight.incrementAndGet();
+			maxInFlight.accumulateAndGet(current, Math::max);
+			try{
+				String endpoint = exchange.getRequestURI().getPath().substring("/stats/".length());
+				queries.computeIfAbsent(endpoint, k -> Collections.synchronizedList(new ArrayList<String>())).add(exchange.getRequestURI().getRawQuery());
+				if(delay > 0){
+					try{
+						Thread.sleep(delay);
+					} catch(InterruptedException e){
+						Thread.currentThread().interrupt();
+					}
+				}
+				Deque<Integer> statuses = failures.get(endpoint);
+				Integer failure = statuses == null ? null : statuses.poll();
+				Path fixture = FIXTURES.resolve(endpoint + ".json");
+				if(failure != null || !Files.exists(fixture)){
+					inFlight.decrementAndGet();
+					exchange.sendResponseHeaders(failure != null ? failure : 404, -1);
+					return;
+				}
+				byte[] body = Files.readAllBytes(fixture);
+				exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+				inFlight.decrementAndGet();
+				exchange.sendResponseHeaders(200, body.length);
+				try(OutputStream out = exchange.getResponseBody()){
+					out.write(body);
+				}
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+}